@@ -1,8 +1,10 @@
 plugins {
     base
     `java-library`
+    `java-test-fixtures`
     `maven-publish`
     signing
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.uploadcare"
@@ -20,15 +22,58 @@ java {
 dependencies {
     implementation("org.apache.httpcomponents:httpclient:4.5.13")
     implementation("org.apache.httpcomponents:httpmime:4.5.13")
+    implementation("org.apache.httpcomponents:httpasyncclient:4.1.5")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.16.2")
     implementation("commons-codec:commons-codec:1.10")
     implementation("commons-io:commons-io:2.7")
     implementation("com.sun.activation:javax.activation:1.2.0")
+    api("org.reactivestreams:reactive-streams:1.0.4")
 
     testImplementation("junit:junit:4.13.1")
     testImplementation("org.mockito:mockito-all:1.10.19")
 }
 
+// FakeUploadcareServer in src/testFixtures/java is published as the test-fixtures variant of the artifact, for users
+// testing and benchmarking their integration offline.
+
+// Microbenchmarks live in src/jmh/java and run with `./gradlew jmh`; they are not part of the published artifact.
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+    sourceCompatibility = "1.8"
+    targetCompatibility = "1.8"
+}
+
+// Java Flight Recorder events need JDK 11 APIs. They live in src/main/java11 and are shipped in META-INF/versions/11
+// of a multi-release jar, replacing the no-op classes of the same name compiled for the Java 7 baseline.
+val java11: SourceSet by sourceSets.creating {
+    java.setSrcDirs(listOf("src/main/java11"))
+    resources.setSrcDirs(emptyList<String>())
+}
+
+tasks.named<JavaCompile>("compileJava11Java") {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(11)) })
+    options.release.set(11)
+}
+
+tasks.jar {
+    into("META-INF/versions/11") {
+        from(java11.output)
+    }
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
+tasks.named<Jar>("sourcesJar") {
+    into("META-INF/versions/11") {
+        from(java11.allSource)
+    }
+}
+
 // Setup global publishing repository settings.
 signing {
     setRequired({ isReleaseVersion })
@@ -8,6 +8,11 @@ pluginManagement {
     }
 }
 
+// Resolves the JDK 11 toolchain used for the multi-release classes when the build runs on JDK 8.
+plugins {
+    id("org.gradle.toolchains.foojay-resolver-convention") version "0.9.0"
+}
+
 enableFeaturePreview("TYPESAFE_PROJECT_ACCESSORS")
 
 dependencyResolutionManagement {
@@ -0,0 +1,69 @@
+package com.uploadcare.api;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates REST API listing pages shaped like real {@code GET /files/} responses for benchmarks.
+ */
+final class ListingPages {
+
+    private static final String[] MIME_TYPES = {"image/jpeg", "image/png", "video/mp4", "application/pdf"};
+
+    private ListingPages() {
+    }
+
+    /**
+     * Builds a files page with the given number of records, every record carrying image or video info and a few
+     * Rekognition labels.
+     */
+    static byte[] filesPage(int size) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size * 1400);
+        sb.append("{\"next\":\"https://api.uploadcare.com/files/?from=2018-10-19T11%3A08%3A36.000000&limit=")
+                .append(size)
+                .append("\",\"previous\":null,\"total\":")
+                .append(size * 10)
+                .append(",\"per_page\":")
+                .append(size)
+                .append(",\"results\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String uuid = new UUID(random.nextLong(), random.nextLong()).toString();
+            String mimeType = MIME_TYPES[random.nextInt(MIME_TYPES.length)];
+            boolean image = mimeType.startsWith("image/");
+            sb.append("{\"uuid\":\"").append(uuid).append('"')
+                    .append(",\"url\":\"https://api.uploadcare.com/files/").append(uuid).append("/\"")
+                    .append(",\"size\":").append(random.nextInt(50000000))
+                    .append(",\"source\":null")
+                    .append(",\"is_ready\":true")
+                    .append(",\"is_image\":").append(image)
+                    .append(",\"mime_type\":\"").append(mimeType).append('"')
+                    .append(",\"original_filename\":\"file-").append(i).append(".bin\"")
+                    .append(",\"original_file_url\":\"https://ucarecdn.com/").append(uuid).append("/file.bin\"")
+                    .append(",\"datetime_uploaded\":\"2018-10-19T11:08:36.").append(100000 + i).append("Z\"")
+                    .append(",\"datetime_stored\":\"2018-10-19T11:08:37.").append(100000 + i).append("Z\"")
+                    .append(",\"datetime_removed\":null");
+            if (image) {
+                sb.append(",\"image_info\":{\"format\":\"JPEG\",\"height\":2048,\"width\":3072,\"orientation\":1")
+                        .append(",\"sequence\":false,\"color_mode\":\"RGB\"")
+                        .append(",\"geo_location\":{\"latitude\":55.62013611111111,\"longitude\":37.66299166666666}")
+                        .append(",\"dpi\":[72,72],\"datetime_original\":\"2018-08-20T08:59:50\"}")
+                        .append(",\"video_info\":null");
+            } else {
+                sb.append(",\"image_info\":null")
+                        .append(",\"video_info\":{\"format\":\"mp4\",\"duration\":261827,\"bitrate\":393")
+                        .append(",\"audio\":{\"bitrate\":78,\"codec\":\"aac\",\"channels\":\"2\",\"sample_rate\":44100}")
+                        .append(",\"video\":{\"bitrate\":315,\"codec\":\"h264\",\"height\":360,\"width\":640")
+                        .append(",\"frame_rate\":30.0}}");
+            }
+            sb.append(",\"rekognition_info\":{\"Art\":0.5,\"Drawing\":0.8,\"Outdoors\":0.67}")
+                    .append(",\"variations\":null}");
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.uploadcare.api;
+
+import com.uploadcare.urls.Urls;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.GeneralSecurityException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Compares the per-request signing path that used to live in {@link RequestHelper} (new key, new {@link Mac},
+ * {@code String.format} and a fresh {@code SimpleDateFormat} for the date header) with {@link RequestSigner}.
+ *
+ * Run with {@code ./gradlew jmh}; the {@code gc} profiler reports {@code gc.alloc.rate.norm} per signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestSigningBenchmark {
+
+    private static final String SECRET_KEY = "demosecretkey";
+
+    private static final String EMPTY_MD5 = "d41d8cd98f00b204e9800998ecf8427e";
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private HttpUriRequest request;
+
+    private RequestSigner signer;
+
+    @Setup
+    public void setUp() {
+        request = new HttpGet(Urls.getFileWithFields("27c7846b-a019-4516-a5e4-de635f822161", "rekognition_info"));
+        signer = new RequestSigner(SECRET_KEY);
+    }
+
+    @Benchmark
+    public String perRequestMac() throws GeneralSecurityException {
+        Calendar calendar = new GregorianCalendar(RequestHelper.GMT);
+        String date = RequestHelper.rfc2822(calendar.getTime());
+
+        StringBuilder sb = new StringBuilder();
+        String uriWithoutBase = request.getURI().getRawPath();
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            uriWithoutBase += String.format("?%s", query);
+        }
+        sb.append(request.getMethod())
+                .append("\n").append(EMPTY_MD5)
+                .append("\n").append(JSON_CONTENT_TYPE)
+                .append("\n").append(date)
+                .append("\n").append(uriWithoutBase);
+
+        SecretKeySpec signingKey = new SecretKeySpec(SECRET_KEY.getBytes(), "HmacSHA1");
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(signingKey);
+        byte[] hmacBytes = mac.doFinal(sb.toString().getBytes());
+        return Hex.encodeHexString(hmacBytes);
+    }
+
+    @Benchmark
+    public String requestSigner() {
+        String date = RequestSigner.currentDate();
+        return signer.sign(request.getMethod(), EMPTY_MD5, JSON_CONTENT_TYPE, date, request.getURI());
+    }
+}
@@ -0,0 +1,58 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.FilePageData;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares buffering a listing page into a String before mapping it with parsing it straight from the entity stream
+ * through a cached {@link ObjectReader}, the way {@link RequestHelper#executeQuery} does it.
+ *
+ * Run with {@code ./gradlew jmh}; the {@code gc} profiler reports {@code gc.alloc.rate.norm} per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private byte[] page;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectReader pageReader;
+
+    @Setup
+    public void setUp() {
+        Client client = new Client("demopublickey", "demosecretkey");
+        objectMapper = client.getObjectMapper();
+        pageReader = client.getObjectReader(FilePageData.class);
+        page = ListingPages.filesPage(pageSize);
+    }
+
+    @Benchmark
+    public FilePageData bufferedString() throws IOException {
+        ByteArrayEntity entity = new ByteArrayEntity(page, ContentType.APPLICATION_JSON);
+        String data = EntityUtils.toString(entity);
+        return objectMapper.readValue(data, FilePageData.class);
+    }
+
+    @Benchmark
+    public FilePageData streamingReader() throws IOException {
+        ByteArrayEntity entity = new ByteArrayEntity(page, ContentType.APPLICATION_JSON);
+        return pageReader.readValue(entity.getContent());
+    }
+}
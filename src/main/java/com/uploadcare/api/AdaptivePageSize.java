@@ -0,0 +1,80 @@
+package com.uploadcare.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive page size of file and group listings.
+ *
+ * After each page the number of results requested for the next one is set so that a page is expected to take about
+ * {@code targetLatency} to fetch and parse, and to hold at most {@code maxPageBytes} of decompressed JSON, judging by
+ * the time and size per result of the page just received. A page size changes by at most a factor of two from one
+ * page to the next, and stays within {@code minLimit} and {@code maxLimit}.
+ *
+ * Fast, small pages thus grow to save round trips, while pages approaching the request timeout shrink. The target
+ * latency should be well below the client's socket timeout.
+ *
+ * @see FilesQueryBuilder#adaptivePageSize(AdaptivePageSize)
+ * @see GroupQueryBuilder#adaptivePageSize(AdaptivePageSize)
+ */
+public class AdaptivePageSize {
+
+    public static final int DEFAULT_MIN_LIMIT = 10;
+
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+
+    public static final long DEFAULT_TARGET_LATENCY = 2000L;
+
+    public static final long DEFAULT_MAX_PAGE_BYTES = 8L * 1024 * 1024;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatencyNanos;
+
+    private final long maxPageBytes;
+
+    public AdaptivePageSize() {
+        this(DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_TARGET_LATENCY, DEFAULT_MAX_PAGE_BYTES);
+    }
+
+    /**
+     * @param minLimit      Smallest page size
+     * @param maxLimit      Largest page size, the API allows up to 1000
+     * @param targetLatency Time a page should take to fetch and parse, in milliseconds
+     * @param maxPageBytes  Largest decompressed size of a page, in bytes
+     */
+    public AdaptivePageSize(int minLimit, int maxLimit, long targetLatency, long maxPageBytes) {
+        if (minLimit < 1 || maxLimit < minLimit || targetLatency <= 0 || maxPageBytes <= 0) {
+            throw new IllegalArgumentException("Invalid page size bounds or targets");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+        this.maxPageBytes = maxPageBytes;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Returns the page size to request next.
+     *
+     * @param limit   Page size requested for the page just received
+     * @param results Number of results of that page, positive
+     * @param nanos   Time it took to fetch and parse that page
+     * @param bytes   Decompressed size of that page
+     */
+    int nextLimit(int limit, int results, long nanos, long bytes) {
+        double byLatency = (double) targetLatencyNanos * results / Math.max(1, nanos);
+        double bySize = (double) maxPageBytes * results / Math.max(1, bytes);
+        double next = Math.min(byLatency, bySize);
+        next = Math.max(limit / 2.0, Math.min(limit * 2.0, next));
+        return (int) Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
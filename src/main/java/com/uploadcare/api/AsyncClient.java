@@ -0,0 +1,759 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.*;
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareNetworkException;
+import com.uploadcare.exceptions.UploadcareThrottledException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+import org.apache.http.util.TextUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking Uploadcare API client.
+ *
+ * Mirrors the {@link Client} API, but every call returns immediately with a {@link Future} instead of blocking the
+ * calling thread until the response arrives. Requests are executed by an Apache {@code HttpAsyncClient}, so a
+ * handful of I/O dispatcher threads can drive thousands of concurrent requests.
+ *
+ * Requests are signed and responses are parsed by the {@link Client} this instance is created for. The optional
+ * {@link FutureCallback} passed to each method is invoked on an I/O dispatcher thread, so it must not block.
+ *
+ * Requests share the client's {@link RateLimiter}: each call acquires a permit before the request is sent, blocking
+ * the caller if needed, and throttled responses are reported to the limiter. Unlike {@link Client}, a throttled or
+ * failed request is not retried, and the client's {@link RetryPolicy} and {@link CircuitBreakerRegistry} are not
+ * applied. Timeouts and, for the default HttpAsyncClient, pool sizes are taken from the client's
+ * {@link ClientBuilder} settings; per-host connection limits are not.
+ *
+ * @see Client
+ */
+public class AsyncClient {
+
+    private final Client client;
+    private final CloseableHttpAsyncClient httpClient;
+
+    /**
+     * Initializes an asynchronous client sharing keys, signing and JSON mapping with the given client.
+     *
+     * @param client Uploadcare client
+     */
+    public AsyncClient(Client client) {
+        this(client, null);
+    }
+
+    /**
+     * Initializes an asynchronous client sharing keys, signing and JSON mapping with the given client.
+     *
+     * @param client     Uploadcare client
+     * @param httpClient Custom HttpAsyncClient, if {@code null} a default one is created. It is started if it is not
+     *                   running yet.
+     */
+    public AsyncClient(Client client, CloseableHttpAsyncClient httpClient) {
+        if (client.getObjectMapper() == null) {
+            throw new IllegalArgumentException("AsyncClient requires a Client using the default RequestHelperProvider");
+        }
+
+        this.client = client;
+
+        if (httpClient != null) {
+            this.httpClient = httpClient;
+        } else {
+            // Timeouts are set per request from the client's configuration, see execute().
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(ClientBuilder.DEFAULT_TIMEOUT)
+                    .setConnectionRequestTimeout(ClientBuilder.DEFAULT_TIMEOUT)
+                    .setSocketTimeout(ClientBuilder.DEFAULT_TIMEOUT)
+                    .build();
+
+            this.httpClient = HttpAsyncClients.custom()
+                    .setMaxConnTotal(client.getMaxConnections())
+                    .setMaxConnPerRoute(client.getMaxConnectionsPerHost())
+                    .setDefaultRequestConfig(requestConfig)
+                    .build();
+        }
+
+        if (!this.httpClient.isRunning()) {
+            this.httpClient.start();
+        }
+    }
+
+    /**
+     * Returns the blocking client used for signing requests and parsing responses.
+     *
+     * @return Uploadcare client
+     */
+    public Client getClient() {
+        return client;
+    }
+
+    /**
+     * Requests project info from the API.
+     *
+     * @return Future Project resource
+     */
+    public Future<Project> getProject() {
+        return getProject(null);
+    }
+
+    /**
+     * Requests project info from the API.
+     *
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future Project resource
+     */
+    public Future<Project> getProject(FutureCallback<Project> callback) {
+        URI url = client.getEndpoints().apiProject();
+        return executeQuery(new HttpGet(url), true, null, ProjectData.class, new DataWrapper<Project, ProjectData>() {
+            public Project wrap(ProjectData data) {
+                return new Project(client, data);
+            }
+        }, callback);
+    }
+
+    /**
+     * Requests group info from the API.
+     *
+     * @param groupId Resource UUID
+     * @return Future Group resource
+     */
+    public Future<Group> getGroup(String groupId) {
+        return getGroup(groupId, null);
+    }
+
+    /**
+     * Requests group info from the API.
+     *
+     * @param groupId  Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future Group resource
+     */
+    public Future<Group> getGroup(String groupId, FutureCallback<Group> callback) {
+        URI url = client.getEndpoints().apiGroup(groupId);
+        return executeQuery(new HttpGet(url), true, null, GroupData.class, new GroupDataWrapper(client), callback);
+    }
+
+    /**
+     * Request group info. Does not require "secretKey" set for UploadcareClient.
+     *
+     * @param groupId Resource UUID
+     * @return Future Group resource
+     */
+    public Future<Group> getUploadedGroup(String groupId) {
+        return getUploadedGroup(groupId, null);
+    }
+
+    /**
+     * Request group info. Does not require "secretKey" set for UploadcareClient.
+     *
+     * @param groupId  Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future Group resource
+     */
+    public Future<Group> getUploadedGroup(String groupId, FutureCallback<Group> callback) {
+        URI url = client.getEndpoints().apiUploadedGroup(client.getPublicKey(), groupId);
+        return executeQuery(new HttpGet(url), false, null, GroupData.class, new GroupDataWrapper(client), callback);
+    }
+
+    /**
+     * Request file data for uploaded file. Does not require "secretKey" set for UploadcareClient.
+     *
+     * @param fileId Resource UUID
+     * @return Future File resource
+     */
+    public Future<File> getUploadedFile(String fileId) {
+        return getUploadedFile(fileId, null);
+    }
+
+    /**
+     * Request file data for uploaded file. Does not require "secretKey" set for UploadcareClient.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future File resource
+     */
+    public Future<File> getUploadedFile(String fileId, FutureCallback<File> callback) {
+        URI url = client.getEndpoints().apiUploadedFile(client.getPublicKey(), fileId);
+        return executeQuery(new HttpGet(url), false, null, FileData.class, new FileDataWrapper(client), callback);
+    }
+
+    /**
+     * Requests file data.
+     *
+     * @param fileId Resource UUID
+     * @return Future File resource
+     */
+    public Future<File> getFile(String fileId) {
+        return getFile(fileId, null);
+    }
+
+    /**
+     * Requests file data.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future File resource
+     */
+    public Future<File> getFile(String fileId, FutureCallback<File> callback) {
+        URI url = client.getEndpoints().apiFile(fileId);
+        return executeQuery(new HttpGet(url), true, null, FileData.class, new FileDataWrapper(client), callback);
+    }
+
+    /**
+     * Requests file data, with Rekognition Info if available.
+     *
+     * @param fileId Resource UUID
+     * @return Future File resource
+     */
+    public Future<File> getFileWithRekognitionInfo(String fileId) {
+        return getFileWithRekognitionInfo(fileId, null);
+    }
+
+    /**
+     * Requests file data, with Rekognition Info if available.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future File resource
+     */
+    public Future<File> getFileWithRekognitionInfo(String fileId, FutureCallback<File> callback) {
+        URI url = client.getEndpoints().getFileWithFields(fileId, "rekognition_info");
+        return executeQuery(new HttpGet(url), true, null, FileData.class, new FileDataWrapper(client), callback);
+    }
+
+    /**
+     * Requests Webhooks data.
+     *
+     * @return Future list of Webhooks resources.
+     */
+    public Future<List<Webhook>> getWebhooks() {
+        return getWebhooks(null);
+    }
+
+    /**
+     * Requests Webhooks data.
+     *
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future list of Webhooks resources.
+     */
+    public Future<List<Webhook>> getWebhooks(FutureCallback<List<Webhook>> callback) {
+        URI url = client.getEndpoints().apiWebhooks();
+        final WebhookDataWrapper dataWrapper = new WebhookDataWrapper(client);
+        ObjectReader reader = client.getObjectReader(new TypeReference<ArrayList<WebhookData>>() {
+        });
+        return executeQuery(new HttpGet(url), true, null, reader,
+                new DataWrapper<List<Webhook>, ArrayList<WebhookData>>() {
+                    public List<Webhook> wrap(ArrayList<WebhookData> data) {
+                        List<Webhook> result = new ArrayList<Webhook>();
+                        for (WebhookData webhookData : data) {
+                            result.add(dataWrapper.wrap(webhookData));
+                        }
+                        return result;
+                    }
+                }, callback);
+    }
+
+    /**
+     * Marks a file as deleted.
+     *
+     * @param fileId Resource UUID
+     * @return Future completed once the file is deleted
+     */
+    public Future<Void> deleteFile(String fileId) {
+        return deleteFile(fileId, null);
+    }
+
+    /**
+     * Marks a file as deleted.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future completed once the file is deleted
+     */
+    public Future<Void> deleteFile(String fileId, FutureCallback<Void> callback) {
+        URI url = client.getEndpoints().apiFile(fileId);
+        return executeCommand(new HttpDelete(url), true, null, invalidateFiles(Collections.singletonList(fileId)),
+                callback);
+    }
+
+    /**
+     * Marks files as deleted. Lists longer than 100 file ids are split into several concurrent batch requests.
+     *
+     * @param fileIds Resource UUIDs
+     * @return Future completed once all files are deleted
+     */
+    public Future<Void> deleteFiles(List<String> fileIds) {
+        return deleteFiles(fileIds, null);
+    }
+
+    /**
+     * Marks files as deleted. Lists longer than 100 file ids are split into several concurrent batch requests.
+     *
+     * @param fileIds  Resource UUIDs
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future completed once all files are deleted
+     */
+    public Future<Void> deleteFiles(List<String> fileIds, FutureCallback<Void> callback) {
+        return executeSaveDeleteBatchCommand(false, fileIds, callback);
+    }
+
+    /**
+     * Marks a file as saved.
+     *
+     * @param fileId Resource UUID
+     * @return Future completed once the file is saved
+     */
+    public Future<Void> saveFile(String fileId) {
+        return saveFile(fileId, null);
+    }
+
+    /**
+     * Marks a file as saved.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future completed once the file is saved
+     */
+    public Future<Void> saveFile(String fileId, FutureCallback<Void> callback) {
+        URI url = client.getEndpoints().apiFileStorage(fileId);
+        return executeCommand(new HttpPut(url), true, null, invalidateFiles(Collections.singletonList(fileId)),
+                callback);
+    }
+
+    /**
+     * Mark all files in a group as stored.
+     *
+     * @param groupId Group Resource Id
+     * @return Future completed once the group is saved
+     */
+    public Future<Void> saveGroup(String groupId) {
+        return saveGroup(groupId, null);
+    }
+
+    /**
+     * Mark all files in a group as stored.
+     *
+     * @param groupId  Group Resource Id
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future completed once the group is saved
+     */
+    public Future<Void> saveGroup(String groupId, FutureCallback<Void> callback) {
+        URI url = client.getEndpoints().apiGroupStorage(groupId);
+        return executeCommand(new HttpPut(url), true, null, invalidateGroup(groupId), callback);
+    }
+
+    /**
+     * Marks multiple files as saved. Lists longer than 100 file ids are split into several concurrent batch requests.
+     *
+     * @param fileIds Resource UUIDs
+     * @return Future completed once all files are saved
+     */
+    public Future<Void> saveFiles(List<String> fileIds) {
+        return saveFiles(fileIds, null);
+    }
+
+    /**
+     * Marks multiple files as saved. Lists longer than 100 file ids are split into several concurrent batch requests.
+     *
+     * @param fileIds  Resource UUIDs
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future completed once all files are saved
+     */
+    public Future<Void> saveFiles(List<String> fileIds, FutureCallback<Void> callback) {
+        return executeSaveDeleteBatchCommand(true, fileIds, callback);
+    }
+
+    /**
+     * Create files group from a set of files by using their UUIDs.
+     *
+     * @param fileIds That parameter defines a set of files you want to join in a group.
+     * @return Future new created Group resource instance.
+     */
+    public Future<Group> createGroup(List<String> fileIds) {
+        return createGroupSigned(fileIds, null, null, null, null);
+    }
+
+    /**
+     * Create files group from a set of files by using their UUIDs.
+     *
+     * @param fileIds  That parameter defines a set of files you want to join in a group.
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future new created Group resource instance.
+     */
+    public Future<Group> createGroup(List<String> fileIds, FutureCallback<Group> callback) {
+        return createGroupSigned(fileIds, null, null, null, callback);
+    }
+
+    /**
+     * Create files group from a set of files by using their UUIDs. Using Signed Uploads.
+     *
+     * @param fileIds       That parameter defines a set of files you want to join in a group.
+     * @param jsonpCallback Sets the name of your JSONP callback function.
+     * @param signature     is a string sent along with your upload request. It requires your Uploadcare
+     *                      project secret key and hence should be crafted on your back end.
+     * @param expire        sets the time until your signature is valid. It is a Unix time.(ex 1454902434)
+     * @param callback      Callback notified on completion, may be {@code null}
+     * @return Future new created Group resource instance.
+     */
+    public Future<Group> createGroupSigned(
+            List<String> fileIds,
+            String jsonpCallback,
+            String signature,
+            String expire,
+            FutureCallback<Group> callback) {
+        MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+        entityBuilder.addTextBody("pub_key", client.getPublicKey());
+
+        if (jsonpCallback != null) {
+            entityBuilder.addTextBody("callback", jsonpCallback);
+        }
+
+        if (!TextUtils.isEmpty(signature) && !TextUtils.isEmpty(expire)) {
+            entityBuilder.addTextBody("signature", signature);
+            entityBuilder.addTextBody("expire", expire);
+        }
+
+        for (int i = 0; i < fileIds.size(); i++) {
+            entityBuilder.addTextBody("files[" + i + "]", fileIds.get(i));
+        }
+
+        HttpPost createRequest = new HttpPost(client.getEndpoints().apiCreateGroup());
+        createRequest.setEntity(entityBuilder.build());
+        return executeQuery(createRequest, false, null, GroupData.class, new GroupDataWrapper(client), callback);
+    }
+
+    /**
+     * Copy file to local storage.
+     *
+     * @param source File Resource UUID or A CDN URL.
+     * @param store  The parameter only applies to the Uploadcare storage and MUST be either true or false.
+     * @return Future object containing the results of the copy request
+     * @see Client#copyFileLocalStorage(String, Boolean)
+     */
+    public Future<CopyFile> copyFileLocalStorage(String source, Boolean store) {
+        return copyFileLocalStorage(source, store, null);
+    }
+
+    /**
+     * Copy file to local storage.
+     *
+     * @param source   File Resource UUID or A CDN URL.
+     * @param store    The parameter only applies to the Uploadcare storage and MUST be either true or false.
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future object containing the results of the copy request
+     * @see Client#copyFileLocalStorage(String, Boolean)
+     */
+    public Future<CopyFile> copyFileLocalStorage(String source, Boolean store, FutureCallback<CopyFile> callback) {
+        CopyOptionsData copyOptionsData = new CopyOptionsData();
+        copyOptionsData.source = source;
+        copyOptionsData.store = store;
+        return executeCopy(new HttpPost(client.getEndpoints().apiFileLocalCopy()), copyOptionsData, callback);
+    }
+
+    /**
+     * Copy file to remote storage.
+     *
+     * @param source     File Resource UUID or A CDN URL.
+     * @param target     Identifies a custom storage name related to your project.
+     * @param makePublic MUST be either true or false. true to make copied files available via public links, false to
+     *                   reverse the behavior.
+     * @param pattern    The parameter is used to specify file names Uploadcare passes to a custom storage.
+     * @return Future object containing the results of the copy request
+     * @see Client#copyFileRemoteStorage(String, String, Boolean, String)
+     */
+    public Future<CopyFile> copyFileRemoteStorage(String source, String target, Boolean makePublic, String pattern) {
+        return copyFileRemoteStorage(source, target, makePublic, pattern, null);
+    }
+
+    /**
+     * Copy file to remote storage.
+     *
+     * @param source     File Resource UUID or A CDN URL.
+     * @param target     Identifies a custom storage name related to your project.
+     * @param makePublic MUST be either true or false. true to make copied files available via public links, false to
+     *                   reverse the behavior.
+     * @param pattern    The parameter is used to specify file names Uploadcare passes to a custom storage.
+     * @param callback   Callback notified on completion, may be {@code null}
+     * @return Future object containing the results of the copy request
+     * @see Client#copyFileRemoteStorage(String, String, Boolean, String)
+     */
+    public Future<CopyFile> copyFileRemoteStorage(
+            String source,
+            String target,
+            Boolean makePublic,
+            String pattern,
+            FutureCallback<CopyFile> callback) {
+        CopyOptionsData copyOptionsData = new CopyOptionsData();
+        copyOptionsData.source = source;
+        copyOptionsData.target = target;
+        copyOptionsData.makePublic = makePublic;
+        copyOptionsData.pattern = pattern;
+        return executeCopy(new HttpPost(client.getEndpoints().apiFileRemoteCopy()), copyOptionsData, callback);
+    }
+
+    /**
+     * Closes client.
+     *
+     * Shuts down the I/O reactor and releases all connections. The wrapped {@link Client} is not closed.
+     */
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            throw new UploadcareApiException("Error during closing CloseableHttpAsyncClient", e);
+        }
+    }
+
+    private Future<CopyFile> executeCopy(
+            HttpPost request,
+            CopyOptionsData copyOptionsData,
+            FutureCallback<CopyFile> callback) {
+        String requestBodyContent = client.trySerializeRequestBodyContent(copyOptionsData);
+        request.setEntity(new StringEntity(requestBodyContent, ContentType.APPLICATION_JSON));
+
+        return executeQuery(request, true, DigestUtils.md5Hex(requestBodyContent), CopyFileData.class,
+                new DataWrapper<CopyFile, CopyFileData>() {
+                    public CopyFile wrap(CopyFileData data) {
+                        return new CopyFile(client, data);
+                    }
+                }, callback);
+    }
+
+    private Future<Void> executeSaveDeleteBatchCommand(
+            boolean save,
+            List<String> fileIds,
+            FutureCallback<Void> callback) {
+        URI url = client.getEndpoints().apiFilesBatch();
+        int batchSize = Client.MAX_SAVE_DELETE_BATCH_SIZE;
+        int batches = Math.max(1, (fileIds.size() + batchSize - 1) / batchSize);
+
+        final BasicFuture<Void> future = new BasicFuture<Void>(callback);
+        final AtomicInteger remaining = new AtomicInteger(batches);
+        FutureCallback<Void> batchCallback = new FutureCallback<Void>() {
+            public void completed(Void result) {
+                if (remaining.decrementAndGet() == 0) {
+                    future.completed(null);
+                }
+            }
+
+            public void failed(Exception ex) {
+                future.failed(ex);
+            }
+
+            public void cancelled() {
+                future.cancel();
+            }
+        };
+
+        for (int offset = 0; offset < fileIds.size() || offset == 0; offset += batchSize) {
+            int endIndex = Math.min(offset + batchSize, fileIds.size());
+
+            HttpEntityEnclosingRequestBase request;
+            if (save) {
+                request = new HttpPut(url);
+            } else {
+                request = new HttpDeleteWithBody(url);
+            }
+
+            List<String> ids = fileIds.subList(offset, endIndex);
+            String requestBodyContent = client.trySerializeRequestBodyContent(ids);
+            request.setEntity(new StringEntity(requestBodyContent, ContentType.APPLICATION_JSON));
+            executeCommand(request, true, DigestUtils.md5Hex(requestBodyContent), invalidateFiles(ids),
+                    batchCallback);
+        }
+
+        return future;
+    }
+
+    private <T, U> Future<T> executeQuery(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            String requestBodyMD5,
+            Class<U> dataClass,
+            DataWrapper<T, U> dataWrapper,
+            FutureCallback<T> callback) {
+        ObjectReader reader = client.getObjectReader(dataClass);
+        return executeQuery(request, apiHeaders, requestBodyMD5, reader, dataWrapper, callback);
+    }
+
+    private <T, U> Future<T> executeQuery(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            String requestBodyMD5,
+            final ObjectReader reader,
+            final DataWrapper<T, U> dataWrapper,
+            FutureCallback<T> callback) {
+        return execute(request, apiHeaders, requestBodyMD5, new ResponseHandler<T>() {
+            public T handle(HttpResponse response) throws IOException {
+                U data = reader.readValue(response.getEntity().getContent());
+                return dataWrapper.wrap(data);
+            }
+        }, null, callback);
+    }
+
+    /**
+     * @param invalidation Run once the response or failure arrives, before the future completes, or {@code null}
+     */
+    private Future<Void> executeCommand(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            String requestBodyMD5,
+            Runnable invalidation,
+            FutureCallback<Void> callback) {
+        return execute(request, apiHeaders, requestBodyMD5, new ResponseHandler<Void>() {
+            public Void handle(HttpResponse response) {
+                return null;
+            }
+        }, invalidation, callback);
+    }
+
+    /**
+     * Returns the removal of the files from the client's metadata cache, as done by the blocking write methods.
+     */
+    private Runnable invalidateFiles(final List<String> fileIds) {
+        return new Runnable() {
+            public void run() {
+                client.invalidateFiles(fileIds);
+            }
+        };
+    }
+
+    private Runnable invalidateGroup(final String groupId) {
+        return new Runnable() {
+            public void run() {
+                client.invalidateGroup(groupId);
+            }
+        };
+    }
+
+    private <T> Future<T> execute(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            String requestBodyMD5,
+            final ResponseHandler<T> handler,
+            final Runnable invalidation,
+            FutureCallback<T> callback) {
+        final ResponseFuture<T> future = new ResponseFuture<T>(callback);
+        final RequestTrace trace = new RequestTrace(request);
+        if (request instanceof HttpRequestBase && ((HttpRequestBase) request).getConfig() == null) {
+            ((HttpRequestBase) request).setConfig(client.getRequestConfig(request.getURI()));
+        }
+        final RateLimiter rateLimiter = client.getRateLimiter();
+        try {
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+            if (apiHeaders) {
+                client.getRequestHelper().setApiHeaders(request, requestBodyMD5);
+            }
+        } catch (RuntimeException e) {
+            future.failed(e);
+            return future;
+        }
+
+        future.setRequest(httpClient.execute(request, new FutureCallback<HttpResponse>() {
+            public void completed(HttpResponse response) {
+                invalidate();
+                trace.statusCode = response.getStatusLine().getStatusCode();
+                if (response.getEntity() != null) {
+                    trace.decode(response);
+                }
+                try {
+                    RequestHelper.checkResponseStatus(response);
+                    future.completed(handler.handle(response));
+                } catch (UploadcareThrottledException e) {
+                    if (rateLimiter != null) {
+                        rateLimiter.throttled(e.getRetryAfter());
+                    }
+                    future.failed(e);
+                } catch (IOException e) {
+                    future.failed(new UploadcareNetworkException(e));
+                } catch (RuntimeException e) {
+                    future.failed(e);
+                } finally {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    trace.finish(client.getMetrics());
+                }
+            }
+
+            public void failed(Exception ex) {
+                invalidate();
+                trace.finish(client.getMetrics());
+                future.failed(new UploadcareNetworkException(ex));
+            }
+
+            public void cancelled() {
+                invalidate();
+                trace.finish(client.getMetrics());
+                future.cancel();
+            }
+
+            private void invalidate() {
+                // The write may have been applied even if it failed, as in the blocking client.
+                if (invalidation != null) {
+                    invalidation.run();
+                }
+            }
+        }));
+        return future;
+    }
+
+    private interface ResponseHandler<T> {
+
+        T handle(HttpResponse response) throws IOException;
+
+    }
+
+    /**
+     * Result future that also aborts the underlying HTTP exchange when cancelled.
+     */
+    private static class ResponseFuture<T> extends BasicFuture<T> {
+
+        private volatile Future<HttpResponse> request;
+
+        ResponseFuture(FutureCallback<T> callback) {
+            super(callback);
+        }
+
+        /**
+         * Sets the exchange to abort on cancellation, aborting it right away if the future was cancelled while the
+         * exchange was being started.
+         */
+        void setRequest(Future<HttpResponse> request) {
+            this.request = request;
+            if (isCancelled()) {
+                request.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // Cancelled before the request is read, so that setRequest sees one or the other.
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<HttpResponse> request = this.request;
+            if (request != null) {
+                request.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
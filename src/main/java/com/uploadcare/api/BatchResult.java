@@ -0,0 +1,65 @@
+package com.uploadcare.api;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of storing or deleting files in batches, per file UUID.
+ *
+ * Every UUID of the command ends up in exactly one of three maps: the files the API processed, the problems it
+ * reported for single files, such as a UUID missing in the project, and the UUIDs whose batch request failed as a
+ * whole even after retrying.
+ *
+ * @see FilesBatchCommand
+ */
+public class BatchResult {
+
+    private final Map<String, File> files;
+
+    private final Map<String, String> problems;
+
+    private final Map<String, RuntimeException> failures;
+
+    BatchResult(Map<String, File> files, Map<String, String> problems, Map<String, RuntimeException> failures) {
+        this.files = Collections.unmodifiableMap(files);
+        this.problems = Collections.unmodifiableMap(problems);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return Files stored or deleted, by UUID
+     */
+    public Map<String, File> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return Problems reported by the API, as problem descriptions by UUID
+     */
+    public Map<String, String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * @return Failures of the requests that carried the UUIDs, by UUID
+     */
+    public Map<String, RuntimeException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return {@code true} if every file was stored or deleted
+     */
+    public boolean isSuccessful() {
+        return problems.isEmpty() && failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "files=" + files.size() +
+                ", problems=" + problems +
+                ", failures=" + failures.keySet() +
+                '}';
+    }
+}
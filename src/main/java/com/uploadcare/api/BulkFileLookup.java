@@ -0,0 +1,242 @@
+package com.uploadcare.api;
+
+import com.uploadcare.data.FileData;
+
+import org.apache.http.client.methods.HttpGet;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Requests the metadata of many files by UUID, sending up to {@code parallelism} requests at the same time.
+ *
+ * A lookup that fails, for example because the file does not exist, is reported for its UUID and does not stop the
+ * others. Duplicate UUIDs are requested once. UUIDs left over because the executor rejected the work, for example as
+ * the client is closed, are reported as failed with the rejection.
+ *
+ * <pre>
+ * Map&lt;String, File&gt; files = client.getFiles(uuids)
+ *         .parallelism(16)
+ *         .addFields("rekognition_info")
+ *         .execute()
+ *         .getFiles();
+ * </pre>
+ *
+ * Work runs on the client's executor, see {@link ClientBuilder#executor(java.util.concurrent.ExecutorService)}.
+ * Requests share the client's connection pool, so a parallelism above
+ * {@link ClientBuilder#maxConnectionsPerHost(int)} only makes requests wait for a connection.
+ *
+ * @see Client#getFiles(Collection)
+ */
+public class BulkFileLookup {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private final Client client;
+
+    private final List<String> fileIds;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private String addFields;
+
+    BulkFileLookup(Client client, Collection<String> fileIds) {
+        this.client = client;
+        this.fileIds = new ArrayList<String>(new LinkedHashSet<String>(fileIds));
+    }
+
+    /**
+     * Called as each lookup completes, concurrently from different threads.
+     */
+    public interface Callback {
+
+        /**
+         * @param fileId Requested UUID
+         * @param file   File resource
+         */
+        void onFile(String fileId, File file);
+
+        /**
+         * @param fileId  Requested UUID
+         * @param failure Failure of the lookup, such as
+         *                {@link com.uploadcare.exceptions.UploadcareNotFoundException}
+         */
+        void onFailure(String fileId, RuntimeException failure);
+    }
+
+    /**
+     * Outcome of a lookup, keyed by UUID in the order the UUIDs were given.
+     */
+    public static class Result {
+
+        private final Map<String, File> files;
+
+        private final Map<String, RuntimeException> failures;
+
+        Result(Map<String, File> files, Map<String, RuntimeException> failures) {
+            this.files = Collections.unmodifiableMap(files);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return Files found, by UUID
+         */
+        public Map<String, File> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return Failures of the other lookups, by UUID
+         */
+        public Map<String, RuntimeException> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * @param parallelism Maximum number of requests sent at the same time
+     */
+    public BulkFileLookup parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Requests special fields in addition to the file metadata. Lookups with added fields bypass the client's
+     * metadata cache.
+     *
+     * @param fields Comma-separated field names, such as {@code rekognition_info}, or {@code null} for none
+     */
+    public BulkFileLookup addFields(String fields) {
+        this.addFields = fields;
+        return this;
+    }
+
+    /**
+     * Looks up all files, passing each result to the callback as soon as it arrives, and returns when all lookups
+     * are complete.
+     *
+     * @throws RuntimeException the first exception thrown by the callback, which stops the lookup
+     */
+    public void forEach(Callback callback) {
+        Lookup lookup = new Lookup(callback);
+        lookup.start();
+        lookup.await();
+    }
+
+    /**
+     * Looks up all files and returns when all lookups are complete.
+     */
+    public Result execute() {
+        final Map<String, File> files = new ConcurrentHashMap<String, File>();
+        final Map<String, RuntimeException> failures = new ConcurrentHashMap<String, RuntimeException>();
+        forEach(new Callback() {
+            public void onFile(String fileId, File file) {
+                files.put(fileId, file);
+            }
+
+            public void onFailure(String fileId, RuntimeException failure) {
+                failures.put(fileId, failure);
+            }
+        });
+        Map<String, File> orderedFiles = new LinkedHashMap<String, File>();
+        Map<String, RuntimeException> orderedFailures = new LinkedHashMap<String, RuntimeException>();
+        for (String fileId : fileIds) {
+            File file = files.get(fileId);
+            if (file != null) {
+                orderedFiles.put(fileId, file);
+            } else if (failures.containsKey(fileId)) {
+                orderedFailures.put(fileId, failures.get(fileId));
+            }
+        }
+        return new Result(orderedFiles, orderedFailures);
+    }
+
+    private File lookup(RequestHelper requestHelper, String fileId) {
+        if (addFields == null) {
+            return client.getFile(fileId);
+        }
+        URI url = client.getEndpoints().getFileWithFields(fileId, addFields);
+        FileData fileData = requestHelper.executeQuery(new HttpGet(url), true, FileData.class);
+        return new File(client, fileData);
+    }
+
+    /**
+     * State of one run, shared by its workers, which take the next UUID until none are left.
+     */
+    private final class Lookup extends WorkerGroup {
+
+        private final Callback callback;
+
+        private final AtomicInteger nextIndex = new AtomicInteger();
+
+        // Guarded by this.
+        private RuntimeException rejection;
+
+        Lookup(Callback callback) {
+            super(client, "lookup");
+            this.callback = callback;
+        }
+
+        void start() {
+            start(Math.min(parallelism, fileIds.size()));
+        }
+
+        void work() {
+            RequestHelper requestHelper = client.getRequestHelper();
+            int index;
+            while (!isStopped() && (index = nextIndex.getAndIncrement()) < fileIds.size()) {
+                String fileId = fileIds.get(index);
+                File file;
+                try {
+                    file = lookup(requestHelper, fileId);
+                } catch (RuntimeException e) {
+                    callback.onFailure(fileId, e);
+                    continue;
+                }
+                callback.onFile(fileId, file);
+            }
+        }
+
+        /**
+         * Leaves the UUIDs to the workers already running, if any.
+         */
+        @Override
+        synchronized void rejected(RuntimeException e) {
+            if (rejection == null) {
+                rejection = e;
+            }
+        }
+
+        @Override
+        void finished(RuntimeException failure) {
+            RuntimeException e;
+            synchronized (this) {
+                e = rejection;
+            }
+            if (failure != null || e == null) {
+                return;
+            }
+            // No worker is left to look up the remaining UUIDs.
+            try {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < fileIds.size()) {
+                    callback.onFailure(fileIds.get(index), e);
+                }
+            } catch (RuntimeException callbackFailure) {
+                fail(callbackFailure);
+            }
+        }
+    }
+}
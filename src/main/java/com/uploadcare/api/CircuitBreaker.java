@@ -0,0 +1,90 @@
+package com.uploadcare.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker guarding requests to a single host.
+ *
+ * After {@code failureThreshold} consecutive failures the breaker opens and requests are rejected without being sent.
+ * Once {@code openDuration} passes a single probe request is let through: the breaker closes if it succeeds and opens
+ * again if it fails.
+ *
+ * @see CircuitBreakerRegistry
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+
+    private int failures;
+
+    private long openedAt;
+
+    private boolean probing;
+
+    /**
+     * @param failureThreshold Number of consecutive failures that opens the breaker
+     * @param openDuration     Time the breaker stays open before a probe is allowed, in milliseconds
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDuration);
+    }
+
+    /**
+     * Returns whether a request may be sent now. A {@code true} result must be followed by
+     * {@link #recordSuccess()}, {@link #recordFailure()} or, if no response was received, {@link #release()}.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        probing = false;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Gives back the permission of a request abandoned without an outcome, so that another probe may be sent.
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,52 @@
+package com.uploadcare.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link CircuitBreaker} per host, so an unavailable upload host does not stop REST API calls and vice
+ * versa.
+ */
+public class CircuitBreakerRegistry {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    public static final long DEFAULT_OPEN_DURATION = 30000L;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+    public CircuitBreakerRegistry() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * @param failureThreshold Number of consecutive failures that opens a host's breaker
+     * @param openDuration     Time a breaker stays open before a probe is allowed, in milliseconds
+     */
+    public CircuitBreakerRegistry(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns the breaker for the given host, creating it on first use.
+     *
+     * @param host Host name
+     * @return Circuit breaker
+     */
+    public CircuitBreaker forHost(String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(failureThreshold, openDuration);
+            CircuitBreaker existing = breakers.putIfAbsent(host, breaker);
+            if (existing != null) {
+                breaker = existing;
+            }
+        }
+        return breaker;
+    }
+}
@@ -3,27 +3,42 @@ package com.uploadcare.api;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.uploadcare.cache.MetadataCache;
 import com.uploadcare.data.*;
 import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareThrottledException;
+import com.uploadcare.metrics.ClientMetrics;
 import com.uploadcare.urls.*;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.TextUtils;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Uploadcare API client.
@@ -38,12 +53,44 @@ public class Client {
     private final String publicKey;
     private final String secretKey;
     private final boolean simpleAuth;
+    private final boolean compression;
 
     private final CloseableHttpClient httpClient;
+    private final PoolingHttpClientConnectionManager connectionManager;
     private final ObjectMapper objectMapper;
     private final RequestHelperProvider requestHelperProvider;
+    private final RequestSigner requestSigner;
+    private final String userAgent;
+    private final Endpoints endpoints;
+    private final String apiAuthority;
+    private final String uploadAuthority;
+    private final RequestConfig restConfig;
+    private final RequestConfig uploadConfig;
+    private final RequestConfig partConfig;
+    private final ExecutorService customExecutor;
+    private ExecutorService executor;
+    private boolean closed;
+    private final ConcurrentMap<JavaType, ObjectReader> objectReaders = new ConcurrentHashMap<JavaType, ObjectReader>();
+
+    static final int MAX_SAVE_DELETE_BATCH_SIZE = 100;
+
+    private static final String CACHE_FILE = "file";
+    private static final String CACHE_UPLOADED_FILE = "uploaded_file";
+    private static final String CACHE_GROUP = "group";
 
-    private final int MAX_SAVE_DELETE_BATCH_SIZE = 100;
+    /**
+     * Default number of times a throttled request is retried before {@link UploadcareThrottledException} is thrown.
+     */
+    public static final int DEFAULT_MAX_THROTTLED_RETRIES = 3;
+
+    private volatile RateLimiter rateLimiter;
+    private volatile int maxThrottledRetries = DEFAULT_MAX_THROTTLED_RETRIES;
+    private volatile RetryPolicy retryPolicy;
+    private volatile CircuitBreakerRegistry circuitBreakers;
+    private volatile ClientMetrics metrics;
+    private volatile ValidatorCache validatorCache;
+    private volatile MetadataCache metadataCache;
+    private volatile RequestCoalescer requestCoalescer;
 
     /**
      * Initializes a client with custom access keys and simple authentication.
@@ -103,36 +150,54 @@ public class Client {
             boolean simpleAuth,
             RequestHelperProvider requestHelperProvider,
             CloseableHttpClient httpClient) {
-        this.publicKey = publicKey;
-        this.secretKey = secretKey;
-        this.simpleAuth = simpleAuth;
+        this(new ClientBuilder(publicKey, secretKey).simpleAuth(simpleAuth), requestHelperProvider, httpClient);
+    }
+
+    Client(ClientBuilder builder, RequestHelperProvider requestHelperProvider, CloseableHttpClient httpClient) {
+        this.publicKey = builder.publicKey;
+        this.secretKey = builder.secretKey;
+        this.simpleAuth = builder.simpleAuth;
+        this.endpoints = builder.endpoints;
+        this.apiAuthority = URI.create(endpoints.getApiBase()).getRawAuthority();
+        this.uploadAuthority = URI.create(endpoints.getUploadBase()).getRawAuthority();
+        this.requestSigner = new RequestSigner(secretKey);
+        this.userAgent = String.format("javauploadcare/%s/%s", RequestHelper.LIBRARY_VERSION, publicKey);
+        this.rateLimiter = builder.rateLimiter;
+        this.maxThrottledRetries = builder.maxThrottledRetries;
+        this.retryPolicy = builder.retryPolicy;
+        this.circuitBreakers = builder.circuitBreakers;
+        this.metrics = builder.metrics;
+        this.validatorCache = builder.validatorCache;
+        this.metadataCache = builder.metadataCache;
+        this.requestCoalescer = builder.requestCoalescer;
+        this.customExecutor = builder.executor;
 
         if (requestHelperProvider != null) {
             this.requestHelperProvider = requestHelperProvider;
             this.httpClient = null;
+            this.connectionManager = null;
+            this.restConfig = null;
+            this.uploadConfig = null;
+            this.partConfig = null;
             this.objectMapper = null;
+            this.compression = false;
         } else {
             this.requestHelperProvider = new DefaultRequestHelperProvider();
 
             if (httpClient != null) {
                 this.httpClient = httpClient;
+                this.connectionManager = null;
+                this.restConfig = null;
+                this.uploadConfig = null;
+                this.partConfig = null;
             } else {
-                PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
-                cm.setMaxTotal(400);
-                cm.setDefaultMaxPerRoute(50);
-
-                int timeout = 5 * 60; // seconds (5 minutes)
-                RequestConfig requestConfig = RequestConfig.custom()
-                        .setConnectTimeout(timeout * 1000)
-                        .setConnectionRequestTimeout(timeout * 1000)
-                        .setSocketTimeout(timeout * 1000)
-                        .build();
-
-                this.httpClient = HttpClients.custom()
-                        .setConnectionManager(cm)
-                        .setDefaultRequestConfig(requestConfig)
-                        .build();
+                this.restConfig = builder.getRestConfig();
+                this.uploadConfig = builder.getUploadConfig();
+                this.partConfig = builder.getPartConfig();
+                this.connectionManager = builder.buildConnectionManager();
+                this.httpClient = builder.buildHttpClient(connectionManager);
             }
+            this.compression = builder.compression && httpClient == null;
             this.objectMapper = new ObjectMapper();
             this.objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
             this.objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
@@ -192,14 +257,307 @@ public class Client {
         return simpleAuth;
     }
 
+    /**
+     * Returns {@code true}, if REST API responses are requested in compressed form.
+     *
+     * @return {@code true}, if response compression is negotiated by the client, {@code false} if it is disabled or
+     * left to a custom HttpClient
+     *
+     * @see ClientBuilder#compression(boolean)
+     */
+    public boolean isCompressionEnabled() {
+        return compression;
+    }
+
+    /**
+     * Returns the base URLs of the Uploadcare services used by this client.
+     *
+     * @return Endpoints
+     */
+    public Endpoints getEndpoints() {
+        return endpoints;
+    }
+
     CloseableHttpClient getHttpClient() {
         return httpClient;
     }
 
+    /**
+     * Returns the request configuration matching the kind of traffic the request belongs to.
+     *
+     * @return Request configuration, or {@code null} if the client uses a custom HttpClient
+     */
+    RequestConfig getRequestConfig(URI uri) {
+        if (restConfig == null) {
+            return null;
+        }
+        String authority = uri.getRawAuthority();
+        if (apiAuthority.equalsIgnoreCase(authority)) {
+            return restConfig;
+        } else if (uploadAuthority.equalsIgnoreCase(authority)) {
+            return uploadConfig;
+        } else {
+            return partConfig;
+        }
+    }
+
+    /**
+     * @return Maximum number of pooled connections over all hosts, as configured by {@link ClientBuilder}
+     */
+    int getMaxConnections() {
+        return connectionManager != null ? connectionManager.getMaxTotal() : ClientBuilder.DEFAULT_MAX_CONNECTIONS;
+    }
+
+    /**
+     * @return Maximum number of pooled connections to a host without a limit of its own
+     */
+    int getMaxConnectionsPerHost() {
+        return connectionManager != null
+                ? connectionManager.getDefaultMaxPerRoute() : ClientBuilder.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    }
+
+    /**
+     * Returns statistics of the connection pool over all hosts.
+     *
+     * @return Pool statistics, or {@code null} if the client uses a custom HttpClient
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager != null ? connectionManager.getTotalStats() : null;
+    }
+
+    /**
+     * Returns statistics of the pooled connections to the given host.
+     *
+     * @param baseUrl Base URL of the host, e.g. {@code https://api.uploadcare.com}
+     * @return Pool statistics, or {@code null} if the client uses a custom HttpClient
+     */
+    public PoolStats getPoolStats(String baseUrl) {
+        if (connectionManager == null) {
+            return null;
+        }
+        URI uri = URI.create(baseUrl);
+        boolean secure = !"http".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() >= 0 ? uri.getPort() : secure ? 443 : 80;
+        HttpHost host = new HttpHost(uri.getHost(), port, uri.getScheme());
+        return connectionManager.getStats(new HttpRoute(host, null, secure));
+    }
+
+    /**
+     * Sets the rate limiter shared by all requests sent by this client.
+     *
+     * @param rateLimiter Rate limiter, or {@code null} to send requests without client-side limiting
+     *
+     * @see TokenBucketRateLimiter
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the rate limiter shared by all requests sent by this client.
+     *
+     * @return Rate limiter, or {@code null} if requests are not limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets how many times a request throttled by the API (HTTP 429) is retried after waiting for the
+     * {@code Retry-After} delay. Once retries are exhausted {@link UploadcareThrottledException} is thrown.
+     *
+     * @param maxThrottledRetries Number of retries, {@code 0} disables retrying
+     */
+    public void setMaxThrottledRetries(int maxThrottledRetries) {
+        this.maxThrottledRetries = maxThrottledRetries;
+    }
+
+    /**
+     * Returns how many times a request throttled by the API is retried.
+     *
+     * @return Number of retries
+     */
+    public int getMaxThrottledRetries() {
+        return maxThrottledRetries;
+    }
+
+    /**
+     * Sets the policy deciding whether requests failed with a network error or a server error (HTTP 5xx) are sent
+     * again.
+     *
+     * @param retryPolicy Retry policy, or {@code null} to surface such failures immediately
+     *
+     * @see ExponentialBackoffRetryPolicy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the policy deciding whether failed requests are sent again.
+     *
+     * @return Retry policy, or {@code null} if failed requests are not retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the circuit breakers guarding requests to each host. While a host's breaker is open requests to it fail
+     * immediately with {@link com.uploadcare.exceptions.UploadcareCircuitOpenException}.
+     *
+     * @param circuitBreakers Circuit breakers, or {@code null} to always send requests
+     */
+    public void setCircuitBreakers(CircuitBreakerRegistry circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    /**
+     * Returns the circuit breakers guarding requests to each host.
+     *
+     * @return Circuit breakers, or {@code null} if requests are always sent
+     */
+    public CircuitBreakerRegistry getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * Sets the listener receiving measurements of every API call and upload phase.
+     *
+     * @param metrics Metrics listener, or {@code null} to disable measuring
+     *
+     * @see com.uploadcare.metrics.HistogramClientMetrics
+     */
+    public void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the listener receiving measurements of every API call and upload phase.
+     *
+     * @return Metrics listener, or {@code null} if calls are not measured
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the cache of response validators, so that GET requests for resources fetched before, such as
+     * {@link #getFile(String)} and {@link #getGroup(String)}, are sent conditionally and unchanged resources are not
+     * downloaded again.
+     *
+     * @param validatorCache Validator cache, or {@code null} to always request full responses
+     */
+    public void setValidatorCache(ValidatorCache validatorCache) {
+        this.validatorCache = validatorCache;
+    }
+
+    /**
+     * Returns the cache of response validators.
+     *
+     * @return Validator cache, or {@code null} if full responses are always requested
+     */
+    public ValidatorCache getValidatorCache() {
+        return validatorCache;
+    }
+
+    /**
+     * Sets the cache answering {@link #getFile(String)}, {@link #getUploadedFile(String)} and
+     * {@link #getGroup(String)} without calling the API. Entries are invalidated when files or groups are saved or
+     * deleted through this client.
+     *
+     * @param metadataCache Metadata cache, or {@code null} to always call the API
+     */
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Returns the cache of file and group metadata.
+     *
+     * @return Metadata cache, or {@code null} if the API is always called
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Sets the coalescer letting concurrent identical GET requests, e.g. many threads calling
+     * {@link #getFile(String)} for the same popular file, share a single API call.
+     *
+     * @param requestCoalescer Request coalescer, or {@code null} to send every request
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * Returns the coalescer of concurrent identical GET requests.
+     *
+     * @return Request coalescer, or {@code null} if every request is sent
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Returns the executor running background work such as page prefetching, creating a pool of daemon threads on
+     * first use unless one was given to {@link ClientBuilder#executor(ExecutorService)}.
+     */
+    synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            if (closed) {
+                throw new UploadcareApiException("Client is closed");
+            }
+            executor = customExecutor != null ? customExecutor : Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "uploadcare-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    RequestSigner getRequestSigner() {
+        return requestSigner;
+    }
+
+    String getUserAgent() {
+        return userAgent;
+    }
+
     ObjectMapper getObjectMapper() {
         return objectMapper;
     }
 
+    /**
+     * Returns a reader bound to the given response type. Readers are immutable and thread-safe, so one instance per
+     * type is shared by all requests of this client.
+     */
+    ObjectReader getObjectReader(JavaType dataType) {
+        ObjectReader reader = objectReaders.get(dataType);
+        if (reader == null) {
+            reader = objectMapper.readerFor(dataType);
+            ObjectReader existing = objectReaders.putIfAbsent(dataType, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    ObjectReader getObjectReader(Class<?> dataClass) {
+        return getObjectReader(objectMapper.getTypeFactory().constructType(dataClass));
+    }
+
+    ObjectReader getObjectReader(TypeReference<?> dataType) {
+        return getObjectReader(objectMapper.getTypeFactory().constructType(dataType));
+    }
+
     public RequestHelper getRequestHelper() {
         return requestHelperProvider.get(this);
     }
@@ -210,7 +568,7 @@ public class Client {
      * @return Project resource
      */
     public Project getProject() {
-        URI url = Urls.apiProject();
+        URI url = endpoints.apiProject();
         RequestHelper requestHelper = getRequestHelper();
         ProjectData projectData = requestHelper.executeQuery(new HttpGet(url), true, ProjectData.class);
         return new Project(this, projectData);
@@ -223,9 +581,20 @@ public class Client {
      * @return Group resource
      */
     public Group getGroup(String groupId) {
-        URI url = Urls.apiGroup(groupId);
-        RequestHelper requestHelper = getRequestHelper();
-        GroupData groupData = requestHelper.executeQuery(new HttpGet(url), true, GroupData.class);
+        URI url = endpoints.apiGroup(groupId);
+        GroupData groupData = cachedQuery(CACHE_GROUP, groupId, url, true, GroupData.class, false);
+        return new Group(this, groupData);
+    }
+
+    /**
+     * Requests group info, bypassing the metadata cache, and caches the result.
+     *
+     * @param groupId Resource UUID
+     * @return Group resource
+     */
+    Group refreshGroup(String groupId) {
+        URI url = endpoints.apiGroup(groupId);
+        GroupData groupData = cachedQuery(CACHE_GROUP, groupId, url, true, GroupData.class, true);
         return new Group(this, groupData);
     }
 
@@ -236,7 +605,7 @@ public class Client {
      * @return Group resource
      */
     public Group getUploadedGroup(String groupId) {
-        URI url = Urls.apiUploadedGroup(getPublicKey(), groupId);
+        URI url = endpoints.apiUploadedGroup(getPublicKey(), groupId);
 
         RequestHelper requestHelper = getRequestHelper();
         GroupData groupData = requestHelper.executeQuery(new HttpGet(url), false, GroupData.class);
@@ -250,10 +619,9 @@ public class Client {
      * @return File resource
      */
     public File getUploadedFile(String fileId) {
-        URI url = Urls.apiUploadedFile(getPublicKey(), fileId);
+        URI url = endpoints.apiUploadedFile(getPublicKey(), fileId);
 
-        RequestHelper requestHelper = getRequestHelper();
-        FileData fileData = requestHelper.executeQuery(new HttpGet(url), false, FileData.class);
+        FileData fileData = cachedQuery(CACHE_UPLOADED_FILE, fileId, url, false, FileData.class, false);
         return new File(this, fileData);
     }
 
@@ -264,9 +632,20 @@ public class Client {
      * @return File resource
      */
     public File getFile(String fileId) {
-        URI url = Urls.apiFile(fileId);
-        RequestHelper requestHelper = getRequestHelper();
-        FileData fileData = requestHelper.executeQuery(new HttpGet(url), true, FileData.class);
+        URI url = endpoints.apiFile(fileId);
+        FileData fileData = cachedQuery(CACHE_FILE, fileId, url, true, FileData.class, false);
+        return new File(this, fileData);
+    }
+
+    /**
+     * Requests file data, bypassing the metadata cache, and caches the result.
+     *
+     * @param fileId Resource UUID
+     * @return File resource
+     */
+    File refreshFile(String fileId) {
+        URI url = endpoints.apiFile(fileId);
+        FileData fileData = cachedQuery(CACHE_FILE, fileId, url, true, FileData.class, true);
         return new File(this, fileData);
     }
 
@@ -277,7 +656,7 @@ public class Client {
      * @return File resource
      */
     public File getFileWithRekognitionInfo(String fileId) {
-        URI url = Urls.getFileWithFields(fileId, "rekognition_info");
+        URI url = endpoints.getFileWithFields(fileId, "rekognition_info");
         RequestHelper requestHelper = getRequestHelper();
         FileData fileData = requestHelper.executeQuery(new HttpGet(url), true, FileData.class);
         return new File(this, fileData);
@@ -292,6 +671,16 @@ public class Client {
         return new FilesQueryBuilder(this);
     }
 
+    /**
+     * Begins to build a lookup of many files by UUID, requested concurrently.
+     *
+     * @param fileIds Resource UUIDs
+     * @return Bulk file lookup
+     */
+    public BulkFileLookup getFiles(Collection<String> fileIds) {
+        return new BulkFileLookup(this, fileIds);
+    }
+
     /**
      * Begins to build a request for groups for the current account.
      *
@@ -308,7 +697,7 @@ public class Client {
      */
     public List<Webhook> getWebhooks() {
         List<Webhook> result = new ArrayList<Webhook>();
-        URI url = Urls.apiWebhooks();
+        URI url = endpoints.apiWebhooks();
 
         WebhookDataWrapper dataWrapper = new WebhookDataWrapper(this);
         RequestHelper requestHelper = getRequestHelper();
@@ -330,9 +719,13 @@ public class Client {
      * @param fileId Resource UUID
      */
     public void deleteFile(String fileId) {
-        URI url = Urls.apiFile(fileId);
+        URI url = endpoints.apiFile(fileId);
         RequestHelper requestHelper = getRequestHelper();
-        requestHelper.executeCommand(new HttpDelete(url), true);
+        try {
+            requestHelper.executeCommand(new HttpDelete(url), true);
+        } finally {
+            invalidateFiles(Collections.singletonList(fileId));
+        }
     }
 
     /**
@@ -349,7 +742,7 @@ public class Client {
                 requestBodyContent,
                 ContentType.APPLICATION_JSON);
 
-        URI url = Urls.apiDeleteWebhook();
+        URI url = endpoints.apiDeleteWebhook();
         HttpDeleteWithBody request = new HttpDeleteWithBody(url);
         request.setEntity(requestEntity);
 
@@ -359,29 +752,30 @@ public class Client {
 
     /**
      * Marks a files as deleted.
-     * Maximum 100 file id's can be provided.
+     * More than 100 files are deleted in concurrent batch requests, see {@link #filesBatch(Collection)}.
      *
      * @param fileIds Resource UUIDs
      */
     public void deleteFiles(List<String> fileIds) {
         if (fileIds.size() <= MAX_SAVE_DELETE_BATCH_SIZE) {
             // Make single request.
-            URI url = Urls.apiFilesBatch();
-            RequestHelper requestHelper = getRequestHelper();
-            String requestBodyContent = trySerializeRequestBodyContent(fileIds);
-            StringEntity requestEntity = new StringEntity(
-                    requestBodyContent,
-                    ContentType.APPLICATION_JSON);
-
-            HttpDeleteWithBody request = new HttpDeleteWithBody(url);
-            request.setEntity(requestEntity);
-            requestHelper.executeCommand(request, true, DigestUtils.md5Hex(requestBodyContent));
+            executeSaveDeleteBatchCommand(false, fileIds);
         } else {
             // Make batch requests.
-            executeSaveDeleteBatchCommand(false, fileIds);
+            executeSaveDeleteBatchCommands(false, fileIds);
         }
     }
 
+    /**
+     * Begins to build a command storing or deleting many files, in concurrent batch requests with a result per file.
+     *
+     * @param fileIds Resource UUIDs
+     * @return Batch command
+     */
+    public FilesBatchCommand filesBatch(Collection<String> fileIds) {
+        return new FilesBatchCommand(this, fileIds);
+    }
+
     /**
      * Create files group from a set of files by using their UUIDs.
      *
@@ -433,7 +827,7 @@ public class Client {
             entityBuilder.addTextBody("files[" + i + "]", fileIds.get(i));
         }
 
-        URI createUrl = Urls.apiCreateGroup();
+        URI createUrl = endpoints.apiCreateGroup();
         HttpPost createRequest = new HttpPost(createUrl);
         createRequest.setEntity(entityBuilder.build());
         GroupData groupData = getRequestHelper().executeQuery(createRequest, false, GroupData.class);
@@ -460,7 +854,7 @@ public class Client {
                 requestBodyContent,
                 ContentType.APPLICATION_JSON);
 
-        URI url = Urls.apiWebhooks();
+        URI url = endpoints.apiWebhooks();
         HttpPost request = new HttpPost(url);
         request.setEntity(requestEntity);
 
@@ -495,7 +889,7 @@ public class Client {
                 requestBodyContent,
                 ContentType.APPLICATION_JSON);
 
-        URI url = Urls.apiWebhook(webhookId);
+        URI url = endpoints.apiWebhook(webhookId);
         HttpPut request = new HttpPut(url);
         request.setEntity(requestEntity);
 
@@ -517,9 +911,13 @@ public class Client {
      * @param fileId Resource UUID
      */
     public void saveFile(String fileId) {
-        URI url = Urls.apiFileStorage(fileId);
+        URI url = endpoints.apiFileStorage(fileId);
         RequestHelper requestHelper = getRequestHelper();
-        requestHelper.executeCommand(new HttpPut(url), true);
+        try {
+            requestHelper.executeCommand(new HttpPut(url), true);
+        } finally {
+            invalidateFiles(Collections.singletonList(fileId));
+        }
     }
 
     /**
@@ -528,9 +926,13 @@ public class Client {
      * @param groupId Group Resource Id
      */
     public void saveGroup(String groupId) {
-        URI url = Urls.apiGroupStorage(groupId);
+        URI url = endpoints.apiGroupStorage(groupId);
         RequestHelper requestHelper = getRequestHelper();
-        requestHelper.executeCommand(new HttpPut(url), true);
+        try {
+            requestHelper.executeCommand(new HttpPut(url), true);
+        } finally {
+            invalidateGroup(groupId);
+        }
     }
 
     /**
@@ -538,25 +940,17 @@ public class Client {
      *
      * This has to be done for all files you want to keep.
      * Unsaved files are eventually purged.
+     * More than 100 files are saved in concurrent batch requests, see {@link #filesBatch(Collection)}.
      *
      * @param fileIds Resource UUIDs
      */
     public void saveFiles(List<String> fileIds) {
         if (fileIds.size() <= MAX_SAVE_DELETE_BATCH_SIZE) {
             // Make single request.
-            URI url = Urls.apiFilesBatch();
-            RequestHelper requestHelper = getRequestHelper();
-            String requestBodyContent = trySerializeRequestBodyContent(fileIds);
-            StringEntity requestEntity = new StringEntity(
-                    requestBodyContent,
-                    ContentType.APPLICATION_JSON);
-
-            HttpPut request = new HttpPut(url);
-            request.setEntity(requestEntity);
-            requestHelper.executeCommand(request, true, DigestUtils.md5Hex(requestBodyContent));
+            executeSaveDeleteBatchCommand(true, fileIds);
         } else {
             // Make batch requests.
-            executeSaveDeleteBatchCommand(true, fileIds);
+            executeSaveDeleteBatchCommands(true, fileIds);
         }
     }
 
@@ -564,9 +958,15 @@ public class Client {
      * Closes client.
      *
      * Ensures that all connections kept alive by the manager get closed and system resources
-     * allocated by those connections are released.
+     * allocated by those connections are released. Background threads started by the client are stopped.
      */
     public void close() {
+        synchronized (this) {
+            closed = true;
+            if (executor != null && executor != customExecutor) {
+                executor.shutdown();
+            }
+        }
         if (httpClient != null) {
             try {
                 httpClient.close();
@@ -614,7 +1014,7 @@ public class Client {
                 ContentType.APPLICATION_JSON);
 
         RequestHelper requestHelper = getRequestHelper();
-        HttpPost request = new HttpPost(Urls.apiFileLocalCopy());
+        HttpPost request = new HttpPost(endpoints.apiFileLocalCopy());
         request.setEntity(requestEntity);
 
         CopyFileData copyFileData = requestHelper.executeQuery(
@@ -655,7 +1055,7 @@ public class Client {
                 ContentType.APPLICATION_JSON);
 
         RequestHelper requestHelper = getRequestHelper();
-        HttpPost request = new HttpPost(Urls.apiFileRemoteCopy());
+        HttpPost request = new HttpPost(endpoints.apiFileRemoteCopy());
         request.setEntity(requestEntity);
 
         CopyFileData copyFileData = requestHelper.executeQuery(
@@ -667,35 +1067,106 @@ public class Client {
         return new CopyFile(this, copyFileData);
     }
 
-    private void executeSaveDeleteBatchCommand(boolean save, List<String> fileIds) {
-        URI url = Urls.apiFilesBatch();
+    /**
+     * Stores or deletes the files of a single batch request.
+     *
+     * @param fileIds At most {@link #MAX_SAVE_DELETE_BATCH_SIZE} UUIDs
+     */
+    BatchResultData executeSaveDeleteBatchCommand(boolean save, List<String> fileIds) {
+        URI url = endpoints.apiFilesBatch();
+        HttpEntityEnclosingRequestBase request;
+        if (save) {
+            request = new HttpPut(url);
+        } else {
+            request = new HttpDeleteWithBody(url);
+        }
 
-        for (int offset = 0; offset < fileIds.size(); offset += MAX_SAVE_DELETE_BATCH_SIZE) {
-            int endIndex = offset + MAX_SAVE_DELETE_BATCH_SIZE;
-            if (endIndex > fileIds.size()) {
-                endIndex = fileIds.size();
-            }
+        String requestBodyContent = trySerializeRequestBodyContent(fileIds);
+        StringEntity requestEntity = new StringEntity(
+                requestBodyContent,
+                ContentType.APPLICATION_JSON);
+        request.setEntity(requestEntity);
 
-            HttpEntityEnclosingRequestBase request;
-            if (save) {
-                request = new HttpPut(url);
-            } else {
-                request = new HttpDeleteWithBody(url);
+        RequestHelper requestHelper = getRequestHelper();
+        try {
+            return requestHelper.executeQuery(request, true, BatchResultData.class,
+                    DigestUtils.md5Hex(requestBodyContent));
+        } finally {
+            invalidateFiles(fileIds);
+        }
+    }
+
+    /**
+     * Stores or deletes the files in concurrent batch requests, throwing the first failure of a batch once all are
+     * done. Problems reported for single files are ignored, as they always have been.
+     */
+    private void executeSaveDeleteBatchCommands(boolean save, List<String> fileIds) {
+        FilesBatchCommand command = filesBatch(fileIds);
+        BatchResult result = save ? command.save() : command.delete();
+        if (!result.getFailures().isEmpty()) {
+            throw result.getFailures().values().iterator().next();
+        }
+    }
+
+    private <T> T cachedQuery(
+            String kind,
+            String id,
+            final URI url,
+            final boolean apiHeaders,
+            final Class<T> dataClass,
+            boolean refresh) {
+        MetadataCache.Loader<T> loader = new MetadataCache.Loader<T>() {
+            public T load() {
+                return getRequestHelper().executeQuery(new HttpGet(url), apiHeaders, dataClass);
             }
+        };
+        MetadataCache cache = metadataCache;
+        if (cache == null) {
+            return loader.load();
+        }
+        String key = cacheKey(kind, id);
+        return refresh ? cache.refresh(key, loader) : cache.get(key, dataClass, loader);
+    }
 
-            List<String> ids = fileIds.subList(offset, endIndex);
-            String requestBodyContent = trySerializeRequestBodyContent(ids);
-            StringEntity requestEntity = new StringEntity(
-                    requestBodyContent,
-                    ContentType.APPLICATION_JSON);
-            request.setEntity(requestEntity);
+    /**
+     * Cache keys include the public key, since a shared second tier may hold metadata of several projects.
+     */
+    private String cacheKey(String kind, String id) {
+        return publicKey + "/" + kind + "/" + id;
+    }
 
-            RequestHelper requestHelper = getRequestHelper();
-            requestHelper.executeCommand(request, true, DigestUtils.md5Hex(requestBodyContent));
+    void invalidateFiles(Collection<String> fileIds) {
+        MetadataCache cache = metadataCache;
+        if (cache == null) {
+            return;
+        }
+        for (String fileId : fileIds) {
+            cache.invalidate(cacheKey(CACHE_FILE, fileId));
+            cache.invalidate(cacheKey(CACHE_UPLOADED_FILE, fileId));
+        }
+    }
+
+    void invalidateGroup(String groupId) {
+        MetadataCache cache = metadataCache;
+        if (cache == null) {
+            return;
+        }
+        String key = cacheKey(CACHE_GROUP, groupId);
+        // Storing a group stores its files, which are only known if the group is cached.
+        GroupData group = cache.getIfPresent(key, GroupData.class);
+        cache.invalidate(key);
+        if (group != null && group.files != null) {
+            List<String> fileIds = new ArrayList<String>(group.files.size());
+            for (FileData file : group.files) {
+                if (file != null) {
+                    fileIds.add(file.uuid);
+                }
+            }
+            invalidateFiles(fileIds);
         }
     }
 
-    private String trySerializeRequestBodyContent(Object object) {
+    String trySerializeRequestBodyContent(Object object) {
         String requestBodyContent = null;
         try {
             requestBodyContent = getObjectMapper().writeValueAsString(object);
@@ -0,0 +1,362 @@
+package com.uploadcare.api;
+
+import com.uploadcare.cache.MetadataCache;
+import com.uploadcare.metrics.ClientMetrics;
+import com.uploadcare.urls.Endpoints;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a {@link Client} with a tuned connection pool, timeouts and request handling.
+ *
+ * Timeouts are set separately for three kinds of traffic: REST API calls, Upload API calls and uploads of multipart
+ * parts, which go to the storage host returned by the Upload API. All values are in milliseconds.
+ *
+ * <pre>
+ * Client client = new ClientBuilder(publicKey, secretKey)
+ *         .maxConnectionsPerHost("https://upload.uploadcare.com", 200)
+ *         .restTimeouts(2000, 1000, 10000)
+ *         .evictIdleConnections(30000)
+ *         .build();
+ * </pre>
+ */
+public class ClientBuilder {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 400;
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 50;
+
+    public static final int DEFAULT_TIMEOUT = 5 * 60 * 1000;
+
+    final String publicKey;
+
+    final String secretKey;
+
+    boolean simpleAuth;
+
+    boolean compression = true;
+
+    Endpoints endpoints = Endpoints.DEFAULT;
+
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+    private final Map<HttpHost, Integer> hostMaxConnections = new LinkedHashMap<HttpHost, Integer>();
+
+    private RequestConfig restConfig = timeouts(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT, DEFAULT_TIMEOUT);
+
+    private RequestConfig uploadConfig = restConfig;
+
+    private RequestConfig partConfig = restConfig;
+
+    private long keepAlive = -1;
+
+    private long maxIdleTime = -1;
+
+    RateLimiter rateLimiter;
+
+    int maxThrottledRetries = Client.DEFAULT_MAX_THROTTLED_RETRIES;
+
+    RetryPolicy retryPolicy;
+
+    CircuitBreakerRegistry circuitBreakers;
+
+    ClientMetrics metrics;
+
+    ValidatorCache validatorCache;
+
+    MetadataCache metadataCache;
+
+    RequestCoalescer requestCoalescer;
+
+    ExecutorService executor;
+
+    /**
+     * @param publicKey Public key
+     * @param secretKey Secret key, if {@code null}, client will only be able to upload files and get info about them.
+     */
+    public ClientBuilder(String publicKey, String secretKey) {
+        this.publicKey = publicKey;
+        this.secretKey = secretKey;
+    }
+
+    /**
+     * @param simpleAuth If {@code true}, the secret key is sent in the clear instead of signing requests
+     */
+    public ClientBuilder simpleAuth(boolean simpleAuth) {
+        this.simpleAuth = simpleAuth;
+        return this;
+    }
+
+    /**
+     * Sets the base URLs of the REST API, Upload API and CDN, e.g. to use a custom CDN domain.
+     *
+     * @param endpoints Endpoints, {@link Endpoints#DEFAULT} by default
+     */
+    public ClientBuilder endpoints(Endpoints endpoints) {
+        this.endpoints = endpoints;
+        return this;
+    }
+
+    /**
+     * Sets whether REST API responses are requested with {@code gzip} or {@code deflate} compression. Compressed
+     * responses are decompressed while they are parsed, and the compressed and decompressed sizes are reported to
+     * {@link ClientMetrics#responseDecompressed}. Compression pays off on large pages of file listings, especially
+     * over slow links, at the cost of some CPU time on both ends.
+     *
+     * @param compression {@code true} by default
+     */
+    public ClientBuilder compression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @param maxConnections Maximum number of pooled connections over all hosts
+     */
+    public ClientBuilder maxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * @param maxConnections Maximum number of pooled connections to a single host, unless set for that host
+     */
+    public ClientBuilder maxConnectionsPerHost(int maxConnections) {
+        this.maxConnectionsPerHost = maxConnections;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections to the given host.
+     *
+     * @param baseUrl        Base URL of the host, e.g. {@code https://upload.uploadcare.com}
+     * @param maxConnections Maximum number of connections
+     */
+    public ClientBuilder maxConnectionsPerHost(String baseUrl, int maxConnections) {
+        hostMaxConnections.put(HttpHost.create(baseUrl), maxConnections);
+        return this;
+    }
+
+    /**
+     * Sets timeouts of REST API calls.
+     *
+     * @param connectTimeout           Timeout for establishing a connection
+     * @param connectionRequestTimeout Timeout for leasing a connection from the pool
+     * @param socketTimeout            Maximum period of inactivity while waiting for data
+     */
+    public ClientBuilder restTimeouts(int connectTimeout, int connectionRequestTimeout, int socketTimeout) {
+        this.restConfig = timeouts(connectTimeout, connectionRequestTimeout, socketTimeout);
+        return this;
+    }
+
+    /**
+     * Sets timeouts of Upload API calls, including direct uploads of whole files.
+     *
+     * @see #restTimeouts(int, int, int)
+     */
+    public ClientBuilder uploadTimeouts(int connectTimeout, int connectionRequestTimeout, int socketTimeout) {
+        this.uploadConfig = timeouts(connectTimeout, connectionRequestTimeout, socketTimeout);
+        return this;
+    }
+
+    /**
+     * Sets timeouts of multipart part uploads.
+     *
+     * @see #restTimeouts(int, int, int)
+     */
+    public ClientBuilder partTimeouts(int connectTimeout, int connectionRequestTimeout, int socketTimeout) {
+        this.partConfig = timeouts(connectTimeout, connectionRequestTimeout, socketTimeout);
+        return this;
+    }
+
+    /**
+     * Limits how long idle connections are kept alive. Shorter durations announced by the server in the
+     * {@code Keep-Alive} header are respected.
+     *
+     * @param keepAlive Maximum keep-alive duration, by default connections are kept as long as the server allows
+     */
+    public ClientBuilder keepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * Closes pooled connections that have been idle for longer than the given time, and expired ones, from a
+     * background thread. By default idle connections are only checked when leased.
+     *
+     * @param maxIdleTime Maximum idle time
+     */
+    public ClientBuilder evictIdleConnections(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+        return this;
+    }
+
+    /**
+     * @see Client#setRateLimiter(RateLimiter)
+     */
+    public ClientBuilder rateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * @see Client#setMaxThrottledRetries(int)
+     */
+    public ClientBuilder maxThrottledRetries(int maxThrottledRetries) {
+        this.maxThrottledRetries = maxThrottledRetries;
+        return this;
+    }
+
+    /**
+     * @see Client#setRetryPolicy(RetryPolicy)
+     */
+    public ClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * @see Client#setCircuitBreakers(CircuitBreakerRegistry)
+     */
+    public ClientBuilder circuitBreakers(CircuitBreakerRegistry circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+        return this;
+    }
+
+    /**
+     * @see Client#setMetrics(ClientMetrics)
+     */
+    public ClientBuilder metrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @see Client#setValidatorCache(ValidatorCache)
+     */
+    public ClientBuilder validatorCache(ValidatorCache validatorCache) {
+        this.validatorCache = validatorCache;
+        return this;
+    }
+
+    /**
+     * @see Client#setMetadataCache(MetadataCache)
+     */
+    public ClientBuilder metadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+        return this;
+    }
+
+    /**
+     * @see Client#setRequestCoalescer(RequestCoalescer)
+     */
+    public ClientBuilder requestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+        return this;
+    }
+
+    /**
+     * Sets the executor running background work such as page prefetching. It is not shut down when the client is
+     * closed.
+     *
+     * @param executor Executor, by default a pool of daemon threads is created on first use
+     */
+    public ClientBuilder executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public Client build() {
+        return new Client(this, null, null);
+    }
+
+    RequestConfig getRestConfig() {
+        return restConfig;
+    }
+
+    RequestConfig getUploadConfig() {
+        return uploadConfig;
+    }
+
+    RequestConfig getPartConfig() {
+        return partConfig;
+    }
+
+    PoolingHttpClientConnectionManager buildConnectionManager() {
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(maxConnections);
+        cm.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        for (Map.Entry<HttpHost, Integer> entry : hostMaxConnections.entrySet()) {
+            HttpHost host = withDefaultPort(entry.getKey());
+            boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+            cm.setMaxPerRoute(new HttpRoute(host, null, secure), entry.getValue());
+        }
+        return cm;
+    }
+
+    CloseableHttpClient buildHttpClient(PoolingHttpClientConnectionManager cm) {
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(restConfig)
+                // Content coding is negotiated and decoded by RequestHelper, so that compressed sizes can be measured.
+                .disableContentCompression();
+        if (keepAlive >= 0) {
+            builder.setKeepAliveStrategy(new MaxKeepAliveStrategy(keepAlive));
+        }
+        if (maxIdleTime >= 0) {
+            builder.evictExpiredConnections();
+            builder.evictIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    private static RequestConfig timeouts(int connectTimeout, int connectionRequestTimeout, int socketTimeout) {
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(socketTimeout)
+                .build();
+    }
+
+    private static HttpHost withDefaultPort(HttpHost host) {
+        if (host.getPort() >= 0) {
+            return host;
+        }
+        int port = "http".equalsIgnoreCase(host.getSchemeName()) ? 80 : 443;
+        return new HttpHost(host.getHostName(), port, host.getSchemeName());
+    }
+
+    /**
+     * Keeps connections alive as long as the server allows, but no longer than the given duration.
+     */
+    private static class MaxKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private final long maxKeepAlive;
+
+        MaxKeepAliveStrategy(long maxKeepAlive) {
+            this.maxKeepAlive = maxKeepAlive;
+        }
+
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive < 0 || keepAlive > maxKeepAlive ? maxKeepAlive : keepAlive;
+        }
+    }
+}
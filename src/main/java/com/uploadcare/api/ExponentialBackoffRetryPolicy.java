@@ -0,0 +1,84 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareServerException;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries idempotent requests with exponential backoff and full jitter.
+ *
+ * Requests using idempotent methods ({@code GET}, {@code HEAD}, {@code PUT}, {@code DELETE}, {@code OPTIONS}) are
+ * retried on network errors and on HTTP 500, 502, 503 and 504 responses. Other requests are only retried when the
+ * connection could not be established, i.e. when they have certainly not reached the server.
+ *
+ * The delay before attempt {@code n + 1} is a random value between zero and
+ * {@code min(maxDelay, baseDelay * 2^(n - 1))}, which spreads retries of concurrent callers over time.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    public static final long DEFAULT_BASE_DELAY = 200L;
+
+    public static final long DEFAULT_MAX_DELAY = 10000L;
+
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(
+            Arrays.asList("GET", "HEAD", "PUT", "DELETE", "OPTIONS"));
+
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = new HashSet<Integer>(
+            Arrays.asList(500, 502, 503, 504));
+
+    private final int maxRetries;
+
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    public ExponentialBackoffRetryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * @param maxRetries Maximum number of retries per request
+     * @param baseDelay  Upper bound of the first delay, in milliseconds
+     * @param maxDelay   Upper bound of any delay, in milliseconds
+     */
+    public ExponentialBackoffRetryPolicy(int maxRetries, long baseDelay, long maxDelay) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public long retryDelay(HttpUriRequest request, int attempt, Exception failure) {
+        if (attempt > maxRetries || !isRetryable(request, failure)) {
+            return -1;
+        }
+
+        long ceiling = maxDelay;
+        int shift = attempt - 1;
+        if (shift < 31 && baseDelay << shift < maxDelay) {
+            ceiling = baseDelay << shift;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    protected boolean isRetryable(HttpUriRequest request, Exception failure) {
+        if (failure instanceof ConnectException || failure instanceof ConnectTimeoutException) {
+            return true;
+        }
+        if (!IDEMPOTENT_METHODS.contains(request.getMethod())) {
+            return false;
+        }
+        if (failure instanceof UploadcareServerException) {
+            return RETRYABLE_STATUS_CODES.contains(((UploadcareServerException) failure).getStatusCode());
+        }
+        return true;
+    }
+}
@@ -107,7 +107,7 @@ public class File {
     }
 
     /**
-     * Refreshes file data from Uploadcare.
+     * Refreshes file data from Uploadcare, bypassing the client's metadata cache.
      *
      * This does not mutate the current {@code File} instance,
      * but creates a new one.
@@ -115,7 +115,7 @@ public class File {
      * @return New file resource instance
      */
     public File update() {
-        return client.getFile(fileData.uuid);
+        return client.refreshFile(fileData.uuid);
     }
 
     /**
@@ -149,7 +149,7 @@ public class File {
      *
      * @return CDN path builder
      *
-     * @see com.uploadcare.urls.Urls#cdn(CdnPathBuilder)
+     * @see com.uploadcare.urls.Endpoints#cdn(CdnPathBuilder)
      */
     public CdnPathBuilder cdnPath() {
         return new CdnPathBuilder(this);
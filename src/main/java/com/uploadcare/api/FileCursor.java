@@ -0,0 +1,425 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareNetworkException;
+import com.uploadcare.index.MimeTypeDictionary;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.text.ParseException;
+import java.util.UUID;
+
+/**
+ * Cursor over a file listing that decodes one file at a time into its own fields, straight from the response
+ * stream, for scans over millions of files.
+ *
+ * Unlike {@link FilesQueryBuilder#asIterable()}, no object is created per file: UUIDs are decoded into two longs,
+ * times into epoch milliseconds and MIME types into codes of a {@link MimeTypeDictionary}. The accessors return the
+ * fields of the file the cursor is on, until the next call to {@link #advance()}.
+ *
+ * <pre>
+ * FileCursor files = client.getFiles().stored(true).cursor();
+ * try {
+ *     while (files.advance()) {
+ *         total += files.size();
+ *     }
+ * } finally {
+ *     files.close();
+ * }
+ * </pre>
+ *
+ * Each page stays open as a response while it is scanned; a cursor that is not run to the end must be closed.
+ *
+ * @see FilesQueryBuilder#cursor(MimeTypeDictionary)
+ */
+public final class FileCursor implements Closeable {
+
+    /**
+     * Time accessors return this value for missing times.
+     */
+    public static final long NO_TIME = -1L;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private final RequestHelper requestHelper;
+
+    private final JsonFactory jsonFactory;
+
+    private final MimeTypeDictionary mimeTypes;
+
+    private URI nextPage;
+
+    private JsonParser parser;
+
+    private InputStream stream;
+
+    private boolean closed;
+
+    // MIME types by code, to look codes up without creating strings.
+    private char[][] mimeTypeChars = new char[16][];
+
+    private long uuidHigh;
+
+    private long uuidLow;
+
+    private long size;
+
+    private long uploaded;
+
+    private long stored;
+
+    private long removed;
+
+    private int mimeTypeCode;
+
+    private boolean ready;
+
+    private boolean image;
+
+    FileCursor(RequestHelper requestHelper, JsonFactory jsonFactory, URI firstPage, MimeTypeDictionary mimeTypes) {
+        this.requestHelper = requestHelper;
+        this.jsonFactory = jsonFactory;
+        this.nextPage = firstPage;
+        this.mimeTypes = mimeTypes;
+    }
+
+    /**
+     * Moves to the next file, fetching the next page when the current one is done.
+     *
+     * @return {@code false} if there are no more files, in which case the cursor is closed
+     */
+    public boolean advance() {
+        if (closed) {
+            return false;
+        }
+        try {
+            while (true) {
+                if (parser == null) {
+                    if (nextPage == null) {
+                        close();
+                        return false;
+                    }
+                    openPage();
+                    continue;
+                }
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    readFile();
+                    return true;
+                }
+                if (token == JsonToken.END_ARRAY || token == null) {
+                    finishPage();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw new UploadcareNetworkException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public long uuidHigh() {
+        return uuidHigh;
+    }
+
+    public long uuidLow() {
+        return uuidLow;
+    }
+
+    /**
+     * @return UUID of the file as a string, which is created on each call
+     */
+    public String uuid() {
+        return new UUID(uuidHigh, uuidLow).toString();
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return Upload time in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long uploadedEpochMillis() {
+        return uploaded;
+    }
+
+    /**
+     * @return Time the file was stored in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long storedEpochMillis() {
+        return stored;
+    }
+
+    /**
+     * @return Time the file was removed in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long removedEpochMillis() {
+        return removed;
+    }
+
+    /**
+     * @return Code of the MIME type in {@link #getMimeTypes()}, or {@link MimeTypeDictionary#NONE}
+     */
+    public int mimeTypeCode() {
+        return mimeTypeCode;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isImage() {
+        return image;
+    }
+
+    public MimeTypeDictionary getMimeTypes() {
+        return mimeTypes;
+    }
+
+    /**
+     * Closes the page being scanned, if any.
+     */
+    public void close() {
+        closed = true;
+        nextPage = null;
+        if (parser != null) {
+            JsonParser current = parser;
+            parser = null;
+            stream = null;
+            try {
+                current.close();
+            } catch (IOException e) {
+                // The response is discarded anyway.
+            }
+        }
+    }
+
+    /**
+     * Opens the next page and reads up to its results.
+     */
+    private void openPage() throws IOException {
+        URI url = nextPage;
+        nextPage = null;
+        stream = requestHelper.openStream(url, true);
+        parser = jsonFactory.createParser(stream);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new UploadcareApiException("Unexpected listing page: " + url);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("results".equals(name) && token == JsonToken.START_ARRAY) {
+                return;
+            }
+            readPageField(name, token);
+        }
+        finishPage();
+    }
+
+    /**
+     * Reads the page fields following its results, then drains and closes the page.
+     */
+    private void finishPage() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            readPageField(name, parser.nextToken());
+        }
+        IOUtils.skip(stream, Long.MAX_VALUE);
+        JsonParser current = parser;
+        parser = null;
+        stream = null;
+        current.close();
+    }
+
+    private void readPageField(String name, JsonToken token) throws IOException {
+        if ("next".equals(name) && token == JsonToken.VALUE_STRING) {
+            nextPage = URI.create(parser.getText());
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    private void readFile() throws IOException {
+        uuidHigh = 0;
+        uuidLow = 0;
+        size = 0;
+        uploaded = NO_TIME;
+        stored = NO_TIME;
+        removed = NO_TIME;
+        mimeTypeCode = MimeTypeDictionary.NONE;
+        ready = false;
+        image = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if ("uuid".equals(name)) {
+                readUuid();
+            } else if ("size".equals(name) && token == JsonToken.VALUE_NUMBER_INT) {
+                size = parser.getLongValue();
+            } else if ("datetime_uploaded".equals(name)) {
+                uploaded = readTime();
+            } else if ("datetime_stored".equals(name)) {
+                stored = readTime();
+            } else if ("datetime_removed".equals(name)) {
+                removed = readTime();
+            } else if ("mime_type".equals(name)) {
+                mimeTypeCode = readMimeType();
+            } else if ("is_ready".equals(name)) {
+                ready = token == JsonToken.VALUE_TRUE;
+            } else if ("is_image".equals(name)) {
+                image = token == JsonToken.VALUE_TRUE;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readUuid() throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() != 36) {
+            throw new UploadcareApiException("Unexpected file UUID: " + parser.getText());
+        }
+        long high = 0;
+        long low = 0;
+        int digits = 0;
+        for (int i = offset; i < offset + 36; i++) {
+            char c = text[i];
+            if (c == '-') {
+                continue;
+            }
+            int value = Character.digit(c, 16);
+            if (value < 0) {
+                throw new UploadcareApiException("Unexpected file UUID: " + parser.getText());
+            }
+            if (digits++ < 16) {
+                high = high << 4 | value;
+            } else {
+                low = low << 4 | value;
+            }
+        }
+        if (digits != 32) {
+            throw new UploadcareApiException("Unexpected file UUID: " + parser.getText());
+        }
+        uuidHigh = high;
+        uuidLow = low;
+    }
+
+    /**
+     * Parses an ISO 8601 time such as {@code 2015-09-21T12:01:38.123456Z} without creating objects, falling back to
+     * Jackson's date parsing for other formats.
+     */
+    private long readTime() throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length >= 20 && text[offset + 4] == '-' && text[offset + 7] == '-' && text[offset + 10] == 'T'
+                && text[offset + 13] == ':' && text[offset + 16] == ':') {
+            int year = digits(text, offset, 4);
+            int month = digits(text, offset + 5, 2);
+            int day = digits(text, offset + 8, 2);
+            int hour = digits(text, offset + 11, 2);
+            int minute = digits(text, offset + 14, 2);
+            int second = digits(text, offset + 17, 2);
+            int i = offset + 19;
+            int end = offset + length;
+            int millis = 0;
+            if (i < end && text[i] == '.') {
+                int scale = 100;
+                for (i++; i < end && text[i] >= '0' && text[i] <= '9'; i++) {
+                    millis += (text[i] - '0') * scale;
+                    scale /= 10;
+                }
+            }
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0
+                    && i == end - 1 && text[i] == 'Z') {
+                return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                        + ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+            }
+        }
+        try {
+            return new StdDateFormat().parse(parser.getText()).getTime();
+        } catch (ParseException e) {
+            throw new UploadcareApiException("Unexpected time: " + parser.getText(), e);
+        }
+    }
+
+    private int readMimeType() throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        for (int code = 0; code < mimeTypeChars.length; code++) {
+            char[] type = mimeTypeChars[code];
+            if (type != null && type.length == length && regionMatches(type, text, offset)) {
+                return code;
+            }
+        }
+        String type = parser.getText();
+        int code;
+        try {
+            code = mimeTypes.encode(type);
+        } catch (IOException e) {
+            throw new UploadcareApiException("Cannot add to the MIME type dictionary", e);
+        }
+        if (code >= mimeTypeChars.length) {
+            char[][] grown = new char[Math.max(code + 1, mimeTypeChars.length * 2)][];
+            System.arraycopy(mimeTypeChars, 0, grown, 0, mimeTypeChars.length);
+            mimeTypeChars = grown;
+        }
+        mimeTypeChars[code] = type.toCharArray();
+        return code;
+    }
+
+    private static boolean regionMatches(char[] type, char[] text, int offset) {
+        for (int i = 0; i < type.length; i++) {
+            if (type[i] != text[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Value of the decimal digits, or {@code -1} if there is another character among them
+     */
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return Days since 1970-01-01 of a date in the proleptic Gregorian calendar
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
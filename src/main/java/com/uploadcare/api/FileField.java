@@ -0,0 +1,55 @@
+package com.uploadcare.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fields of file metadata that a listing can be limited to, see {@link FilesQueryBuilder#fields(FileField...)}.
+ */
+public enum FileField {
+
+    UUID("uuid"),
+    URL("url"),
+    SIZE("size"),
+    SOURCE("source"),
+    IS_READY("is_ready"),
+    IS_IMAGE("is_image"),
+    MIME_TYPE("mime_type"),
+    ORIGINAL_FILENAME("original_filename"),
+    ORIGINAL_FILE_URL("original_file_url"),
+    DATETIME_UPLOADED("datetime_uploaded"),
+    DATETIME_STORED("datetime_stored"),
+    DATETIME_REMOVED("datetime_removed"),
+    IMAGE_INFO("image_info"),
+    VIDEO_INFO("video_info"),
+    REKOGNITION_INFO("rekognition_info"),
+    VARIATIONS("variations");
+
+    private static final Map<String, FileField> BY_JSON_NAME = new HashMap<String, FileField>();
+
+    static {
+        for (FileField field : values()) {
+            BY_JSON_NAME.put(field.jsonName, field);
+        }
+    }
+
+    private final String jsonName;
+
+    FileField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    /**
+     * @return Name of the field in API responses
+     */
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * @return Field with the given name in API responses, or {@code null} if there is none
+     */
+    public static FileField forJsonName(String jsonName) {
+        return BY_JSON_NAME.get(jsonName);
+    }
+}
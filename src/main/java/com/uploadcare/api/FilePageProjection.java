@@ -0,0 +1,172 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.uploadcare.data.FileData;
+import com.uploadcare.data.FilePageData;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses pages of file listings limited to a set of fields.
+ *
+ * The page is read token by token from the response stream; values of other fields, nested objects included, are
+ * skipped without being parsed into objects. The fields to keep are passed to the parser as an attribute of the
+ * reader, so one parser serves all projections.
+ */
+final class FilePageProjection {
+
+    private static final JavaType REKOGNITION_INFO_TYPE =
+            TypeFactory.defaultInstance().constructMapType(HashMap.class, String.class, Float.class);
+
+    private static final JavaType VARIATIONS_TYPE =
+            TypeFactory.defaultInstance().constructMapType(HashMap.class, String.class, String.class);
+
+    private FilePageProjection() {
+    }
+
+    /**
+     * Returns a reader of pages holding only the given fields of each file, and always its UUID.
+     */
+    static ObjectReader reader(Client client, Set<FileField> fields) {
+        EnumSet<FileField> projection = EnumSet.of(FileField.UUID);
+        projection.addAll(fields);
+        return client.getObjectReader(ProjectedPageData.class).withAttribute(FileField.class, projection);
+    }
+
+    @JsonDeserialize(using = PageDeserializer.class)
+    static final class ProjectedPageData extends FilePageData {
+    }
+
+    static final class PageDeserializer extends JsonDeserializer<ProjectedPageData> {
+
+        @Override
+        public ProjectedPageData deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            @SuppressWarnings("unchecked")
+            Set<FileField> fields = (Set<FileField>) ctxt.getAttribute(FileField.class);
+            if (fields == null) {
+                fields = EnumSet.allOf(FileField.class);
+            }
+            if (jp.currentToken() != JsonToken.START_OBJECT) {
+                return (ProjectedPageData) ctxt.handleUnexpectedToken(ProjectedPageData.class, jp);
+            }
+            ProjectedPageData page = new ProjectedPageData();
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String name = jp.currentName();
+                JsonToken token = jp.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if ("results".equals(name) && token == JsonToken.START_ARRAY) {
+                    page.results = readFiles(jp, ctxt, fields);
+                } else if ("next".equals(name)) {
+                    page.next = URI.create(jp.getText());
+                } else if ("previous".equals(name)) {
+                    page.previous = URI.create(jp.getText());
+                } else if ("total".equals(name)) {
+                    page.total = jp.getValueAsInt();
+                } else if ("per_page".equals(name)) {
+                    page.perPage = jp.getValueAsInt();
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            if (page.results == null) {
+                page.results = new ArrayList<FileData>();
+            }
+            return page;
+        }
+
+        private static List<FileData> readFiles(JsonParser jp, DeserializationContext ctxt, Set<FileField> fields)
+                throws IOException {
+            List<FileData> files = new ArrayList<FileData>();
+            JsonToken token;
+            while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_OBJECT) {
+                    files.add(readFile(jp, ctxt, fields));
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            return files;
+        }
+
+        private static FileData readFile(JsonParser jp, DeserializationContext ctxt, Set<FileField> fields)
+                throws IOException {
+            FileData data = new FileData();
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                FileField field = FileField.forJsonName(jp.currentName());
+                JsonToken token = jp.nextToken();
+                if (field == null || token == JsonToken.VALUE_NULL || !fields.contains(field)) {
+                    jp.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case UUID:
+                        data.uuid = jp.getText();
+                        break;
+                    case URL:
+                        data.url = URI.create(jp.getText());
+                        break;
+                    case SIZE:
+                        data.size = jp.getValueAsLong();
+                        break;
+                    case SOURCE:
+                        data.source = jp.getText();
+                        break;
+                    case IS_READY:
+                        data.isReady = jp.getValueAsBoolean();
+                        break;
+                    case IS_IMAGE:
+                        data.isImage = jp.getValueAsBoolean();
+                        break;
+                    case MIME_TYPE:
+                        data.mimeType = jp.getText();
+                        break;
+                    case ORIGINAL_FILENAME:
+                        data.originalFilename = jp.getText();
+                        break;
+                    case ORIGINAL_FILE_URL:
+                        data.originalFileUrl = URI.create(jp.getText());
+                        break;
+                    case DATETIME_UPLOADED:
+                        data.datetimeUploaded = ctxt.parseDate(jp.getText());
+                        break;
+                    case DATETIME_STORED:
+                        data.datetimeStored = ctxt.parseDate(jp.getText());
+                        break;
+                    case DATETIME_REMOVED:
+                        data.datetimeRemoved = ctxt.parseDate(jp.getText());
+                        break;
+                    case IMAGE_INFO:
+                        data.imageInfo = ctxt.readValue(jp, File.ImageInfo.class);
+                        break;
+                    case VIDEO_INFO:
+                        data.videoInfo = ctxt.readValue(jp, File.VideoInfo.class);
+                        break;
+                    case REKOGNITION_INFO:
+                        data.rekognitionInfo = ctxt.readValue(jp, REKOGNITION_INFO_TYPE);
+                        break;
+                    case VARIATIONS:
+                        data.variations = ctxt.readValue(jp, VARIATIONS_TYPE);
+                        break;
+                    default:
+                        jp.skipChildren();
+                }
+            }
+            return data;
+        }
+    }
+}
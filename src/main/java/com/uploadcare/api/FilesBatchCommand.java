@@ -0,0 +1,238 @@
+package com.uploadcare.api;
+
+import com.uploadcare.data.BatchResultData;
+import com.uploadcare.data.FileData;
+import com.uploadcare.exceptions.UploadcareAuthenticationException;
+import com.uploadcare.exceptions.UploadcareInvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores or deletes many files by UUID, in batch requests of up to 100 files of which up to {@code parallelism} are
+ * sent at the same time.
+ *
+ * <pre>
+ * BatchResult result = client.filesBatch(uuids).parallelism(8).save();
+ * for (Map.Entry&lt;String, String&gt; problem : result.getProblems().entrySet()) {
+ *     log(problem.getKey(), problem.getValue());
+ * }
+ * </pre>
+ *
+ * A batch request that fails as a whole, for example because of a network or server error that outlasts the
+ * client's {@link RetryPolicy}, does not stop the others. Once all batches are done, only the UUIDs of failed
+ * batches are sent again, in new batches, up to {@code maxRetries} times. Problems the API reports for single files
+ * are final and not retried.
+ *
+ * Work runs on the client's executor, see {@link ClientBuilder#executor(java.util.concurrent.ExecutorService)}.
+ *
+ * @see Client#filesBatch(Collection)
+ */
+public class FilesBatchCommand {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    public static final int DEFAULT_MAX_RETRIES = 1;
+
+    private final Client client;
+
+    private final List<String> fileIds;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    FilesBatchCommand(Client client, Collection<String> fileIds) {
+        this.client = client;
+        this.fileIds = new ArrayList<String>(new LinkedHashSet<String>(fileIds));
+    }
+
+    /**
+     * @param parallelism Maximum number of batch requests sent at the same time
+     */
+    public FilesBatchCommand parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param maxRetries Number of times the UUIDs of failed batch requests are sent again, {@code 0} to not retry
+     */
+    public FilesBatchCommand maxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Marks the files as stored.
+     *
+     * @return Outcome per file
+     */
+    public BatchResult save() {
+        return execute(true);
+    }
+
+    /**
+     * Marks the files as deleted.
+     *
+     * @return Outcome per file
+     */
+    public BatchResult delete() {
+        return execute(false);
+    }
+
+    private BatchResult execute(boolean save) {
+        Map<String, File> files = new HashMap<String, File>();
+        Map<String, String> problems = new HashMap<String, String>();
+        Map<String, RuntimeException> failures = new HashMap<String, RuntimeException>();
+        List<String> pending = fileIds;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            Round round = new Round(save, pending);
+            round.start();
+            round.await();
+            files.putAll(round.files);
+            problems.putAll(round.problems);
+            failures.keySet().removeAll(pending);
+            pending = new ArrayList<String>();
+            for (Map.Entry<String, RuntimeException> failure : round.failures.entrySet()) {
+                failures.put(failure.getKey(), failure.getValue());
+                if (attempt < maxRetries && isRetryable(failure.getValue())) {
+                    pending.add(failure.getKey());
+                }
+            }
+        }
+
+        Map<String, File> orderedFiles = new LinkedHashMap<String, File>();
+        Map<String, String> orderedProblems = new LinkedHashMap<String, String>();
+        Map<String, RuntimeException> orderedFailures = new LinkedHashMap<String, RuntimeException>();
+        for (String fileId : fileIds) {
+            if (files.containsKey(fileId)) {
+                orderedFiles.put(fileId, files.get(fileId));
+            } else if (problems.containsKey(fileId)) {
+                orderedProblems.put(fileId, problems.get(fileId));
+            } else if (failures.containsKey(fileId)) {
+                orderedFailures.put(fileId, failures.get(fileId));
+            }
+        }
+        return new BatchResult(orderedFiles, orderedProblems, orderedFailures);
+    }
+
+    /**
+     * Requests rejected by the API would be rejected again.
+     */
+    private static boolean isRetryable(RuntimeException failure) {
+        return !(failure instanceof UploadcareInvalidRequestException
+                || failure instanceof UploadcareAuthenticationException);
+    }
+
+    /**
+     * One pass over a list of UUIDs, whose workers take the next batch until none are left.
+     */
+    private final class Round extends WorkerGroup {
+
+        private final boolean save;
+
+        private final List<String> ids;
+
+        private final int batches;
+
+        private final AtomicInteger nextBatch = new AtomicInteger();
+
+        // Guarded by this.
+        final Map<String, File> files = new HashMap<String, File>();
+
+        final Map<String, String> problems = new HashMap<String, String>();
+
+        final Map<String, RuntimeException> failures = new HashMap<String, RuntimeException>();
+
+        private RuntimeException rejection;
+
+        Round(boolean save, List<String> ids) {
+            super(client, "batch");
+            this.save = save;
+            this.ids = ids;
+            this.batches = (ids.size() + Client.MAX_SAVE_DELETE_BATCH_SIZE - 1) / Client.MAX_SAVE_DELETE_BATCH_SIZE;
+        }
+
+        void start() {
+            int workers = Math.min(parallelism, batches);
+            if (workers == 1) {
+                // A single worker needs no hand-off, and may itself be running on the executor.
+                runInCaller();
+            } else {
+                start(workers);
+            }
+        }
+
+        void work() {
+            int batch;
+            while (!isStopped() && (batch = nextBatch.getAndIncrement()) < batches) {
+                List<String> batchIds = batchIds(batch);
+                try {
+                    batchDone(batchIds, client.executeSaveDeleteBatchCommand(save, batchIds));
+                } catch (RuntimeException e) {
+                    batchFailed(batchIds, e);
+                }
+            }
+        }
+
+        /**
+         * Leaves the batches to the workers already running, if any.
+         */
+        @Override
+        synchronized void rejected(RuntimeException e) {
+            if (rejection == null) {
+                rejection = e;
+            }
+        }
+
+        @Override
+        void finished(RuntimeException failure) {
+            RuntimeException e = failure != null ? failure : rejection;
+            if (e == null) {
+                return;
+            }
+            // No worker is left to send the remaining batches.
+            int batch;
+            while ((batch = nextBatch.getAndIncrement()) < batches) {
+                batchFailed(batchIds(batch), e);
+            }
+        }
+
+        private List<String> batchIds(int batch) {
+            int offset = batch * Client.MAX_SAVE_DELETE_BATCH_SIZE;
+            return ids.subList(offset, Math.min(offset + Client.MAX_SAVE_DELETE_BATCH_SIZE, ids.size()));
+        }
+
+        private synchronized void batchDone(List<String> batchIds, BatchResultData data) {
+            if (data.problems != null) {
+                problems.putAll(data.problems);
+            }
+            if (data.result != null) {
+                for (FileData fileData : data.result) {
+                    files.put(fileData.uuid, new File(client, fileData));
+                }
+            }
+            for (String fileId : batchIds) {
+                if (!files.containsKey(fileId) && !problems.containsKey(fileId)) {
+                    problems.put(fileId, "Missing in the batch result");
+                }
+            }
+        }
+
+        private synchronized void batchFailed(List<String> batchIds, RuntimeException e) {
+            for (String fileId : batchIds) {
+                failures.put(fileId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareInvalidRequestException;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects single files to store or delete, from any number of threads, into batch requests of up to 100 files.
+ *
+ * A batch is sent once 100 files are waiting or the first of them has waited for the linger time, whichever comes
+ * first, so a steady stream of calls costs one request per 100 files at the price of a short delay. Each call returns
+ * a {@link Future} completed from the batch result with the stored or deleted file, or failed with the problem the
+ * API reported for the file, or with the failure of the whole batch request.
+ *
+ * <pre>
+ * FilesBatcher batcher = new FilesBatcher(client);
+ * // On any upload worker:
+ * batcher.save(uploadedFile.getFileId());
+ * // On shutdown, after the workers stopped:
+ * batcher.close();
+ * </pre>
+ *
+ * Batches are sent on the client's executor, see {@link ClientBuilder#executor(java.util.concurrent.ExecutorService)},
+ * and failed batch requests are retried once as by {@link FilesBatchCommand}. The optional {@link FutureCallback} is
+ * invoked on the thread that sent the batch.
+ */
+public class FilesBatcher implements Closeable {
+
+    /**
+     * Default time a file waits for others to join its batch, in milliseconds.
+     */
+    public static final long DEFAULT_LINGER = 20L;
+
+    private final Client client;
+
+    private final long lingerNanos;
+
+    private final Batches saves = new Batches(true);
+
+    private final Batches deletes = new Batches(false);
+
+    /**
+     * @param client Uploadcare client sending the batches
+     */
+    public FilesBatcher(Client client) {
+        this(client, DEFAULT_LINGER);
+    }
+
+    /**
+     * @param client Uploadcare client sending the batches
+     * @param linger Time a file waits for others to join its batch, in milliseconds, {@code 0} to send the files
+     *               waiting whenever a request can be sent
+     */
+    public FilesBatcher(Client client, long linger) {
+        this.client = client;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(linger);
+    }
+
+    /**
+     * Marks a file as stored with the next batch.
+     *
+     * @param fileId Resource UUID
+     * @return Future stored File resource
+     */
+    public Future<File> save(String fileId) {
+        return save(fileId, null);
+    }
+
+    /**
+     * Marks a file as stored with the next batch.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future stored File resource
+     */
+    public Future<File> save(String fileId, FutureCallback<File> callback) {
+        return saves.add(fileId, callback);
+    }
+
+    /**
+     * Marks a file as deleted with the next batch.
+     *
+     * @param fileId Resource UUID
+     * @return Future deleted File resource
+     */
+    public Future<File> delete(String fileId) {
+        return delete(fileId, null);
+    }
+
+    /**
+     * Marks a file as deleted with the next batch.
+     *
+     * @param fileId   Resource UUID
+     * @param callback Callback notified on completion, may be {@code null}
+     * @return Future deleted File resource
+     */
+    public Future<File> delete(String fileId, FutureCallback<File> callback) {
+        return deletes.add(fileId, callback);
+    }
+
+    /**
+     * Sends the files waiting without waiting for the linger time to pass.
+     */
+    public void flush() {
+        saves.flush();
+        deletes.flush();
+    }
+
+    /**
+     * Sends the files waiting and rejects further calls. Does not wait for the batches to complete.
+     */
+    public void close() {
+        saves.close();
+        deletes.close();
+    }
+
+    private static final class Entry {
+
+        final String fileId;
+
+        final BasicFuture<File> future;
+
+        final long addedAt;
+
+        Entry(String fileId, BasicFuture<File> future, long addedAt) {
+            this.fileId = fileId;
+            this.future = future;
+            this.addedAt = addedAt;
+        }
+    }
+
+    /**
+     * Files waiting to be stored, or deleted, and the worker waiting to send them. At most one worker lingers at a
+     * time; it hands the files left over after taking a batch to a new worker.
+     */
+    private final class Batches implements Runnable {
+
+        private final boolean save;
+
+        // Guarded by this.
+        private List<Entry> pending = new ArrayList<Entry>();
+
+        private boolean scheduled;
+
+        private boolean flushing;
+
+        private boolean closed;
+
+        Batches(boolean save) {
+            this.save = save;
+        }
+
+        Future<File> add(String fileId, FutureCallback<File> callback) {
+            BasicFuture<File> future = new BasicFuture<File>(callback);
+            synchronized (this) {
+                if (closed) {
+                    throw new UploadcareApiException("Batcher is closed");
+                }
+                pending.add(new Entry(fileId, future, System.nanoTime()));
+                if (pending.size() >= Client.MAX_SAVE_DELETE_BATCH_SIZE) {
+                    notifyAll();
+                }
+                schedule();
+            }
+            return future;
+        }
+
+        synchronized void flush() {
+            if (!pending.isEmpty()) {
+                flushing = true;
+                notifyAll();
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            flush();
+        }
+
+        /**
+         * Starts a worker for the files waiting, unless one is running. Must be called with the lock held.
+         */
+        private void schedule() {
+            if (scheduled || pending.isEmpty()) {
+                return;
+            }
+            scheduled = true;
+            try {
+                client.getExecutor().execute(this);
+            } catch (RuntimeException e) {
+                // Rejected, or the client is closed.
+                scheduled = false;
+                List<Entry> rejected = pending;
+                pending = new ArrayList<Entry>();
+                RuntimeException failure = e instanceof RejectedExecutionException
+                        ? new UploadcareApiException("Batch rejected, the client may be closed", e) : e;
+                for (Entry entry : rejected) {
+                    entry.future.failed(failure);
+                }
+            }
+        }
+
+        public void run() {
+            List<Entry> batch = takeBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<String> fileIds = new ArrayList<String>(batch.size());
+            for (Entry entry : batch) {
+                fileIds.add(entry.fileId);
+            }
+            BatchResult result;
+            try {
+                FilesBatchCommand command = client.filesBatch(fileIds).parallelism(1);
+                result = save ? command.save() : command.delete();
+            } catch (RuntimeException e) {
+                for (Entry entry : batch) {
+                    entry.future.failed(e);
+                }
+                return;
+            }
+            for (Entry entry : batch) {
+                File file = result.getFiles().get(entry.fileId);
+                if (file != null) {
+                    entry.future.completed(file);
+                    continue;
+                }
+                String problem = result.getProblems().get(entry.fileId);
+                if (problem != null) {
+                    entry.future.failed(new UploadcareInvalidRequestException(entry.fileId + ": " + problem));
+                } else {
+                    entry.future.failed(result.getFailures().get(entry.fileId));
+                }
+            }
+        }
+
+        /**
+         * Waits until a full batch is waiting, the first file has lingered long enough or a flush was requested, and
+         * takes up to 100 files.
+         */
+        private synchronized List<Entry> takeBatch() {
+            try {
+                while (!pending.isEmpty() && pending.size() < Client.MAX_SAVE_DELETE_BATCH_SIZE && !flushing) {
+                    long remaining = pending.get(0).addedAt + lingerNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                int size = Math.min(pending.size(), Client.MAX_SAVE_DELETE_BATCH_SIZE);
+                List<Entry> batch = new ArrayList<Entry>(pending.subList(0, size));
+                pending.subList(0, size).clear();
+                if (pending.isEmpty()) {
+                    flushing = false;
+                }
+                return batch;
+            } finally {
+                scheduled = false;
+                schedule();
+            }
+        }
+    }
+}
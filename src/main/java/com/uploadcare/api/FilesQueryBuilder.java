@@ -1,13 +1,22 @@
 package com.uploadcare.api;
 
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.uploadcare.data.FilePageData;
+import com.uploadcare.index.MimeTypeDictionary;
 import com.uploadcare.urls.*;
+import org.apache.http.client.utils.URIBuilder;
+import org.reactivestreams.Publisher;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+
+import static com.uploadcare.urls.UrlUtils.trustedBuild;
 
 /**
  * File resource request builder.
@@ -20,6 +29,10 @@ public class FilesQueryBuilder implements PaginatedQueryBuilder<File> {
 
     private final Client client;
     private final HashMap<String, UrlParameter> parameters = new HashMap<String, UrlParameter>();
+    private int prefetch;
+    private ListingCursor cursor;
+    private AdaptivePageSize pageSize;
+    private Set<FileField> fields;
 
     /**
      * Initializes a new builder for the given client.
@@ -119,8 +132,84 @@ public class FilesQueryBuilder implements PaginatedQueryBuilder<File> {
         return this;
     }
 
+    /**
+     * Sets the number of files returned per page, which is 100 by default.
+     *
+     * @param limit Page size, the API allows up to 1000
+     */
+    public FilesQueryBuilder limit(int limit) {
+        parameters.put("limit", new FilesLimitParameter(limit));
+        return this;
+    }
+
+    /**
+     * Adapts the page size to the time and size of each page received, starting with the size set by
+     * {@link #limit(int)}, so that fast listings take fewer round trips while slow pages stay clear of the request
+     * timeout.
+     *
+     * @param pageSize Bounds and targets of the page size, or {@code null} to keep the page size fixed
+     */
+    public FilesQueryBuilder adaptivePageSize(AdaptivePageSize pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Limits the metadata of the files returned to the given fields, and the UUID. Other fields of each file,
+     * including nested image and video info, are skipped while the response is parsed and left empty, which saves
+     * processing time and memory on large listings.
+     *
+     * @param fields Fields to keep
+     */
+    public FilesQueryBuilder fields(FileField... fields) {
+        this.fields = EnumSet.noneOf(FileField.class);
+        this.fields.addAll(Arrays.asList(fields));
+        return this;
+    }
+
+    /**
+     * Fetches the given number of pages ahead in the background while results are consumed, so that a scan waits
+     * for the network only when it is faster than the API. At most that many pages are held in memory.
+     *
+     * @param pages Number of pages fetched ahead, {@code 0} (the default) to fetch pages on demand
+     */
+    public FilesQueryBuilder prefetch(int pages) {
+        this.prefetch = pages;
+        return this;
+    }
+
+    /**
+     * Resumes the listing from the position of a cursor taken from an earlier iterator of the same query, see
+     * {@link ListingIterator#getCursor()}. Filters must be set the same way as for the earlier listing.
+     *
+     * @param cursor Position to resume from, or {@code null} to start with the first page
+     */
+    public FilesQueryBuilder resumeFrom(ListingCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    /**
+     * Creates a scan of the files uploaded within the given time range, split into shards that are listed
+     * concurrently. Filters, field projections and the page size set on this builder apply to the scan; the ordering
+     * is always by upload time, the upload time is always kept and the page size is not adapted.
+     *
+     * @param from Lower bound of the upload time, inclusive
+     * @param to   Upper bound of the upload time, exclusive
+     */
+    public ParallelFilesScan parallelScan(Date from, Date to) {
+        ObjectReader reader = pageReader();
+        if (fields != null && !fields.contains(FileField.DATETIME_UPLOADED)) {
+            // Shards are bounded by upload time.
+            EnumSet<FileField> scanFields = EnumSet.of(FileField.DATETIME_UPLOADED);
+            scanFields.addAll(fields);
+            reader = FilePageProjection.reader(client, scanFields);
+        }
+        return new ParallelFilesScan(client, parameters, reader, from, to);
+    }
+
     public Iterable<File> asIterable() {
-        URI url = Urls.apiFiles();
+        URI url = client.getEndpoints().apiFiles();
         RequestHelper requestHelper = client.getRequestHelper();
         FileDataWrapper dataWrapper = new FileDataWrapper(client);
 
@@ -128,8 +217,46 @@ public class FilesQueryBuilder implements PaginatedQueryBuilder<File> {
                 url,
                 parameters.values(),
                 true,
-                FilePageData.class,
-                dataWrapper);
+                pageReader(),
+                dataWrapper,
+                prefetch,
+                cursor,
+                pageSize);
+    }
+
+    /**
+     * Returns an iterator over the files whose position can be saved with {@link ListingIterator#getCursor()}, to
+     * resume the listing later with {@link #resumeFrom(ListingCursor)}.
+     *
+     * @throws IllegalArgumentException if the cursor given to {@link #resumeFrom(ListingCursor)} belongs to a
+     *                                  different query
+     */
+    public ListingIterator<File> listingIterator() {
+        return client.getRequestHelper().paginatedIterator(
+                client.getEndpoints().apiFiles(),
+                parameters.values(),
+                true,
+                pageReader(),
+                new FileDataWrapper(client),
+                prefetch,
+                cursor,
+                pageSize);
+    }
+
+    /**
+     * Returns a Reactive Streams publisher of the files, which requests pages from the API only as the subscriber's
+     * demand requires and holds at most one page in memory. On Java 9 and later it can be adapted to a
+     * {@code java.util.concurrent.Flow.Publisher} with {@code org.reactivestreams.FlowAdapters}.
+     */
+    public Publisher<File> asPublisher() {
+        return client.getRequestHelper().paginatedPublisher(
+                client.getEndpoints().apiFiles(),
+                parameters.values(),
+                true,
+                pageReader(),
+                new FileDataWrapper(client),
+                cursor,
+                pageSize);
     }
 
     public List<File> asList() {
@@ -139,4 +266,33 @@ public class FilesQueryBuilder implements PaginatedQueryBuilder<File> {
         }
         return files;
     }
+
+    /**
+     * Returns a cursor over the files that decodes each file into reused fields instead of creating objects, with
+     * MIME types coded by a new dictionary.
+     */
+    public FileCursor cursor() {
+        return cursor(new MimeTypeDictionary());
+    }
+
+    /**
+     * Returns a cursor over the files that decodes each file into reused fields instead of creating objects. Filters
+     * and the page size set by {@link #limit(int)} apply; prefetching, adaptive page sizes, field projections and
+     * {@link #resumeFrom(ListingCursor)} do not.
+     *
+     * @param mimeTypes Dictionary coding the MIME types, e.g. the one of a {@link com.uploadcare.index.FileStore}
+     */
+    public FileCursor cursor(MimeTypeDictionary mimeTypes) {
+        URIBuilder builder = new URIBuilder(client.getEndpoints().apiFiles());
+        RequestHelper.setQueryParameters(builder, parameters.values());
+        return new FileCursor(client.getRequestHelper(), client.getObjectMapper().getFactory(), trustedBuild(builder),
+                mimeTypes);
+    }
+
+    private ObjectReader pageReader() {
+        if (fields == null) {
+            return client.getObjectReader(FilePageData.class);
+        }
+        return FilePageProjection.reader(client, fields);
+    }
 }
@@ -65,7 +65,7 @@ public class Group {
      */
     public Group save() {
         client.saveGroup(getId());
-        return client.getGroup(getId());
+        return client.refreshGroup(getId());
     }
 
     @Override
@@ -2,10 +2,11 @@ package com.uploadcare.api;
 
 import com.uploadcare.data.GroupPageData;
 import com.uploadcare.urls.FilesFromParameter;
+import com.uploadcare.urls.FilesLimitParameter;
 import com.uploadcare.urls.FilesOrderParameter;
 import com.uploadcare.urls.UrlParameter;
 import com.uploadcare.urls.UrlParameter.Order;
-import com.uploadcare.urls.Urls;
+import org.reactivestreams.Publisher;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -23,6 +24,9 @@ public class GroupQueryBuilder implements PaginatedQueryBuilder<Group> {
 
     private final Client client;
     private final List<UrlParameter> parameters = new ArrayList<UrlParameter>();
+    private int prefetch;
+    private ListingCursor cursor;
+    private AdaptivePageSize pageSize;
 
     /**
      * Initializes a new builder for the given client.
@@ -52,12 +56,78 @@ public class GroupQueryBuilder implements PaginatedQueryBuilder<Group> {
         return this;
     }
 
+    /**
+     * Sets the number of groups returned per page, which is 100 by default.
+     *
+     * @param limit Page size, the API allows up to 1000
+     */
+    public GroupQueryBuilder limit(int limit) {
+        parameters.add(new FilesLimitParameter(limit));
+        return this;
+    }
+
+    /**
+     * Adapts the page size to the time and size of each page received, starting with the size set by
+     * {@link #limit(int)}, so that fast listings take fewer round trips while slow pages stay clear of the request
+     * timeout.
+     *
+     * @param pageSize Bounds and targets of the page size, or {@code null} to keep the page size fixed
+     */
+    public GroupQueryBuilder adaptivePageSize(AdaptivePageSize pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Fetches the given number of pages ahead in the background while results are consumed, so that a scan waits
+     * for the network only when it is faster than the API. At most that many pages are held in memory.
+     *
+     * @param pages Number of pages fetched ahead, {@code 0} (the default) to fetch pages on demand
+     */
+    public GroupQueryBuilder prefetch(int pages) {
+        this.prefetch = pages;
+        return this;
+    }
+
+    /**
+     * Resumes the listing from the position of a cursor taken from an earlier iterator of the same query, see
+     * {@link ListingIterator#getCursor()}. Filters must be set the same way as for the earlier listing.
+     *
+     * @param cursor Position to resume from, or {@code null} to start with the first page
+     */
+    public GroupQueryBuilder resumeFrom(ListingCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
     @Override
     public Iterable<Group> asIterable() {
-        URI url = Urls.apiGroups();
+        URI url = client.getEndpoints().apiGroups();
         RequestHelper requestHelper = client.getRequestHelper();
         GroupDataWrapper dataWrapper = new GroupDataWrapper(client);
-        return requestHelper.executePaginatedQuery(url, parameters, true, GroupPageData.class, dataWrapper);
+        return requestHelper.executePaginatedQuery(url, parameters, true, GroupPageData.class, dataWrapper,
+                prefetch, cursor, pageSize);
+    }
+
+    /**
+     * Returns an iterator over the groups whose position can be saved with {@link ListingIterator#getCursor()}, to
+     * resume the listing later with {@link #resumeFrom(ListingCursor)}.
+     *
+     * @throws IllegalArgumentException if the cursor given to {@link #resumeFrom(ListingCursor)} belongs to a
+     *                                  different query
+     */
+    public ListingIterator<Group> listingIterator() {
+        return client.getRequestHelper().paginatedIterator(client.getEndpoints().apiGroups(), parameters, true,
+                GroupPageData.class, new GroupDataWrapper(client), prefetch, cursor, pageSize);
+    }
+
+    /**
+     * Returns a Reactive Streams publisher of the groups, which requests pages from the API only as the subscriber's
+     * demand requires and holds at most one page in memory.
+     */
+    public Publisher<Group> asPublisher() {
+        return client.getRequestHelper().paginatedPublisher(client.getEndpoints().apiGroups(), parameters, true,
+                GroupPageData.class, new GroupDataWrapper(client), cursor, pageSize);
     }
 
     @Override
@@ -0,0 +1,89 @@
+package com.uploadcare.api;
+
+import java.io.Serializable;
+import java.net.URI;
+
+/**
+ * Position within a file or group listing, which can be persisted and used to resume the listing later, e.g. after a
+ * long scan was interrupted.
+ *
+ * A cursor holds the query of the listing, the URL of the page being consumed and the number of results of that page
+ * already returned. Resuming fetches that page again and skips those results. If files are added or removed in the
+ * meantime within that page, a few results may be returned twice or skipped.
+ *
+ * <pre>
+ * ListingIterator&lt;File&gt; files = client.getFiles().stored(true).resumeFrom(saved).listingIterator();
+ * while (files.hasNext()) {
+ *     process(files.next());
+ *     if (++count % 1000 == 0) {
+ *         save(files.getCursor());
+ *     }
+ * }
+ * </pre>
+ *
+ * @see ListingIterator#getCursor()
+ * @see FilesQueryBuilder#resumeFrom(ListingCursor)
+ * @see GroupQueryBuilder#resumeFrom(ListingCursor)
+ */
+public final class ListingCursor implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String query;
+
+    private final String page;
+
+    private final int offset;
+
+    ListingCursor(URI query, URI page, int offset) {
+        this.query = query.toString();
+        this.page = page != null ? page.toString() : null;
+        this.offset = offset;
+    }
+
+    /**
+     * @return URL of the first page of the listing, including its query parameters
+     */
+    public URI getQuery() {
+        return URI.create(query);
+    }
+
+    /**
+     * @return URL of the page to resume from, or {@code null} if the listing is finished
+     */
+    public URI getPage() {
+        return page != null ? URI.create(page) : null;
+    }
+
+    /**
+     * @return Number of results of the page already returned
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return {@code true} if all results of the listing have been returned
+     */
+    public boolean isFinished() {
+        return page == null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was taken from a listing with a different query
+     */
+    void checkQuery(URI firstPage) {
+        if (!query.equals(firstPage.toString())) {
+            throw new IllegalArgumentException("Cursor belongs to a different query: " + query);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListingCursor{" +
+                "query=" + query +
+                ", page=" + page +
+                ", offset=" + offset +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package com.uploadcare.api;
+
+import java.util.Iterator;
+
+/**
+ * Iterator over a file or group listing that can tell its position.
+ */
+public interface ListingIterator<T> extends Iterator<T> {
+
+    /**
+     * Returns the position after the last result returned by {@link #next()}, from which a new iterator can resume
+     * the listing.
+     */
+    ListingCursor getCursor();
+}
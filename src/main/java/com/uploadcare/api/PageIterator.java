@@ -0,0 +1,108 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.DataWrapper;
+import com.uploadcare.data.PageData;
+
+import org.apache.http.client.methods.HttpGet;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the results of a paginated query, fetching each page when the previous one has been consumed.
+ */
+final class PageIterator<T, U> implements ListingIterator<T> {
+
+    private final RequestHelper requestHelper;
+
+    private final URI firstPage;
+
+    private final boolean apiHeaders;
+
+    private final ObjectReader pageReader;
+
+    private final DataWrapper<T, U> dataWrapper;
+
+    private final PageSizer sizer;
+
+    private URI page;
+
+    private URI next;
+
+    private boolean more;
+
+    private int offset;
+
+    private int size;
+
+    private Iterator<U> pageIterator = Collections.<U>emptyList().iterator();
+
+    /**
+     * @param sizer  Adaptive page size, or {@code null}
+     * @param cursor Position to resume from, or {@code null} to start with the first page
+     */
+    PageIterator(
+            RequestHelper requestHelper,
+            URI firstPage,
+            boolean apiHeaders,
+            ObjectReader pageReader,
+            DataWrapper<T, U> dataWrapper,
+            PageSizer sizer,
+            ListingCursor cursor) {
+        this.requestHelper = requestHelper;
+        this.firstPage = firstPage;
+        this.apiHeaders = apiHeaders;
+        this.pageReader = pageReader;
+        this.dataWrapper = dataWrapper;
+        this.sizer = sizer;
+        if (cursor == null) {
+            getPage(firstPage, 0);
+        } else if (!cursor.isFinished()) {
+            getPage(cursor.getPage(), cursor.getOffset());
+        }
+    }
+
+    private void getPage(URI url, int skip) {
+        PageData<U> pageData = requestHelper.executePageQuery(new HttpGet(url), apiHeaders, pageReader, sizer);
+        List<U> results = pageData.getResults();
+        page = url;
+        more = pageData.hasMore();
+        next = sizer != null ? sizer.nextPage(pageData) : pageData.getNext();
+        size = results.size();
+        offset = Math.min(skip, size);
+        pageIterator = results.subList(offset, size).iterator();
+    }
+
+    public boolean hasNext() {
+        while (!pageIterator.hasNext()) {
+            if (!more) {
+                return false;
+            }
+            getPage(next, 0);
+        }
+        return true;
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        offset++;
+        return dataWrapper.wrap(pageIterator.next());
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ListingCursor getCursor() {
+        if (offset < size) {
+            return new ListingCursor(firstPage, page, offset);
+        }
+        return new ListingCursor(firstPage, more ? next : null, 0);
+    }
+}
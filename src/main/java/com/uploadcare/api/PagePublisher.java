@@ -0,0 +1,201 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.DataWrapper;
+import com.uploadcare.data.PageData;
+
+import org.apache.http.client.methods.HttpGet;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the results of a paginated query, fetching a page only when the subscriber has requested more results
+ * than the current page holds. At most one page per subscription is held in memory.
+ *
+ * Every subscription scans the query from its first page, or from the position of the cursor it was created with.
+ * Signals are delivered on the client's executor, one subscription at a time on a single thread.
+ */
+final class PagePublisher<T, U> implements Publisher<T> {
+
+    private final RequestHelper requestHelper;
+
+    private final URI startPage;
+
+    private final int skip;
+
+    private final boolean apiHeaders;
+
+    private final ObjectReader pageReader;
+
+    private final DataWrapper<T, U> dataWrapper;
+
+    private final AdaptivePageSize pageSize;
+
+    private final Executor executor;
+
+    PagePublisher(
+            RequestHelper requestHelper,
+            URI firstPage,
+            ListingCursor cursor,
+            boolean apiHeaders,
+            ObjectReader pageReader,
+            DataWrapper<T, U> dataWrapper,
+            AdaptivePageSize pageSize,
+            Executor executor) {
+        this.requestHelper = requestHelper;
+        if (cursor == null) {
+            this.startPage = firstPage;
+            this.skip = 0;
+        } else {
+            this.startPage = cursor.getPage();
+            this.skip = cursor.getOffset();
+        }
+        this.apiHeaders = apiHeaders;
+        this.pageReader = pageReader;
+        this.dataWrapper = dataWrapper;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Emits results from a drain loop that runs on the executor whenever demand arrives, so that signals are never
+     * delivered concurrently or recursively from {@link #request(long)}.
+     */
+    private final class PageSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super T> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+
+        private final PageSizer sizer =
+                pageSize != null && startPage != null ? new PageSizer(pageSize, startPage) : null;
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable invalidRequest;
+
+        // Accessed by the drain loop only.
+        private Iterator<U> results = Collections.<U>emptyList().iterator();
+
+        private URI next = startPage;
+
+        private boolean more = startPage != null;
+
+        private int toSkip = skip;
+
+        PageSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                long current;
+                long updated;
+                do {
+                    current = requested.get();
+                    updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, updated));
+            }
+            drain();
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        public void run() {
+            int missed = 1;
+            while (true) {
+                long demand = requested.get();
+                long emitted = 0;
+                while (!cancelled) {
+                    if (invalidRequest != null) {
+                        terminate(invalidRequest);
+                        return;
+                    }
+                    if (!results.hasNext()) {
+                        if (!more) {
+                            terminate(null);
+                            return;
+                        }
+                        if (emitted == demand) {
+                            break;
+                        }
+                        try {
+                            PageData<U> page = requestHelper.executePageQuery(new HttpGet(next), apiHeaders,
+                                    pageReader, sizer);
+                            List<U> pageResults = page.getResults();
+                            int from = Math.min(toSkip, pageResults.size());
+                            toSkip = 0;
+                            results = pageResults.subList(from, pageResults.size()).iterator();
+                            more = page.hasMore();
+                            next = sizer != null ? sizer.nextPage(page) : page.getNext();
+                        } catch (RuntimeException e) {
+                            terminate(e);
+                            return;
+                        }
+                        continue;
+                    }
+                    if (emitted == demand) {
+                        break;
+                    }
+                    subscriber.onNext(dataWrapper.wrap(results.next()));
+                    emitted++;
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = pendingDrains.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void terminate(Throwable failure) {
+            cancelled = true;
+            results = null;
+            if (failure != null) {
+                subscriber.onError(failure);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.uploadcare.api;
+
+import com.uploadcare.data.PageData;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+
+import java.net.URI;
+
+import static com.uploadcare.urls.UrlUtils.trustedBuild;
+
+/**
+ * Page size of one listing, adapted to each page received and applied to the URL of the next page.
+ */
+final class PageSizer {
+
+    /**
+     * Page size used by the API if none is requested.
+     */
+    static final int DEFAULT_LIMIT = 100;
+
+    private static final String LIMIT = "limit";
+
+    private final AdaptivePageSize settings;
+
+    private int limit;
+
+    PageSizer(AdaptivePageSize settings, URI firstPage) {
+        this.settings = settings;
+        this.limit = DEFAULT_LIMIT;
+        for (NameValuePair parameter : new URIBuilder(firstPage).getQueryParams()) {
+            if (LIMIT.equals(parameter.getName())) {
+                try {
+                    limit = Integer.parseInt(parameter.getValue());
+                } catch (NumberFormatException e) {
+                    // Keep the default.
+                }
+            }
+        }
+    }
+
+    /**
+     * Adapts the page size to a page received.
+     *
+     * @param nanos Time it took to fetch and parse the page
+     * @param bytes Decompressed size of the page
+     */
+    synchronized void pageReceived(PageData<?> page, long nanos, long bytes) {
+        int results = page.getResults().size();
+        if (results > 0 && page.hasMore()) {
+            limit = settings.nextLimit(limit, results, nanos, bytes);
+        }
+    }
+
+    /**
+     * Returns the URL of the next page with the current page size, or {@code null} after the last page.
+     */
+    synchronized URI nextPage(PageData<?> page) {
+        URI next = page.getNext();
+        if (next == null) {
+            return null;
+        }
+        URIBuilder builder = new URIBuilder(next);
+        builder.setParameter(LIMIT, Integer.toString(limit));
+        return trustedBuild(builder);
+    }
+}
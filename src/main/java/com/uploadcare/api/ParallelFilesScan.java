@@ -0,0 +1,416 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.FileData;
+import com.uploadcare.data.PageData;
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.urls.FilesFromParameter;
+import com.uploadcare.urls.FilesOrderParameter;
+import com.uploadcare.urls.UrlParameter;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.uploadcare.urls.UrlUtils.trustedBuild;
+
+/**
+ * Lists the files uploaded within a time range by splitting the range into shards that are scanned concurrently.
+ *
+ * Each shard is listed in upload order starting at its lower bound, until a file uploaded at or after its upper bound
+ * shows up. A shard found to be dense, i.e. one whose remaining range is estimated to span several more pages, is
+ * split in two while other workers are idle, so that skewed upload histories still keep all workers busy.
+ *
+ * <pre>
+ * client.getFiles().stored(true).parallelScan(from, to)
+ *         .parallelism(8)
+ *         .forEach(new ParallelFilesScan.PageCallback() {
+ *             public void onPage(Date shardFrom, Date shardTo, List&lt;File&gt; files) {
+ *                 index(files);
+ *             }
+ *         });
+ * </pre>
+ *
+ * Work runs on the client's executor, see {@link ClientBuilder#executor(java.util.concurrent.ExecutorService)}.
+ *
+ * @see FilesQueryBuilder#parallelScan(Date, Date)
+ */
+public class ParallelFilesScan {
+
+    public static final int DEFAULT_SHARDS = 16;
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Number of pages a shard is estimated to still span before it is split.
+     */
+    static final int MIN_SPLIT_PAGES = 4;
+
+    private static final Object END = new Object();
+
+    private final Client client;
+
+    private final Map<String, UrlParameter> parameters;
+
+    private final ObjectReader pageReader;
+
+    private final long from;
+
+    private final long to;
+
+    private int shards = DEFAULT_SHARDS;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Number of calls to {@link #cancel()}, which stop the runs started before them.
+     */
+    private final AtomicInteger cancellations = new AtomicInteger();
+
+    /**
+     * @param pageReader Reader of file pages, which must keep the upload time of each file
+     */
+    ParallelFilesScan(Client client, Map<String, UrlParameter> parameters, ObjectReader pageReader, Date from,
+            Date to) {
+        if (!from.before(to)) {
+            throw new IllegalArgumentException("Empty time range: " + from + " - " + to);
+        }
+        this.client = client;
+        this.parameters = new HashMap<String, UrlParameter>(parameters);
+        this.pageReader = pageReader;
+        this.parameters.put("ordering", new FilesOrderParameter(UrlParameter.Order.UPLOAD_TIME_ASC));
+        this.from = from.getTime();
+        this.to = to.getTime();
+    }
+
+    /**
+     * Called with the files of each page of a shard, in upload order within the shard. Pages of different shards are
+     * passed concurrently from different threads.
+     */
+    public interface PageCallback {
+
+        /**
+         * @param shardFrom Lower bound of the shard, inclusive
+         * @param shardTo   Upper bound of the shard, exclusive
+         * @param files     Files of one page within the shard, never empty
+         */
+        void onPage(Date shardFrom, Date shardTo, List<File> files);
+    }
+
+    /**
+     * @param shards Number of equal shards the time range is initially split into
+     */
+    public ParallelFilesScan shards(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be positive: " + shards);
+        }
+        this.shards = shards;
+        return this;
+    }
+
+    /**
+     * @param parallelism Maximum number of shards scanned at the same time
+     */
+    public ParallelFilesScan parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Scans all shards, passing the files to the callback, and returns when the scan is complete.
+     *
+     * @throws RuntimeException the first failure of a shard, which stops the scan
+     */
+    public void forEach(PageCallback callback) {
+        Scan scan = start(callback, null);
+        scan.await();
+    }
+
+    /**
+     * Returns an iterable over the files of all shards. Files are returned in no particular order; at most two pages
+     * per worker are buffered. An iteration that is not run to the end must be stopped with {@link #cancel()}, which
+     * an iterator interrupted while waiting for a page does itself.
+     */
+    public Iterable<File> asIterable() {
+        return new Iterable<File>() {
+            public Iterator<File> iterator() {
+                return new MergingIterator();
+            }
+        };
+    }
+
+    /**
+     * Stops the scans started so far; shards stop after the page they are working on. Scans started afterwards run
+     * normally.
+     */
+    public void cancel() {
+        cancellations.incrementAndGet();
+    }
+
+    private Scan start(PageCallback callback, MergingIterator merger) {
+        Scan scan = new Scan(callback, merger);
+        scan.start();
+        return scan;
+    }
+
+    /**
+     * State of one run, shared by its workers.
+     */
+    private final class Scan extends WorkerGroup {
+
+        private final PageCallback callback;
+
+        private final MergingIterator merger;
+
+        private final RequestHelper requestHelper = client.getRequestHelper();
+
+        private final FileDataWrapper dataWrapper = new FileDataWrapper(client);
+
+        private final int startCancellations = cancellations.get();
+
+        // Guarded by this.
+        final ArrayDeque<long[]> ranges = new ArrayDeque<long[]>();
+
+        private int waiting;
+
+        Scan(PageCallback callback, MergingIterator merger) {
+            super(client, "scan");
+            this.callback = callback;
+            this.merger = merger;
+        }
+
+        /**
+         * @return {@code true} once the scan failed or was cancelled, through this run or the builder
+         */
+        boolean isCancelled() {
+            return isStopped() || cancellations.get() != startCancellations;
+        }
+
+        void start() {
+            long span = to - from;
+            int count = (int) Math.max(1, Math.min(shards, span));
+            long start = from;
+            synchronized (this) {
+                for (int i = 1; i <= count; i++) {
+                    long end = i == count ? to : from + span * i / count;
+                    ranges.add(new long[]{start, end});
+                    start = end;
+                }
+            }
+            start(Math.min(parallelism, count));
+        }
+
+        void work() {
+            long[] range;
+            while ((range = nextRange()) != null) {
+                scanShard(range);
+            }
+        }
+
+        @Override
+        void finished(RuntimeException failure) {
+            if (merger != null) {
+                merger.finished(failure);
+            }
+        }
+
+        /**
+         * Waits for a range to scan, or returns {@code null} once no more can appear.
+         */
+        private synchronized long[] nextRange() {
+            while (ranges.isEmpty() && !isCancelled() && running - waiting > 1) {
+                waiting++;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop();
+                } finally {
+                    waiting--;
+                }
+            }
+            return isCancelled() ? null : ranges.poll();
+        }
+
+        private synchronized boolean splitWanted() {
+            return waiting > 0 && ranges.isEmpty();
+        }
+
+        private synchronized void addRange(long start, long end) {
+            ranges.add(new long[]{start, end});
+            notifyAll();
+        }
+
+        private void scanShard(long[] range) {
+            long start = range[0];
+            long end = range[1];
+            URIBuilder builder = new URIBuilder(client.getEndpoints().apiFiles());
+            Map<String, UrlParameter> query = new HashMap<String, UrlParameter>(parameters);
+            query.put("from", new FilesFromParameter(new Date(start)));
+            RequestHelper.setQueryParameters(builder, query.values());
+            URI url = trustedBuild(builder);
+
+            while (!isCancelled()) {
+                PageData<FileData> page = requestHelper.executePageQuery(new HttpGet(url), true, pageReader, null);
+                List<File> files = new ArrayList<File>(page.getResults().size());
+                boolean endReached = false;
+                long first = -1;
+                long last = start;
+                for (FileData data : page.getResults()) {
+                    long uploaded = data.datetimeUploaded.getTime();
+                    if (uploaded >= end) {
+                        endReached = true;
+                        break;
+                    }
+                    if (uploaded >= start) {
+                        files.add(dataWrapper.wrap(data));
+                        if (first < 0) {
+                            first = uploaded;
+                        }
+                        last = uploaded;
+                    }
+                }
+                if (!files.isEmpty()) {
+                    callback.onPage(new Date(start), new Date(end), files);
+                }
+                if (endReached || !page.hasMore()) {
+                    return;
+                }
+                // Estimate the pages left from the time span covered by this one.
+                long covered = Math.max(1, last - Math.max(first, start));
+                if ((end - last) / covered >= MIN_SPLIT_PAGES && splitWanted()) {
+                    long middle = last + (end - last) / 2;
+                    if (middle > last) {
+                        addRange(middle, end);
+                        end = middle;
+                    }
+                }
+                url = page.getNext();
+            }
+        }
+    }
+
+    /**
+     * Hands the pages of all shards over to the consumer through a bounded queue.
+     */
+    private final class MergingIterator implements Iterator<File>, PageCallback {
+
+        private final BlockingQueue<Object> pages = new ArrayBlockingQueue<Object>(2 * parallelism);
+
+        private Iterator<File> files = Collections.<File>emptyList().iterator();
+
+        private boolean done;
+
+        /**
+         * Failure of the scan or {@link #END}, set once all workers have stopped. It is kept out of the queue so that a
+         * full queue never holds it back.
+         */
+        private volatile Object last;
+
+        private final Scan scan;
+
+        MergingIterator() {
+            scan = new Scan(this, this);
+            scan.start();
+        }
+
+        public void onPage(Date shardFrom, Date shardTo, List<File> page) {
+            hand(page);
+        }
+
+        void finished(RuntimeException failure) {
+            last = failure != null ? failure : END;
+            // Wakes up a consumer waiting for a page, if there is room.
+            pages.offer(last);
+        }
+
+        /**
+         * Waits for room in the queue, unless the scan is cancelled and the consumer may have stopped taking pages.
+         */
+        private void hand(Object item) {
+            try {
+                while (!pages.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    if (scan.isCancelled()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scan.stop();
+            }
+        }
+
+        public boolean hasNext() {
+            while (!files.hasNext()) {
+                if (done) {
+                    return false;
+                }
+                Object page;
+                try {
+                    page = take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    scan.stop();
+                    throw new UploadcareApiException("Interrupted while waiting for the scan", e);
+                }
+                if (page == END) {
+                    done = true;
+                    return false;
+                }
+                if (page instanceof RuntimeException) {
+                    done = true;
+                    throw (RuntimeException) page;
+                }
+                @SuppressWarnings("unchecked")
+                List<File> list = (List<File>) page;
+                files = list.iterator();
+            }
+            return true;
+        }
+
+        /**
+         * Takes the next page, or the item ending the scan once the pages handed before it are taken.
+         */
+        private Object take() throws InterruptedException {
+            while (true) {
+                // Read before polling: all pages are queued by the time it is set.
+                Object end = last;
+                Object page = end != null ? pages.poll() : pages.poll(100, TimeUnit.MILLISECONDS);
+                if (page != null) {
+                    return page;
+                }
+                if (end != null) {
+                    return end;
+                }
+            }
+        }
+
+        public File next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return files.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.DataWrapper;
+import com.uploadcare.data.PageData;
+import com.uploadcare.exceptions.UploadcareApiException;
+
+import org.apache.http.client.methods.HttpGet;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Iterates over the results of a paginated query while the following pages are fetched in the background.
+ *
+ * Since each page links to the next one, pages are fetched one at a time, each as soon as the previous one has
+ * arrived, until {@code depth} pages are waiting to be consumed. Fetching resumes when the caller takes a page, so an
+ * abandoned iterator holds at most {@code depth} pages and no thread.
+ */
+final class PrefetchingPageIterator<T, U> implements ListingIterator<T> {
+
+    private final RequestHelper requestHelper;
+
+    private final URI firstPage;
+
+    private final boolean apiHeaders;
+
+    private final ObjectReader pageReader;
+
+    private final DataWrapper<T, U> dataWrapper;
+
+    private final PageSizer sizer;
+
+    private final Executor executor;
+
+    private final int depth;
+
+    private final Object lock = new Object();
+
+    // Guarded by lock.
+    private final ArrayDeque<FetchedPage<U>> pages = new ArrayDeque<FetchedPage<U>>();
+
+    private URI next;
+
+    private boolean more = true;
+
+    private boolean fetching;
+
+    private RuntimeException failure;
+
+    // Accessed by the consumer only.
+    private Iterator<U> results = Collections.<U>emptyList().iterator();
+
+    private FetchedPage<U> current;
+
+    private URI startPage;
+
+    private int offset;
+
+    private int size;
+
+    /**
+     * @param startPage URL of the page to start with
+     * @param skip      Number of results of that page to skip
+     * @param sizer     Adaptive page size, or {@code null}
+     */
+    PrefetchingPageIterator(
+            RequestHelper requestHelper,
+            URI firstPage,
+            URI startPage,
+            int skip,
+            boolean apiHeaders,
+            ObjectReader pageReader,
+            DataWrapper<T, U> dataWrapper,
+            PageSizer sizer,
+            Executor executor,
+            int depth) {
+        this.requestHelper = requestHelper;
+        this.firstPage = firstPage;
+        this.startPage = startPage;
+        this.offset = skip;
+        this.next = startPage;
+        this.apiHeaders = apiHeaders;
+        this.pageReader = pageReader;
+        this.dataWrapper = dataWrapper;
+        this.sizer = sizer;
+        this.executor = executor;
+        this.depth = depth;
+        synchronized (lock) {
+            fetchAhead();
+        }
+    }
+
+    public boolean hasNext() {
+        while (!results.hasNext()) {
+            FetchedPage<U> page = takePage();
+            if (page == null) {
+                return false;
+            }
+            List<U> pageResults = page.data.getResults();
+            size = pageResults.size();
+            // Only the first page is entered part way through.
+            offset = current == null ? Math.min(offset, size) : 0;
+            current = page;
+            results = pageResults.subList(offset, size).iterator();
+        }
+        return true;
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        offset++;
+        return dataWrapper.wrap(results.next());
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ListingCursor getCursor() {
+        if (current == null) {
+            return new ListingCursor(firstPage, startPage, offset);
+        }
+        if (offset < size) {
+            return new ListingCursor(firstPage, current.url, offset);
+        }
+        return new ListingCursor(firstPage, current.data.hasMore() ? current.next : null, 0);
+    }
+
+    /**
+     * Waits for the next page.
+     *
+     * @return Next page, or {@code null} after the last one
+     */
+    private FetchedPage<U> takePage() {
+        synchronized (lock) {
+            while (pages.isEmpty()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (!more && !fetching) {
+                    return null;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UploadcareApiException("Interrupted while waiting for the next page", e);
+                }
+            }
+            FetchedPage<U> page = pages.poll();
+            fetchAhead();
+            return page;
+        }
+    }
+
+    /**
+     * Starts fetching the next page unless it is already being fetched or enough pages are waiting. Must be called
+     * with the lock held.
+     */
+    private void fetchAhead() {
+        if (fetching || !more || failure != null || pages.size() >= depth) {
+            return;
+        }
+        fetching = true;
+        final URI url = next;
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    fetch(url);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fetching = false;
+            failure = new UploadcareApiException("Page prefetching rejected, the client may be closed", e);
+            lock.notifyAll();
+        }
+    }
+
+    private void fetch(URI url) {
+        PageData<U> page;
+        try {
+            page = requestHelper.executePageQuery(new HttpGet(url), apiHeaders, pageReader, sizer);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                fetching = false;
+                failure = e;
+                lock.notifyAll();
+            }
+            return;
+        }
+        synchronized (lock) {
+            fetching = false;
+            more = page.hasMore();
+            next = sizer != null ? sizer.nextPage(page) : page.getNext();
+            pages.add(new FetchedPage<U>(url, page, next));
+            fetchAhead();
+            lock.notifyAll();
+        }
+    }
+
+    private static final class FetchedPage<U> {
+
+        final URI url;
+
+        final PageData<U> data;
+
+        final URI next;
+
+        FetchedPage(URI url, PageData<U> data, URI next) {
+            this.url = url;
+            this.data = data;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.uploadcare.api;
+
+/**
+ * Limits the rate of requests a {@link Client} sends to Uploadcare.
+ *
+ * A single instance is shared by all requests of a client, across threads.
+ *
+ * @see TokenBucketRateLimiter
+ */
+public interface RateLimiter {
+
+    /**
+     * Blocks until the next request is allowed to be sent.
+     *
+     * @throws com.uploadcare.exceptions.UploadcareApiException if the thread is interrupted while waiting, in which
+     *                                                          case the request must not be sent
+     */
+    void acquire();
+
+    /**
+     * Notifies the limiter that the API throttled a request, so that no request is let through before the given
+     * delay passes.
+     *
+     * @param retryAfter Delay in milliseconds requested by the API
+     */
+    void throttled(long retryAfter);
+}
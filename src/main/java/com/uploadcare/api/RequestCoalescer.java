@@ -0,0 +1,174 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareAuthenticationException;
+import com.uploadcare.exceptions.UploadcareCircuitOpenException;
+import com.uploadcare.exceptions.UploadcareInvalidRequestException;
+import com.uploadcare.exceptions.UploadcareNetworkException;
+import com.uploadcare.exceptions.UploadcareNotFoundException;
+import com.uploadcare.exceptions.UploadcareServerException;
+import com.uploadcare.exceptions.UploadcareThrottledException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical GET requests share a single HTTP call: the first caller sends the request, callers
+ * arriving while it is in flight wait for it and receive the same parsed result. If the call fails, each waiting caller
+ * gets its own exception of the same type, caused by the one the first caller got.
+ *
+ * Requests are identical if they have the same URI, are both sent with or without API authentication and are
+ * mapped to the same type. Shared results must not be modified.
+ *
+ * @see Client#setRequestCoalescer(RequestCoalescer)
+ */
+public class RequestCoalescer {
+
+    private final ConcurrentMap<Key, Flight> flights = new ConcurrentHashMap<Key, Flight>();
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    /**
+     * @return Number of HTTP calls sent on behalf of one or more callers
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return Number of callers that received the result of a call sent by another caller
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    /**
+     * @return Number of calls currently in flight
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    interface Call<T> {
+
+        T execute();
+    }
+
+    <T> T execute(String uri, boolean apiHeaders, ObjectReader reader, Call<T> call) {
+        Key key = new Key(uri, apiHeaders, reader);
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedCalls.incrementAndGet();
+            @SuppressWarnings("unchecked")
+            T value = (T) existing.await();
+            return value;
+        }
+
+        calls.incrementAndGet();
+        try {
+            T value = call.execute();
+            flight.value = value;
+            flight.completed = true;
+            return value;
+        } catch (RuntimeException e) {
+            flight.failure = e;
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+
+    private static final class Flight {
+
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // Published to waiting callers by the latch.
+        Object value;
+
+        boolean completed;
+
+        RuntimeException failure;
+
+        Object await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UploadcareApiException("Interrupted while waiting for a coalesced request", e);
+            }
+            if (failure != null) {
+                throw copy(failure);
+            }
+            if (!completed) {
+                throw new UploadcareApiException("Coalesced request failed");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Returns an exception of the same type as the failure of the shared call, with the waiter's own stack trace.
+     */
+    private static RuntimeException copy(RuntimeException failure) {
+        RuntimeException copy;
+        String message = failure.getMessage();
+        if (failure instanceof UploadcareNotFoundException) {
+            copy = new UploadcareNotFoundException(message);
+        } else if (failure instanceof UploadcareInvalidRequestException) {
+            copy = new UploadcareInvalidRequestException(message);
+        } else if (failure instanceof UploadcareAuthenticationException) {
+            copy = new UploadcareAuthenticationException(message);
+        } else if (failure instanceof UploadcareThrottledException) {
+            copy = new UploadcareThrottledException(message, ((UploadcareThrottledException) failure).getRetryAfter());
+        } else if (failure instanceof UploadcareServerException) {
+            copy = new UploadcareServerException(message, ((UploadcareServerException) failure).getStatusCode());
+        } else if (failure instanceof UploadcareCircuitOpenException) {
+            copy = new UploadcareCircuitOpenException(((UploadcareCircuitOpenException) failure).getHost());
+        } else if (failure instanceof UploadcareNetworkException) {
+            return new UploadcareNetworkException(failure);
+        } else {
+            return new UploadcareApiException(message, failure);
+        }
+        copy.initCause(failure);
+        return copy;
+    }
+
+    private static final class Key {
+
+        private final String uri;
+
+        private final boolean apiHeaders;
+
+        private final ObjectReader reader;
+
+        Key(String uri, boolean apiHeaders, ObjectReader reader) {
+            this.uri = uri;
+            this.apiHeaders = apiHeaders;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return apiHeaders == other.apiHeaders && reader == other.reader && uri.equals(other.uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * uri.hashCode() + (apiHeaders ? 1 : 0);
+        }
+    }
+}
@@ -1,25 +1,36 @@
 package com.uploadcare.api;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.uploadcare.data.DataWrapper;
 import com.uploadcare.data.PageData;
 import com.uploadcare.exceptions.UploadcareApiException;
 import com.uploadcare.exceptions.UploadcareAuthenticationException;
+import com.uploadcare.exceptions.UploadcareCircuitOpenException;
 import com.uploadcare.exceptions.UploadcareInvalidRequestException;
 import com.uploadcare.exceptions.UploadcareNetworkException;
+import com.uploadcare.exceptions.UploadcareNotFoundException;
+import com.uploadcare.exceptions.UploadcareServerException;
+import com.uploadcare.exceptions.UploadcareThrottledException;
 import com.uploadcare.urls.UrlParameter;
 
 import com.uploadcare.urls.Urls;
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.util.EntityUtils;
+import org.reactivestreams.Publisher;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -30,15 +41,15 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 
 import javax.activation.MimetypesFileTypeMap;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 
 import static com.uploadcare.urls.UrlUtils.trustedBuild;
 
 /**
  * A helper class for doing API calls to the Uploadcare API. Supports API version 0.6.
  *
- * TODO Support of throttled requests needs to be added
+ * Requests pass through the client's {@link RateLimiter} and per-host {@link CircuitBreaker}, if any. Requests
+ * throttled by the API are retried after the delay given in the {@code Retry-After} header, network and server errors
+ * are retried as decided by the client's {@link RetryPolicy}.
  */
 public class RequestHelper {
 
@@ -58,7 +69,12 @@ public class RequestHelper {
 
     private static final String JSON_CONTENT_TYPE = "application/json";
 
-    private static final String MAC_ALGORITHM = "HmacSHA1";
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * Delay used when a throttled response carries no usable {@code Retry-After} header, in milliseconds.
+     */
+    private static final long DEFAULT_RETRY_AFTER = 1000L;
 
     RequestHelper(Client client) {
         this.client = client;
@@ -87,40 +103,24 @@ public class RequestHelper {
             requestBodyMD5 = EMPTY_MD5;
         }
 
-        StringBuilder sb = new StringBuilder();
-        String uriWithoutBase = request.getURI().getRawPath();
-        String query = request.getURI().getRawQuery();
-        if (query != null) {
-            uriWithoutBase += String.format("?%s", query);
-        }
-        sb.append(request.getMethod())
-                .append("\n").append(requestBodyMD5)
-                .append("\n").append(JSON_CONTENT_TYPE)
-                .append("\n").append(date)
-                .append("\n").append(uriWithoutBase);
-        byte[] secretKeyBytes;
-        if (client.getSecretKey() != null) {
-            secretKeyBytes = client.getSecretKey().getBytes();
-        } else {
-            throw new UploadcareAuthenticationException("Secret key is required for this request.");
-        }
-
-        SecretKeySpec signingKey = new SecretKeySpec(secretKeyBytes, MAC_ALGORITHM);
-        Mac mac = Mac.getInstance(MAC_ALGORITHM);
-        mac.init(signingKey);
-        byte[] hmacBytes = mac.doFinal(sb.toString().getBytes());
-        return Hex.encodeHexString(hmacBytes);
+        return client.getRequestSigner().sign(
+                request.getMethod(),
+                requestBodyMD5,
+                JSON_CONTENT_TYPE,
+                date,
+                request.getURI());
     }
 
     public void setApiHeaders(HttpUriRequest request, String requestBodyMD5) {
-        Calendar calendar = new GregorianCalendar(GMT);
-        String formattedDate = rfc2822(calendar.getTime());
+        String formattedDate = RequestSigner.currentDate();
 
-        request.addHeader("Content-Type", JSON_CONTENT_TYPE);
+        request.setHeader("Content-Type", JSON_CONTENT_TYPE);
         request.setHeader("Accept", "application/vnd.uploadcare-v0.6+json");
         request.setHeader("Date", formattedDate);
-        request.setHeader("User-Agent",
-                String.format("javauploadcare/%s/%s", LIBRARY_VERSION, client.getPublicKey()));
+        request.setHeader("User-Agent", client.getUserAgent());
+        if (client.isCompressionEnabled()) {
+            request.setHeader("Accept-Encoding", ACCEPT_ENCODING);
+        }
 
         String authorization;
         if (client.isSimpleAuth()) {
@@ -156,44 +156,130 @@ public class RequestHelper {
             boolean apiHeaders,
             Class<T> dataClass,
             String requestBodyMD5) {
-        if (apiHeaders) {
-            setApiHeaders(request, requestBodyMD5);
+        return executeQuery(request, apiHeaders, client.getObjectReader(dataClass), requestBodyMD5, null);
+    }
+
+    /**
+     * Fetches a page of a paginated query, adapting the page size of the query to it.
+     *
+     * @param sizer Page size of the query, or {@code null}
+     */
+    <U> PageData<U> executePageQuery(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            ObjectReader pageReader,
+            PageSizer sizer) {
+        return executeQuery(request, apiHeaders, pageReader, null, sizer);
+    }
+
+    public <T> T executeQuery(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            TypeReference<T> dataType,
+            String requestBodyMD5) {
+        return executeQuery(request, apiHeaders, client.getObjectReader(dataType), requestBodyMD5, null);
+    }
+
+    /**
+     * Executes the request and maps the response body with the given reader.
+     *
+     * The body is parsed straight from the response stream, so large pages are never buffered as a whole String.
+     * GET requests for single resources are sent conditionally if the client has a {@link ValidatorCache} holding a
+     * previous response, and share a single call with concurrent identical requests if it has a
+     * {@link RequestCoalescer}. Each caller sizes its own next page, also when it received a shared response.
+     */
+    private <T> T executeQuery(
+            final HttpUriRequest request,
+            final boolean apiHeaders,
+            final ObjectReader reader,
+            final String requestBodyMD5,
+            final PageSizer sizer) {
+        RequestCoalescer coalescer = client.getRequestCoalescer();
+        Received<T> received;
+        if (coalescer == null || !HttpGet.METHOD_NAME.equals(request.getMethod())) {
+            received = send(request, apiHeaders, reader, requestBodyMD5);
+        } else {
+            received = coalescer.execute(request.getURI().toString(), apiHeaders, reader,
+                    new RequestCoalescer.Call<Received<T>>() {
+                        public Received<T> execute() {
+                            return send(request, apiHeaders, reader, requestBodyMD5);
+                        }
+                    });
         }
+        if (sizer != null) {
+            sizer.pageReceived((PageData<?>) received.value, received.nanos, received.bytes);
+        }
+        return received.value;
+    }
+
+    private <T> Received<T> send(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            ObjectReader reader,
+            String requestBodyMD5) {
+        RequestTrace trace = new RequestTrace(request);
+        ValidatorCache cache = HttpGet.METHOD_NAME.equals(request.getMethod()) && ValidatorCache.isCacheable(reader)
+                ? client.getValidatorCache() : null;
+        ValidatorCache.CachedResponse cached = cache != null ? cache.prepare(request, reader) : null;
         try {
-            CloseableHttpResponse response = client.getHttpClient().execute(request);
-            checkResponseStatus(response);
+            CloseableHttpResponse response = execute(request, apiHeaders, requestBodyMD5, trace);
             try {
-                HttpEntity entity = response.getEntity();
-                String data = EntityUtils.toString(entity);
-                return client.getObjectMapper().readValue(data, dataClass);
+                if (cached != null && trace.statusCode == HttpStatus.SC_NOT_MODIFIED) {
+                    @SuppressWarnings("unchecked")
+                    T value = (T) cache.hit(cached);
+                    return new Received<T>(value, trace.elapsedNanos(), 0);
+                }
+                T value = reader.readValue(trace.receive(response));
+                if (cache != null) {
+                    cache.store(request, response, reader, value);
+                }
+                return new Received<T>(value, trace.elapsedNanos(), trace.bytesDecoded());
             } finally {
                 response.close();
             }
+        } catch (UploadcareInvalidRequestException e) {
+            if (cached != null) {
+                // The resource is gone, or no longer accessible with these credentials.
+                cache.remove(request);
+            }
+            throw e;
         } catch (IOException e) {
             throw new UploadcareNetworkException(e);
+        } finally {
+            trace.finish(client.getMetrics());
         }
     }
 
-    public <T> T executeQuery(
-            HttpUriRequest request,
-            boolean apiHeaders,
-            TypeReference<T> dataType,
-            String requestBodyMD5) {
-        if (apiHeaders) {
-            setApiHeaders(request, requestBodyMD5);
-        }
+    /**
+     * Sends a GET request and returns the response body, to be parsed while it is received. Closing the stream
+     * closes the response; the caller drains it first if the connection should be reused.
+     */
+    InputStream openStream(URI url, boolean apiHeaders) {
+        HttpGet request = new HttpGet(url);
+        final RequestTrace trace = new RequestTrace(request);
         try {
-            CloseableHttpResponse response = client.getHttpClient().execute(request);
-            checkResponseStatus(response);
+            final CloseableHttpResponse response = execute(request, apiHeaders, null, trace);
             try {
-                HttpEntity entity = response.getEntity();
-                String data = EntityUtils.toString(entity);
-                return client.getObjectMapper().readValue(data, dataType);
-            } finally {
+                return new FilterInputStream(trace.receive(response)) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            response.close();
+                        } finally {
+                            trace.finish(client.getMetrics());
+                        }
+                    }
+                };
+            } catch (IOException e) {
                 response.close();
+                throw e;
             }
         } catch (IOException e) {
+            trace.finish(client.getMetrics());
             throw new UploadcareNetworkException(e);
+        } catch (RuntimeException e) {
+            trace.finish(client.getMetrics());
+            throw e;
         }
     }
 
@@ -209,57 +295,147 @@ public class RequestHelper {
             final boolean apiHeaders,
             final Class<? extends PageData<U>> dataClass,
             final DataWrapper<T, U> dataWrapper) {
-        return new Iterable<T>() {
-            public Iterator<T> iterator() {
-                return new Iterator<T>() {
-                    private URI next = null;
+        return executePaginatedQuery(url, urlParameters, apiHeaders, dataClass, dataWrapper, 0);
+    }
 
-                    private boolean more;
+    public <T, U> Iterable<T> executePaginatedQuery(
+            final URI url,
+            final Collection<UrlParameter> urlParameters,
+            final boolean apiHeaders,
+            final Class<? extends PageData<U>> dataClass,
+            final DataWrapper<T, U> dataWrapper,
+            final int prefetch) {
+        return executePaginatedQuery(url, urlParameters, apiHeaders, dataClass, dataWrapper, prefetch, null, null);
+    }
 
-                    private Iterator<U> pageIterator;
+    /**
+     * Returns an iterable over all pages of a paginated query. Its iterators are {@link ListingIterator}s.
+     *
+     * @param prefetch Number of pages fetched ahead in the background while the current one is consumed, {@code 0}
+     *                 to fetch each page when the previous one has been consumed
+     * @param cursor   Position to resume the query from, or {@code null} to start with the first page
+     * @param pageSize Adaptive page size, or {@code null} to keep the page size of the query
+     */
+    public <T, U> Iterable<T> executePaginatedQuery(
+            final URI url,
+            final Collection<UrlParameter> urlParameters,
+            final boolean apiHeaders,
+            final Class<? extends PageData<U>> dataClass,
+            final DataWrapper<T, U> dataWrapper,
+            final int prefetch,
+            final ListingCursor cursor,
+            final AdaptivePageSize pageSize) {
+        return executePaginatedQuery(url, urlParameters, apiHeaders, client.getObjectReader(dataClass), dataWrapper,
+                prefetch, cursor, pageSize);
+    }
 
-                    {
-                        getNext();
-                    }
+    /**
+     * Returns an iterable over all pages of a paginated query, parsing the pages with the given reader.
+     */
+    <T, U> Iterable<T> executePaginatedQuery(
+            final URI url,
+            final Collection<UrlParameter> urlParameters,
+            final boolean apiHeaders,
+            final ObjectReader pageReader,
+            final DataWrapper<T, U> dataWrapper,
+            final int prefetch,
+            final ListingCursor cursor,
+            final AdaptivePageSize pageSize) {
+        return new Iterable<T>() {
+            public Iterator<T> iterator() {
+                return paginatedIterator(url, urlParameters, apiHeaders, pageReader, dataWrapper, prefetch, cursor,
+                        pageSize);
+            }
+        };
+    }
 
-                    private void getNext() {
-                        URI pageUrl;
-                        if (next == null) {
-                            URIBuilder builder = new URIBuilder(url);
-                            setQueryParameters(builder, urlParameters);
+    /**
+     * Returns an iterator over all pages of a paginated query, which can tell its position.
+     *
+     * @param prefetch Number of pages fetched ahead in the background while the current one is consumed, {@code 0}
+     *                 to fetch each page when the previous one has been consumed
+     * @param cursor   Position to resume the query from, or {@code null} to start with the first page
+     * @param pageSize Adaptive page size, or {@code null} to keep the page size of the query
+     * @throws IllegalArgumentException if the cursor was taken from a different query
+     */
+    public <T, U> ListingIterator<T> paginatedIterator(
+            URI url,
+            Collection<UrlParameter> urlParameters,
+            boolean apiHeaders,
+            Class<? extends PageData<U>> dataClass,
+            DataWrapper<T, U> dataWrapper,
+            int prefetch,
+            ListingCursor cursor,
+            AdaptivePageSize pageSize) {
+        return paginatedIterator(url, urlParameters, apiHeaders, client.getObjectReader(dataClass), dataWrapper,
+                prefetch, cursor, pageSize);
+    }
 
-                            pageUrl = trustedBuild(builder);
-                        } else {
-                            pageUrl = next;
-                        }
-                        PageData<U> pageData = executeQuery(new HttpGet(pageUrl), apiHeaders,
-                                dataClass);
-                        more = pageData.hasMore();
-                        next = pageData.getNext();
-                        pageIterator = pageData.getResults().iterator();
-                    }
+    /**
+     * Returns an iterator over all pages of a paginated query, parsing the pages with the given reader.
+     */
+    <T, U> ListingIterator<T> paginatedIterator(
+            URI url,
+            Collection<UrlParameter> urlParameters,
+            boolean apiHeaders,
+            ObjectReader pageReader,
+            DataWrapper<T, U> dataWrapper,
+            int prefetch,
+            ListingCursor cursor,
+            AdaptivePageSize pageSize) {
+        URI firstPage = firstPage(url, urlParameters, cursor);
+        URI startPage = cursor != null ? cursor.getPage() : firstPage;
+        PageSizer sizer = pageSize != null && startPage != null ? new PageSizer(pageSize, startPage) : null;
+        if (prefetch > 0 && startPage != null) {
+            int skip = cursor != null ? cursor.getOffset() : 0;
+            return new PrefetchingPageIterator<T, U>(this, firstPage, startPage, skip, apiHeaders, pageReader,
+                    dataWrapper, sizer, client.getExecutor(), prefetch);
+        }
+        return new PageIterator<T, U>(this, firstPage, apiHeaders, pageReader, dataWrapper, sizer, cursor);
+    }
 
-                    public boolean hasNext() {
-                        if (pageIterator.hasNext()) {
-                            return true;
-                        } else if (more) {
-                            getNext();
-                            return true;
-                        } else {
-                            return false;
-                        }
-                    }
+    /**
+     * Returns a publisher of all results of a paginated query, fetching pages as the subscriber's demand requires.
+     *
+     * @param cursor   Position to resume the query from, or {@code null} to start with the first page
+     * @param pageSize Adaptive page size, or {@code null} to keep the page size of the query
+     * @throws IllegalArgumentException if the cursor was taken from a different query
+     */
+    public <T, U> Publisher<T> paginatedPublisher(
+            URI url,
+            Collection<UrlParameter> urlParameters,
+            boolean apiHeaders,
+            Class<? extends PageData<U>> dataClass,
+            DataWrapper<T, U> dataWrapper,
+            ListingCursor cursor,
+            AdaptivePageSize pageSize) {
+        return paginatedPublisher(url, urlParameters, apiHeaders, client.getObjectReader(dataClass), dataWrapper,
+                cursor, pageSize);
+    }
 
-                    public T next() {
-                        return dataWrapper.wrap(pageIterator.next());
-                    }
+    /**
+     * Returns a publisher of all results of a paginated query, parsing the pages with the given reader.
+     */
+    <T, U> Publisher<T> paginatedPublisher(
+            URI url,
+            Collection<UrlParameter> urlParameters,
+            boolean apiHeaders,
+            ObjectReader pageReader,
+            DataWrapper<T, U> dataWrapper,
+            ListingCursor cursor,
+            AdaptivePageSize pageSize) {
+        return new PagePublisher<T, U>(this, firstPage(url, urlParameters, cursor), cursor, apiHeaders, pageReader,
+                dataWrapper, pageSize, client.getExecutor());
+    }
 
-                    public void remove() {
-                        throw new UnsupportedOperationException();
-                    }
-                };
-            }
-        };
+    private static URI firstPage(URI url, Collection<UrlParameter> urlParameters, ListingCursor cursor) {
+        URIBuilder builder = new URIBuilder(url);
+        setQueryParameters(builder, urlParameters);
+        URI firstPage = trustedBuild(builder);
+        if (cursor != null) {
+            cursor.checkQuery(firstPage);
+        }
+        return firstPage;
     }
 
     /**
@@ -290,20 +466,167 @@ public class RequestHelper {
      * @return HTTP Response object
      */
     public HttpResponse executeCommand(HttpUriRequest request, boolean apiHeaders, String requestBodyMD5) {
-        if (apiHeaders) {
-            setApiHeaders(request, requestBodyMD5);
-        }
-
+        RequestTrace trace = new RequestTrace(request);
         try {
-            CloseableHttpResponse response = client.getHttpClient().execute(request);
+            CloseableHttpResponse response = execute(request, apiHeaders, requestBodyMD5, trace);
             try {
-                checkResponseStatus(response);
-                return response;
+                HttpEntity entity = response.getEntity();
+                if (entity != null) {
+                    // Drain the body so the connection can be reused.
+                    IOUtils.skip(trace.receive(response), Long.MAX_VALUE);
+                }
             } finally {
                 response.close();
             }
+            return response;
         } catch (IOException e) {
             throw new UploadcareNetworkException(e);
+        } finally {
+            trace.finish(client.getMetrics());
+        }
+    }
+
+    /**
+     * Sends the request and returns the response once its status has been verified.
+     *
+     * Throttled requests are retried up to {@link Client#getMaxThrottledRetries()} times, network and server errors
+     * as decided by {@link Client#getRetryPolicy()}. Every attempt is signed anew, since the signature covers the
+     * {@code Date} header.
+     *
+     * @return Successful response, the caller is responsible for closing it
+     */
+    private CloseableHttpResponse execute(
+            HttpUriRequest request,
+            boolean apiHeaders,
+            String requestBodyMD5,
+            RequestTrace trace) throws IOException {
+        if (request instanceof HttpRequestBase && ((HttpRequestBase) request).getConfig() == null) {
+            ((HttpRequestBase) request).setConfig(client.getRequestConfig(request.getURI()));
+        }
+
+        int throttledRetries = 0;
+        int attempts = 0;
+        while (true) {
+            CircuitBreakerRegistry circuitBreakers = client.getCircuitBreakers();
+            CircuitBreaker breaker = null;
+            if (circuitBreakers != null) {
+                breaker = circuitBreakers.forHost(request.getURI().getHost());
+                if (!breaker.allowRequest()) {
+                    throw new UploadcareCircuitOpenException(request.getURI().getHost());
+                }
+            }
+            RateLimiter rateLimiter = client.getRateLimiter();
+            CloseableHttpResponse response;
+            try {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+                if (apiHeaders) {
+                    setApiHeaders(request, requestBodyMD5);
+                }
+                attempts++;
+                trace.retries = attempts - 1;
+                response = client.getHttpClient().execute(request);
+            } catch (IOException e) {
+                recordFailure(breaker);
+                if (!awaitRetry(request, attempts - throttledRetries, e)) {
+                    throw e;
+                }
+                continue;
+            } catch (RuntimeException e) {
+                // No response, so the host is neither healthy nor failing; a probe must not stay taken.
+                release(breaker);
+                throw e;
+            }
+            trace.statusCode = response.getStatusLine().getStatusCode();
+            if (trace.statusCode == HttpStatus.SC_NOT_MODIFIED && ValidatorCache.isConditional(request)) {
+                recordSuccess(breaker);
+                return response;
+            }
+            if (response.getEntity() != null) {
+                // Error bodies are read into exception messages, so they are decompressed here.
+                trace.decode(response);
+            }
+            try {
+                checkResponseStatus(response);
+                recordSuccess(breaker);
+                return response;
+            } catch (UploadcareThrottledException e) {
+                response.close();
+                // The host is responding, only asking to slow down.
+                recordSuccess(breaker);
+                if (rateLimiter != null) {
+                    rateLimiter.throttled(e.getRetryAfter());
+                }
+                if (throttledRetries >= client.getMaxThrottledRetries()) {
+                    throw e;
+                }
+                throttledRetries++;
+                // Without a shared limiter the retry delay has to be observed here.
+                if (rateLimiter == null && !sleep(e.getRetryAfter())) {
+                    throw e;
+                }
+            } catch (UploadcareServerException e) {
+                response.close();
+                recordFailure(breaker);
+                if (!awaitRetry(request, attempts - throttledRetries, e)) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                response.close();
+                recordSuccess(breaker);
+                throw e;
+            } catch (IOException e) {
+                response.close();
+                recordFailure(breaker);
+                if (!awaitRetry(request, attempts - throttledRetries, e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sleeps for the delay given by the client's {@link RetryPolicy}.
+     *
+     * @return {@code false} if the request is not to be retried, or the thread was interrupted while waiting
+     */
+    private boolean awaitRetry(HttpUriRequest request, int attempts, Exception failure) {
+        RetryPolicy retryPolicy = client.getRetryPolicy();
+        if (retryPolicy == null || !isRepeatable(request)) {
+            return false;
+        }
+        long delay = retryPolicy.retryDelay(request, attempts, failure);
+        if (delay < 0) {
+            return false;
+        }
+        // An interrupted thread gives up instead of retrying without a delay.
+        return sleep(delay);
+    }
+
+    private static boolean isRepeatable(HttpUriRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    private static void recordSuccess(CircuitBreaker breaker) {
+        if (breaker != null) {
+            breaker.recordSuccess();
+        }
+    }
+
+    private static void recordFailure(CircuitBreaker breaker) {
+        if (breaker != null) {
+            breaker.recordFailure();
+        }
+    }
+
+    private static void release(CircuitBreaker breaker) {
+        if (breaker != null) {
+            breaker.release();
         }
     }
 
@@ -314,7 +637,7 @@ public class RequestHelper {
      *
      * @param response The response object to be checked
      */
-    private void checkResponseStatus(HttpResponse response) throws IOException {
+    static void checkResponseStatus(HttpResponse response) throws IOException {
 
         int statusCode = response.getStatusLine().getStatusCode();
 
@@ -323,16 +646,59 @@ public class RequestHelper {
         } else if (statusCode == 401 || statusCode == 403) {
             throw new UploadcareAuthenticationException(
                     streamToString(response.getEntity().getContent()));
-        } else if (statusCode == 400 || statusCode == 404) {
-            throw new UploadcareInvalidRequestException(
+        } else if (statusCode == 404) {
+            throw new UploadcareNotFoundException(
                     streamToString(response.getEntity().getContent()));
-        } else if(statusCode == 429 ){
-            throw new UploadcareApiException(
+        } else if (statusCode == 400) {
+            throw new UploadcareInvalidRequestException(
                     streamToString(response.getEntity().getContent()));
+        } else if (statusCode == 429) {
+            throw new UploadcareThrottledException(
+                    streamToString(response.getEntity().getContent()),
+                    parseRetryAfter(response.getFirstHeader("Retry-After")));
         } else {
-            throw new UploadcareApiException(
-                    "Unknown exception during an API call, response:" + streamToString(
-                            response.getEntity().getContent()));
+            String message = "Unknown exception during an API call, response:" + streamToString(
+                    response.getEntity().getContent());
+            if (statusCode >= 500) {
+                throw new UploadcareServerException(message, statusCode);
+            }
+            throw new UploadcareApiException(message);
+        }
+    }
+
+    /**
+     * Parses the {@code Retry-After} header, given either as a number of seconds or as an HTTP date.
+     *
+     * @param header The header, may be {@code null}
+     * @return Delay in milliseconds
+     */
+    static long parseRetryAfter(Header header) {
+        if (header == null || header.getValue() == null) {
+            return DEFAULT_RETRY_AFTER;
+        }
+
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0L, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            if (date == null) {
+                return DEFAULT_RETRY_AFTER;
+            }
+            return Math.max(0L, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return {@code false} if the thread was interrupted, which leaves its interrupt status set
+     */
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
@@ -346,4 +712,22 @@ public class RequestHelper {
         java.util.Scanner s = new java.util.Scanner(is, "UTF-8").useDelimiter("\\A");
         return s.hasNext() ? s.next() : "";
     }
+
+    /**
+     * A parsed response with the time it took and its decompressed size, which may be shared by coalesced callers.
+     */
+    private static final class Received<T> {
+
+        final T value;
+
+        final long nanos;
+
+        final long bytes;
+
+        Received(T value, long nanos, long bytes) {
+            this.value = value;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareAuthenticationException;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Date;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Computes HMAC-SHA1 request signatures for the REST API.
+ *
+ * The signing key is prepared once per client and every thread keeps its own initialized {@link Mac} and scratch
+ * buffer, so signing a request allocates only the resulting hex string. The string to sign is fed to the MAC byte by
+ * byte instead of being assembled as a {@code String} first.
+ */
+final class RequestSigner {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final String MAC_ALGORITHM = "HmacSHA1";
+
+    private static volatile DateHeader dateHeader;
+
+    private final SecretKeySpec signingKey;
+
+    private final ThreadLocal<SigningState> states = new ThreadLocal<SigningState>() {
+        @Override
+        protected SigningState initialValue() {
+            return new SigningState(newMac());
+        }
+    };
+
+    /**
+     * @param secretKey Secret key, may be {@code null} in which case every {@link #sign} call fails with
+     *                  {@link UploadcareAuthenticationException}.
+     */
+    RequestSigner(String secretKey) {
+        this.signingKey = secretKey != null ? new SecretKeySpec(secretKey.getBytes(UTF_8), MAC_ALGORITHM) : null;
+    }
+
+    /**
+     * Returns the current time formatted for the {@code Date} header. The formatted value is computed once per
+     * second and shared by all threads.
+     */
+    static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        DateHeader header = dateHeader;
+        if (header == null || header.second != second) {
+            header = new DateHeader(second, RequestHelper.rfc2822(new Date(second * 1000)));
+            dateHeader = header;
+        }
+        return header.value;
+    }
+
+    /**
+     * Signs a request.
+     *
+     * @param method         HTTP method
+     * @param contentMD5     Hex MD5 of the request body
+     * @param contentType    Content type header value
+     * @param date           Date header value
+     * @param uri            Request URI, only the raw path and query are signed
+     * @return Hex encoded signature
+     */
+    String sign(String method, String contentMD5, String contentType, String date, URI uri) {
+        if (signingKey == null) {
+            throw new UploadcareAuthenticationException("Secret key is required for this request.");
+        }
+
+        SigningState state = states.get();
+        state.append(method).append('\n')
+                .append(contentMD5).append('\n')
+                .append(contentType).append('\n')
+                .append(date).append('\n')
+                .append(uri.getRawPath());
+        String query = uri.getRawQuery();
+        if (query != null) {
+            state.append('?').append(query);
+        }
+        return state.finish();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new UploadcareApiException("Error when signing the request", e);
+        }
+    }
+
+    /**
+     * Per-thread MAC and scratch buffers.
+     */
+    private static final class SigningState {
+
+        private final Mac mac;
+
+        private final byte[] digest;
+
+        private final char[] hex;
+
+        private byte[] buffer = new byte[256];
+
+        private int length;
+
+        SigningState(Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+            this.hex = new char[digest.length * 2];
+        }
+
+        SigningState append(char c) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+            return this;
+        }
+
+        SigningState append(String value) {
+            int count = value.length();
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // Rare non-ASCII input (e.g. unescaped characters in a path) falls back to regular encoding.
+                    byte[] encoded = value.substring(i).getBytes(UTF_8);
+                    ensureCapacity(encoded.length);
+                    System.arraycopy(encoded, 0, buffer, length, encoded.length);
+                    length += encoded.length;
+                    return this;
+                }
+                buffer[length++] = (byte) c;
+            }
+            return this;
+        }
+
+        String finish() {
+            mac.update(buffer, 0, length);
+            length = 0;
+            try {
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new UploadcareApiException("Error when signing the request", e);
+            }
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+            }
+            return new String(hex);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
+    }
+
+    private static final class DateHeader {
+
+        final long second;
+
+        final String value;
+
+        DateHeader(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.uploadcare.api;
+
+import com.uploadcare.metrics.ClientMetrics;
+import com.uploadcare.metrics.FlightRecorderEvents;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HTTP;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Measurements of a single API call, collected by {@link RequestHelper} and reported to {@link ClientMetrics} and
+ * Java Flight Recorder.
+ */
+final class RequestTrace {
+
+    private static final String ID_SEGMENT = "{id}";
+
+    private static final int DECODER_BUFFER_SIZE = 8192;
+
+    private final HttpUriRequest request;
+
+    private final long startedAt = System.nanoTime();
+
+    private final Object flightRecorderEvent = FlightRecorderEvents.beginRequest();
+
+    int statusCode = -1;
+
+    int retries;
+
+    private CountingInputStream content;
+
+    private CountingInputStream decodedContent;
+
+    private String contentEncoding;
+
+    private boolean decoded;
+
+    RequestTrace(HttpUriRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Returns the response body, counting the bytes read from it. A {@code gzip} or {@code deflate} encoded body is
+     * decompressed while it is read, and the decompressed bytes are counted separately.
+     */
+    InputStream receive(HttpResponse response) throws IOException {
+        if (decoded) {
+            return response.getEntity().getContent();
+        }
+        return receive(response.getEntity(), response.getFirstHeader(HTTP.CONTENT_ENCODING));
+    }
+
+    /**
+     * Replaces the response body with one that is decompressed and counted while it is read.
+     */
+    void decode(HttpResponse response) {
+        decoded = true;
+        final Header encoding = response.getFirstHeader(HTTP.CONTENT_ENCODING);
+        response.setEntity(new HttpEntityWrapper(response.getEntity()) {
+            private InputStream stream;
+
+            @Override
+            public InputStream getContent() throws IOException {
+                if (stream == null) {
+                    stream = receive(wrappedEntity, encoding);
+                }
+                return stream;
+            }
+
+            @Override
+            public long getContentLength() {
+                return encoding != null ? -1 : wrappedEntity.getContentLength();
+            }
+
+            @Override
+            public Header getContentEncoding() {
+                return null;
+            }
+        });
+        if (encoding != null) {
+            response.removeHeaders(HTTP.CONTENT_ENCODING);
+            response.removeHeaders(HTTP.CONTENT_LEN);
+        }
+    }
+
+    private InputStream receive(HttpEntity entity, Header encoding) throws IOException {
+        content = new CountingInputStream(entity.getContent());
+        if (encoding == null || entity.getContentLength() == 0) {
+            return content;
+        }
+        String coding = encoding.getValue().trim().toLowerCase(Locale.US);
+        if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+            decodedContent = new CountingInputStream(new GZIPInputStream(content, DECODER_BUFFER_SIZE));
+        } else if ("deflate".equals(coding)) {
+            decodedContent = new CountingInputStream(new DeflateInputStream(content));
+        } else {
+            return content;
+        }
+        contentEncoding = coding;
+        return decodedContent;
+    }
+
+    /**
+     * @return Time since the request was started
+     */
+    long elapsedNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    /**
+     * @return Number of response body bytes read so far, after decompression
+     */
+    long bytesDecoded() {
+        CountingInputStream body = decodedContent != null ? decodedContent : content;
+        return body != null ? body.getByteCount() : 0;
+    }
+
+    void finish(ClientMetrics metrics) {
+        if (metrics == null && flightRecorderEvent == null) {
+            return;
+        }
+        long duration = System.nanoTime() - startedAt;
+        String endpoint = endpoint(request.getURI().getRawPath());
+        long bytesSent = bytesSent();
+        long bytesReceived = content != null ? content.getByteCount() : 0;
+
+        FlightRecorderEvents.commitRequest(flightRecorderEvent, request.getMethod(), endpoint, statusCode, bytesSent,
+                bytesReceived, retries);
+        if (metrics != null) {
+            if (decodedContent != null) {
+                metrics.responseDecompressed(request.getMethod(), endpoint, contentEncoding, bytesReceived,
+                        decodedContent.getByteCount());
+            }
+            metrics.requestCompleted(request.getMethod(), endpoint, statusCode, bytesSent, bytesReceived, retries,
+                    duration);
+        }
+    }
+
+    private long bytesSent() {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity != null ? entity.getContentLength() : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces path segments holding identifiers (file UUIDs, group IDs, storage keys) with {@code {id}}, so that
+     * calls to the same endpoint are aggregated together. Only segments made of lowercase letters and underscores
+     * are kept, which covers every fixed segment of the REST and Upload APIs.
+     */
+    static String endpoint(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder endpoint = null;
+        int segmentStart = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > segmentStart && !isFixedSegment(path, segmentStart, i)) {
+                    if (endpoint == null) {
+                        endpoint = new StringBuilder(path.length()).append(path, 0, segmentStart);
+                    }
+                    endpoint.append(ID_SEGMENT);
+                } else if (endpoint != null) {
+                    endpoint.append(path, segmentStart, i);
+                }
+                if (endpoint != null && i < path.length()) {
+                    endpoint.append('/');
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return endpoint != null ? endpoint.toString() : path;
+    }
+
+    private static boolean isFixedSegment(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if ((c < 'a' || c > 'z') && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
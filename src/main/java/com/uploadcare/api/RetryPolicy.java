@@ -0,0 +1,25 @@
+package com.uploadcare.api;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Decides whether a failed request is sent again.
+ *
+ * Consulted by {@link RequestHelper} for network errors and server errors (HTTP 5xx). Throttled requests are
+ * handled separately, see {@link Client#setMaxThrottledRetries(int)}.
+ *
+ * @see ExponentialBackoffRetryPolicy
+ */
+public interface RetryPolicy {
+
+    /**
+     * Returns how long to wait before sending the request again.
+     *
+     * @param request  The failed request
+     * @param attempt  Number of attempts made so far, starting with {@code 1}
+     * @param failure  {@link java.io.IOException} for network errors,
+     *                 {@link com.uploadcare.exceptions.UploadcareServerException} for server errors
+     * @return Delay in milliseconds, or a negative value to give up and rethrow the failure
+     */
+    long retryDelay(HttpUriRequest request, int attempt, Exception failure);
+}
@@ -0,0 +1,90 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareApiException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter.
+ *
+ * The bucket holds up to {@code burst} permits and is refilled at a constant rate. Callers reserve permits in arrival
+ * order and sleep outside of the lock until their permit becomes available, so the sustained request rate never
+ * exceeds the configured one. When the API throttles a request the bucket is emptied and paused for the requested
+ * {@code Retry-After} delay.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private final double nanosPerPermit;
+
+    private final double burst;
+
+    private double permits;
+
+    /**
+     * Time the bucket was last refilled at. Lies in the future while the bucket is paused after throttling.
+     */
+    private long refilledAt;
+
+    /**
+     * Creates a limiter allowing bursts of one request.
+     *
+     * @param permitsPerSecond Sustained number of requests per second
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, 1);
+    }
+
+    /**
+     * @param permitsPerSecond Sustained number of requests per second
+     * @param burst            Number of requests that may be sent back to back after a quiet period
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.burst = burst;
+        this.permits = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    public void acquire() {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            permits -= 1;
+            waitNanos = Math.max(0, refilledAt - now);
+            if (permits < 0) {
+                waitNanos += (long) (-permits * nanosPerPermit);
+            }
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    // Hand the reserved permit back, no request is sent for it.
+                    permits += 1;
+                }
+                throw new UploadcareApiException("Interrupted while waiting for the rate limiter", e);
+            }
+        }
+    }
+
+    public synchronized void throttled(long retryAfter) {
+        long now = System.nanoTime();
+        refill(now);
+        // Requests already waiting keep their place in line, but nobody is let through before the pause ends.
+        permits = Math.min(permits, 0);
+        refilledAt = Math.max(refilledAt, now + TimeUnit.MILLISECONDS.toNanos(retryAfter));
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            permits = Math.min(burst, permits + (now - refilledAt) / nanosPerPermit);
+            refilledAt = now;
+        }
+    }
+}
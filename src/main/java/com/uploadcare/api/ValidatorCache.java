@@ -0,0 +1,164 @@
+package com.uploadcare.api;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uploadcare.data.PageData;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the {@code ETag} and {@code Last-Modified} validators of GET responses together with the parsed response,
+ * so that the same resource is requested again conditionally and an unchanged one is answered with
+ * {@code 304 Not Modified} instead of the full body.
+ *
+ * Only single resources, such as files, groups and the project, are cached. Listings are not: a page holds up to
+ * 1000 files, so a cache bounded by its number of entries could hold a whole scan.
+ *
+ * The least recently used entries are evicted once the cache holds {@code maxEntries} responses. Parsed responses
+ * are shared by every caller that gets them from the cache and must not be modified.
+ *
+ * @see Client#setValidatorCache(ValidatorCache)
+ */
+public class ValidatorCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Map<String, CachedResponse> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public ValidatorCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries Maximum number of cached responses
+     */
+    public ValidatorCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return Number of requests answered with {@code 304 Not Modified} and served from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of cacheable requests answered with a full response
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of cached responses
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Adds the validators of the cached response for the request's URI, if any.
+     *
+     * @return Cached entry, or {@code null} if the request is sent unconditionally
+     */
+    CachedResponse prepare(HttpUriRequest request, ObjectReader reader) {
+        CachedResponse entry;
+        synchronized (this) {
+            entry = entries.get(request.getURI().toString());
+        }
+        if (entry == null || entry.reader != reader) {
+            return null;
+        }
+        if (entry.etag != null) {
+            request.setHeader("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            request.setHeader("If-Modified-Since", entry.lastModified);
+        }
+        return entry;
+    }
+
+    Object hit(CachedResponse entry) {
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Caches a full response if it carries validators.
+     */
+    void store(HttpUriRequest request, HttpResponse response, ObjectReader reader, Object value) {
+        misses.incrementAndGet();
+        String etag = headerValue(response, "ETag");
+        String lastModified = headerValue(response, "Last-Modified");
+        String key = request.getURI().toString();
+        synchronized (this) {
+            if (etag != null || lastModified != null) {
+                entries.put(key, new CachedResponse(etag, lastModified, reader, value));
+            } else {
+                entries.remove(key);
+            }
+        }
+    }
+
+    synchronized void remove(HttpUriRequest request) {
+        entries.remove(request.getURI().toString());
+    }
+
+    /**
+     * @return {@code true} if responses parsed by the reader are cached, i.e. they are not pages or lists
+     */
+    static boolean isCacheable(ObjectReader reader) {
+        JavaType type = reader.getValueType();
+        return type != null && !type.isContainerType() && !PageData.class.isAssignableFrom(type.getRawClass());
+    }
+
+    static boolean isConditional(HttpUriRequest request) {
+        return request.containsHeader("If-None-Match") || request.containsHeader("If-Modified-Since");
+    }
+
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    static final class CachedResponse {
+
+        final String etag;
+
+        final String lastModified;
+
+        final ObjectReader reader;
+
+        final Object value;
+
+        CachedResponse(String etag, String lastModified, ObjectReader reader, Object value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.reader = reader;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareApiException;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Workers of one run of a concurrent operation, started on the client's executor, that take the next piece of work
+ * until none is left.
+ *
+ * The first failure of a worker stops the run and is thrown by {@link #await()}. A worker the executor rejects is
+ * reported to {@link #rejected(RuntimeException)}, which fails the run unless overridden, so rejection and interrupt
+ * handling live here rather than in each operation. The group itself is the lock guarding the state of the run.
+ */
+abstract class WorkerGroup implements Runnable {
+
+    private final Client client;
+
+    private final String name;
+
+    // Guarded by this.
+    int running;
+
+    private boolean done;
+
+    private RuntimeException failure;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param name Name of the operation in error messages, e.g. "scan"
+     */
+    WorkerGroup(Client client, String name) {
+        this.client = client;
+        this.name = name;
+    }
+
+    /**
+     * Does the work of one worker.
+     */
+    abstract void work();
+
+    /**
+     * Called when the executor rejects a worker, or the client is closed.
+     */
+    void rejected(RuntimeException e) {
+        fail(e);
+    }
+
+    /**
+     * Called once all workers have stopped, by the last one, without the lock held. {@link #await()} returns after
+     * this does.
+     *
+     * @param failure First failure of the run, or {@code null}
+     */
+    void finished(RuntimeException failure) {
+    }
+
+    /**
+     * Starts the workers.
+     */
+    final void start(int workers) {
+        synchronized (this) {
+            running = workers;
+        }
+        if (workers == 0) {
+            finish(null);
+            return;
+        }
+        for (int i = 0; i < workers; i++) {
+            try {
+                client.getExecutor().execute(this);
+            } catch (RuntimeException e) {
+                rejected(e instanceof RejectedExecutionException
+                        ? new UploadcareApiException(capitalize(name) + " rejected, the client may be closed", e) : e);
+                workerStopped();
+            }
+        }
+    }
+
+    /**
+     * Runs a single worker in the calling thread, which may itself be a worker of another group.
+     */
+    final void runInCaller() {
+        synchronized (this) {
+            running = 1;
+        }
+        run();
+    }
+
+    public final void run() {
+        try {
+            work();
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            workerStopped();
+        }
+    }
+
+    /**
+     * Records the failure, unless another one came first, and stops the run.
+     */
+    final synchronized void fail(RuntimeException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        stop();
+    }
+
+    /**
+     * Asks the workers to stop after their current piece of work.
+     */
+    final synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    final boolean isStopped() {
+        return stopped;
+    }
+
+    private void workerStopped() {
+        RuntimeException lastFailure;
+        synchronized (this) {
+            running--;
+            notifyAll();
+            if (running > 0) {
+                return;
+            }
+            lastFailure = failure;
+        }
+        finish(lastFailure);
+    }
+
+    private void finish(RuntimeException lastFailure) {
+        try {
+            finished(lastFailure);
+        } finally {
+            synchronized (this) {
+                done = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits for all workers to stop and the run to finish. An interrupted wait stops the run.
+     *
+     * @throws RuntimeException the first failure of a worker
+     */
+    final synchronized void await() {
+        while (!done) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+                throw new UploadcareApiException("Interrupted while waiting for the " + name, e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
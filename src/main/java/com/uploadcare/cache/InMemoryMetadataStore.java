@@ -0,0 +1,76 @@
+package com.uploadcare.cache;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link MetadataStore} keeping values in memory, a stand-in for a shared store in tests and single-process setups.
+ * Clients sharing one instance behave like nodes sharing a remote store.
+ *
+ * Expired values are dropped when read, and by a sweep over all values every 1024 writes.
+ */
+public class InMemoryMetadataStore implements MetadataStore {
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final ConcurrentMap<String, StoredValue> values = new ConcurrentHashMap<String, StoredValue>();
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    public String get(String key) {
+        StoredValue stored = values.get(key);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.isExpired(System.currentTimeMillis())) {
+            values.remove(key, stored);
+            return null;
+        }
+        return stored.value;
+    }
+
+    public void put(String key, String value, long ttl) {
+        values.put(key, new StoredValue(value, System.currentTimeMillis() + ttl));
+        if (writes.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep();
+        }
+    }
+
+    public void remove(String key) {
+        values.remove(key);
+    }
+
+    /**
+     * @return Number of stored values, including expired ones not yet dropped
+     */
+    public int size() {
+        return values.size();
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Iterator<StoredValue> it = values.values().iterator(); it.hasNext(); ) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class StoredValue {
+
+        final String value;
+
+        final long expiresAt;
+
+        StoredValue(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.uploadcare.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.uploadcare.exceptions.UploadcareNotFoundException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of file and group metadata, evicting the least recently used entries once {@code maxEntries} are
+ * held and expiring entries after a fixed time. Lookups of resources that do not exist are cached as well, for a
+ * separate, usually shorter time.
+ *
+ * An optional {@link MetadataStore} acts as a second tier shared with other nodes: values missing locally are looked
+ * up there before the API is called, and values loaded from the API are written to both tiers.
+ *
+ * Cached objects are shared by every caller that gets them and must not be modified.
+ *
+ * @see com.uploadcare.api.Client#setMetadataCache(MetadataCache)
+ */
+public class MetadataCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    public static final long DEFAULT_TTL = 60000L;
+
+    public static final long DEFAULT_NOT_FOUND_TTL = 10000L;
+
+    private static final String NOT_FOUND_PREFIX = "!not_found:";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final long ttl;
+
+    private final long notFoundTtl;
+
+    private final MetadataStore secondTier;
+
+    private final Map<String, CachedValue> entries;
+
+    // Keys being loaded, guarded by this.
+    private final Map<String, Generation> loading = new HashMap<String, Generation>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong secondTierHits = new AtomicLong();
+
+    public MetadataCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL, DEFAULT_NOT_FOUND_TTL);
+    }
+
+    /**
+     * @param maxEntries  Maximum number of entries held in memory
+     * @param ttl         Time after which cached metadata expires, in milliseconds
+     * @param notFoundTtl Time after which a cached "not found" answer expires, in milliseconds, {@code 0} to not cache
+     *                    such answers
+     */
+    public MetadataCache(int maxEntries, long ttl, long notFoundTtl) {
+        this(maxEntries, ttl, notFoundTtl, null);
+    }
+
+    /**
+     * @param maxEntries  Maximum number of entries held in memory
+     * @param ttl         Time after which cached metadata expires, in milliseconds
+     * @param notFoundTtl Time after which a cached "not found" answer expires, in milliseconds, {@code 0} to not cache
+     *                    such answers
+     * @param secondTier  Store shared with other nodes, or {@code null}
+     */
+    public MetadataCache(final int maxEntries, long ttl, long notFoundTtl, MetadataStore secondTier) {
+        this.ttl = ttl;
+        this.notFoundTtl = notFoundTtl;
+        this.secondTier = secondTier;
+        this.entries = new LinkedHashMap<String, CachedValue>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Loads a value on a cache miss.
+     */
+    public interface Loader<T> {
+
+        /**
+         * @throws UploadcareNotFoundException if the resource does not exist, which is cached too
+         */
+        T load();
+    }
+
+    /**
+     * Returns the cached value for the key, or loads and caches it.
+     *
+     * @param key    Cache key, unique per resource and project
+     * @param type   Type of the value
+     * @param loader Loads the value from the API on a miss
+     * @return Cached or loaded value
+     * @throws UploadcareNotFoundException if the resource does not exist, possibly from the cache
+     */
+    public <T> T get(String key, Class<T> type, Loader<T> loader) {
+        CachedValue cached = getLocal(key);
+        if (cached == null && secondTier != null) {
+            cached = getShared(key, type);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            if (cached.notFound != null) {
+                throw new UploadcareNotFoundException(cached.notFound);
+            }
+            return type.cast(cached.value);
+        }
+
+        misses.incrementAndGet();
+        return load(key, loader);
+    }
+
+    /**
+     * Loads the value for the key, bypassing both tiers, and caches it.
+     *
+     * @param key    Cache key, unique per resource and project
+     * @param loader Loads the value from the API
+     * @return Loaded value
+     * @throws UploadcareNotFoundException if the resource does not exist, which is cached too
+     */
+    public <T> T refresh(String key, Loader<T> loader) {
+        return load(key, loader);
+    }
+
+    private <T> T load(String key, Loader<T> loader) {
+        Load load = startLoad(key);
+        T value;
+        try {
+            value = loader.load();
+        } catch (UploadcareNotFoundException e) {
+            if (notFoundTtl > 0) {
+                String message = e.getMessage() != null ? e.getMessage() : "";
+                finishLoad(load, new CachedValue(null, message, System.currentTimeMillis() + notFoundTtl),
+                        NOT_FOUND_PREFIX + message, notFoundTtl);
+            } else {
+                finishLoad(load, null, null, 0);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            finishLoad(load, null, null, 0);
+            throw e;
+        }
+        String shared = null;
+        if (secondTier != null) {
+            try {
+                shared = MAPPER.writeValueAsString(value);
+            } catch (IOException e) {
+                // Leave the value to the local tier.
+            }
+        }
+        finishLoad(load, new CachedValue(value, null, System.currentTimeMillis() + ttl), shared, ttl);
+        return value;
+    }
+
+    /**
+     * Returns the value cached in memory for the key, without loading it.
+     *
+     * @return Cached value, or {@code null} if there is none or the resource was not found
+     */
+    public <T> T getIfPresent(String key, Class<T> type) {
+        CachedValue cached = getLocal(key);
+        return cached != null && cached.notFound == null ? type.cast(cached.value) : null;
+    }
+
+    /**
+     * Removes the value for the key from both tiers.
+     */
+    public void invalidate(String key) {
+        synchronized (this) {
+            entries.remove(key);
+            Generation generation = loading.get(key);
+            if (generation != null) {
+                generation.value++;
+            }
+        }
+        if (secondTier != null) {
+            secondTier.remove(key);
+        }
+    }
+
+    /**
+     * Removes all values held in memory. The second tier is left as is.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @return Number of lookups answered from either tier
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of lookups answered by the second tier, a part of {@link #getHits()}
+     */
+    public long getSecondTierHits() {
+        return secondTierHits.get();
+    }
+
+    /**
+     * @return Number of lookups that had to be loaded from the API
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of entries held in memory, including expired ones not yet evicted
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized CachedValue getLocal(String key) {
+        CachedValue cached = entries.get(key);
+        if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private synchronized void putLocal(String key, CachedValue value) {
+        entries.put(key, value);
+    }
+
+    private synchronized Load startLoad(String key) {
+        Generation generation = loading.get(key);
+        if (generation == null) {
+            generation = new Generation();
+            loading.put(key, generation);
+        }
+        generation.loads++;
+        return new Load(key, generation, generation.value);
+    }
+
+    /**
+     * Caches a loaded value, unless the key was invalidated while it was loading, since the value may predate the
+     * change that caused the invalidation.
+     *
+     * @param local  Value for the local tier, or {@code null} to cache nothing
+     * @param shared Value for the second tier, or {@code null}
+     */
+    private void finishLoad(Load load, CachedValue local, String shared, long sharedTtl) {
+        boolean current;
+        synchronized (this) {
+            current = load.generation.value == load.startValue;
+            if (current && local != null) {
+                entries.put(load.key, local);
+            }
+        }
+        if (current && shared != null) {
+            putShared(load.key, shared, sharedTtl);
+        }
+        boolean invalidated;
+        synchronized (this) {
+            invalidated = load.generation.value != load.startValue;
+            if (--load.generation.loads == 0) {
+                loading.remove(load.key);
+            }
+        }
+        if (current && shared != null && invalidated) {
+            // Invalidated while the value was written to the second tier, possibly before it arrived there.
+            secondTier.remove(load.key);
+        }
+    }
+
+    private CachedValue getShared(String key, Class<?> type) {
+        String stored = secondTier.get(key);
+        if (stored == null) {
+            return null;
+        }
+        // The remaining lifetime in the shared store is unknown, so the local copy gets a full TTL.
+        CachedValue cached;
+        if (stored.startsWith(NOT_FOUND_PREFIX)) {
+            cached = new CachedValue(null, stored.substring(NOT_FOUND_PREFIX.length()),
+                    System.currentTimeMillis() + notFoundTtl);
+        } else {
+            try {
+                cached = new CachedValue(MAPPER.readValue(stored, type), null, System.currentTimeMillis() + ttl);
+            } catch (IOException e) {
+                secondTier.remove(key);
+                return null;
+            }
+        }
+        secondTierHits.incrementAndGet();
+        putLocal(key, cached);
+        return cached;
+    }
+
+    private void putShared(String key, String value, long ttl) {
+        if (secondTier != null) {
+            secondTier.put(key, value, ttl);
+        }
+    }
+
+    /**
+     * Number of invalidations of a key that happened while it was loading.
+     */
+    private static final class Generation {
+
+        long value;
+
+        int loads;
+    }
+
+    private static final class Load {
+
+        final String key;
+
+        final Generation generation;
+
+        final long startValue;
+
+        Load(String key, Generation generation, long startValue) {
+            this.key = key;
+            this.generation = generation;
+            this.startValue = startValue;
+        }
+    }
+
+    private static final class CachedValue {
+
+        final Object value;
+
+        final String notFound;
+
+        final long expiresAt;
+
+        CachedValue(Object value, String notFound, long expiresAt) {
+            this.value = value;
+            this.notFound = notFound;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
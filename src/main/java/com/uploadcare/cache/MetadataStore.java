@@ -0,0 +1,31 @@
+package com.uploadcare.cache;
+
+/**
+ * Second cache tier shared by several clients, typically on different nodes, e.g. backed by Redis or Memcached.
+ *
+ * Values are JSON documents. Implementations must be thread-safe and should swallow their own failures, treating an
+ * unavailable store as empty, since the metadata can always be fetched from the API again.
+ *
+ * @see MetadataCache
+ * @see InMemoryMetadataStore
+ */
+public interface MetadataStore {
+
+    /**
+     * @param key Cache key
+     * @return Stored value, or {@code null} if there is none or it has expired
+     */
+    String get(String key);
+
+    /**
+     * @param key   Cache key
+     * @param value Value to store
+     * @param ttl   Time after which the value expires, in milliseconds
+     */
+    void put(String key, String value, long ttl);
+
+    /**
+     * @param key Cache key
+     */
+    void remove(String key);
+}
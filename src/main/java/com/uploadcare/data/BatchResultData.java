@@ -0,0 +1,22 @@
+package com.uploadcare.data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response of the batch store and delete endpoint.
+ */
+public class BatchResultData {
+
+    public String status;
+    public Map<String, String> problems;
+    public List<FileData> result;
+
+    @Override
+    public String toString() {
+        return "BatchResultData{" +
+                "status='" + status + '\'' +
+                ", problems=" + problems +
+                '}';
+    }
+}
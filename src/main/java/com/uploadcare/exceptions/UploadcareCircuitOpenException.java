@@ -0,0 +1,22 @@
+package com.uploadcare.exceptions;
+
+/**
+ * Error produced when a request is rejected without being sent, because recent requests to the same host kept
+ * failing and its circuit breaker is open.
+ */
+public class UploadcareCircuitOpenException extends UploadcareApiException {
+
+    private final String host;
+
+    public UploadcareCircuitOpenException(String host) {
+        super("Circuit breaker is open for " + host);
+        this.host = host;
+    }
+
+    /**
+     * @return Host whose circuit breaker is open
+     */
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,10 @@
+package com.uploadcare.exceptions;
+
+/**
+ * Error produced when the requested resource does not exist (HTTP 404).
+ */
+public class UploadcareNotFoundException extends UploadcareInvalidRequestException {
+    public UploadcareNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.uploadcare.exceptions;
+
+/**
+ * Error produced when the Uploadcare API fails to handle a request (HTTP 5xx).
+ */
+public class UploadcareServerException extends UploadcareApiException {
+
+    private final int statusCode;
+
+    public UploadcareServerException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return HTTP status code of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,23 @@
+package com.uploadcare.exceptions;
+
+/**
+ * Error produced when the Uploadcare API throttles the request (HTTP 429 Too Many Requests).
+ */
+public class UploadcareThrottledException extends UploadcareApiException {
+
+    private final long retryAfter;
+
+    public UploadcareThrottledException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns how long the API asked to wait before retrying, parsed from the {@code Retry-After} header.
+     *
+     * @return Delay in milliseconds
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
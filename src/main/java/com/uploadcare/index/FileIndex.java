@@ -0,0 +1,220 @@
+package com.uploadcare.index;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.uploadcare.data.FileData;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Local index of file metadata kept in an append-only file, answering lookups by UUID without calling the API.
+ *
+ * Every change is appended as a new record, so the latest record of a file wins; the positions of the latest records
+ * are held in memory and rebuilt when the index is opened. Sync watermarks are stored in the same file. A record
+ * left incomplete by a crash is cut off when the index is opened again.
+ *
+ * The file is made of text lines: {@code F <uuid> <flags> <json>} for file records, holding the metadata as JSON, and
+ * {@code W <uploaded> <removed>} for watermarks, holding epoch milliseconds or {@code -1}.
+ *
+ * @see FileIndexSync
+ */
+public class FileIndex implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final int STORED = 1;
+
+    private static final int REMOVED = 2;
+
+    private final RandomAccessFile file;
+
+    private final Map<String, Location> locations = new HashMap<String, Location>();
+
+    private long length;
+
+    private Date uploadedWatermark;
+
+    private Date removedWatermark;
+
+    /**
+     * Opens the index kept in the given file, creating the file if it does not exist.
+     */
+    public FileIndex(java.io.File path) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        try {
+            load(path);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the latest metadata of a file, including files known to be removed.
+     *
+     * @return File metadata, or {@code null} if the file is not in the index
+     */
+    public synchronized FileData get(String uuid) throws IOException {
+        Location location = locations.get(uuid);
+        if (location == null) {
+            return null;
+        }
+        byte[] json = new byte[location.length];
+        file.seek(location.offset);
+        file.readFully(json);
+        return MAPPER.readValue(json, FileData.class);
+    }
+
+    public synchronized boolean contains(String uuid) {
+        return locations.containsKey(uuid);
+    }
+
+    /**
+     * @return Number of files in the index, including removed ones
+     */
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    /**
+     * Adds the metadata of a file, unless the index already holds it in the same stored and removed state.
+     *
+     * @return {@code true} if a record was appended
+     */
+    public synchronized boolean put(FileData data) throws IOException {
+        int flags = (data.datetimeStored != null ? STORED : 0) | (data.datetimeRemoved != null ? REMOVED : 0);
+        Location current = locations.get(data.uuid);
+        if (current != null && current.flags == flags) {
+            return false;
+        }
+        String prefix = "F " + data.uuid + " " + flags + " ";
+        byte[] json = MAPPER.writeValueAsBytes(data);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(prefix.length() + json.length + 1);
+        record.write(prefix.getBytes(UTF_8));
+        record.write(json);
+        record.write('\n');
+        long offset = append(record.toByteArray());
+        locations.put(data.uuid, new Location(offset + prefix.length(), json.length, flags));
+        return true;
+    }
+
+    /**
+     * @return Upload time up to which files have been synced, or {@code null} if none have
+     */
+    public synchronized Date getUploadedWatermark() {
+        return uploadedWatermark;
+    }
+
+    /**
+     * @return Upload time up to which removed files have been synced, or {@code null} if none have
+     */
+    public synchronized Date getRemovedWatermark() {
+        return removedWatermark;
+    }
+
+    /**
+     * Stores new watermarks, after forcing all records appended so far to disk.
+     *
+     * @param uploaded Upload time up to which files have been synced, or {@code null}
+     * @param removed  Upload time up to which removed files have been synced, or {@code null}
+     */
+    public synchronized void setWatermarks(Date uploaded, Date removed) throws IOException {
+        file.getChannel().force(false);
+        append(("W " + millis(uploaded) + " " + millis(removed) + "\n").getBytes(UTF_8));
+        file.getChannel().force(false);
+        uploadedWatermark = uploaded;
+        removedWatermark = removed;
+    }
+
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    private long append(byte[] record) throws IOException {
+        long offset = length;
+        file.seek(offset);
+        file.write(record);
+        length += record.length;
+        return offset;
+    }
+
+    private void load(java.io.File path) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(path), 65536);
+        try {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+            long position = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                readRecord(position, line.toByteArray());
+                position += line.size() + 1;
+                line.reset();
+            }
+            length = position;
+        } finally {
+            in.close();
+        }
+        if (file.length() > length) {
+            file.setLength(length);
+        }
+    }
+
+    private void readRecord(long position, byte[] record) throws IOException {
+        String text = new String(record, 0, Math.min(record.length, 128), UTF_8);
+        String[] fields = text.split(" ", 4);
+        if (record.length > 0 && record[0] == 'F' && fields.length == 4) {
+            int jsonOffset = fields[0].length() + fields[1].length() + fields[2].length() + 3;
+            locations.put(fields[1], new Location(position + jsonOffset, record.length - jsonOffset,
+                    Integer.parseInt(fields[2])));
+        } else if (record.length > 0 && record[0] == 'W' && fields.length == 3) {
+            uploadedWatermark = date(Long.parseLong(fields[1]));
+            removedWatermark = date(Long.parseLong(fields[2]));
+        } else {
+            throw new IOException("Corrupt index record at " + position);
+        }
+    }
+
+    private static long millis(Date date) {
+        return date != null ? date.getTime() : -1;
+    }
+
+    private static Date date(long millis) {
+        return millis >= 0 ? new Date(millis) : null;
+    }
+
+    private static final class Location {
+
+        final long offset;
+
+        final int length;
+
+        final int flags;
+
+        Location(long offset, int length, int flags) {
+            this.offset = offset;
+            this.length = length;
+            this.flags = flags;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.uploadcare.index;
+
+import com.uploadcare.api.Client;
+import com.uploadcare.data.DataWrapper;
+import com.uploadcare.data.FileData;
+import com.uploadcare.data.FilePageData;
+import com.uploadcare.urls.FilesFromParameter;
+import com.uploadcare.urls.FilesLimitParameter;
+import com.uploadcare.urls.FilesOrderParameter;
+import com.uploadcare.urls.FilesRemovedParameter;
+import com.uploadcare.urls.UrlParameter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings a {@link FileIndex} up to date with the project by listing only the files uploaded or removed since the
+ * watermarks stored in the index.
+ *
+ * A run makes two passes, both in upload order: one over files that are not removed, starting at the upload time of
+ * the last file synced, and one over removed files. Since the API lists removed files by upload time too, the second
+ * pass starts {@code removalLookback} before the last removed file synced; removals of files uploaded earlier than
+ * that are not seen. Likewise, the first pass never lists files uploaded before its watermark again, so a file synced
+ * while not yet stored stays unstored in the index once it is stored later, until it is removed. Files listed again,
+ * e.g. those uploaded within the same second as a watermark, are appended only if their stored or removed state
+ * changed.
+ *
+ * Watermarks are stored every {@value #CHECKPOINT_INTERVAL} files, so an interrupted run resumes close to where it
+ * stopped.
+ *
+ * <pre>
+ * FileIndex index = new FileIndex(new java.io.File("files.idx"));
+ * new FileIndexSync(client, index).run();
+ * FileData data = index.get(uuid);
+ * </pre>
+ */
+public class FileIndexSync {
+
+    public static final long DEFAULT_REMOVAL_LOOKBACK = TimeUnit.DAYS.toMillis(30);
+
+    public static final int DEFAULT_LIMIT = 1000;
+
+    static final int CHECKPOINT_INTERVAL = 1000;
+
+    private static final DataWrapper<FileData, FileData> RAW = new DataWrapper<FileData, FileData>() {
+        public FileData wrap(FileData data) {
+            return data;
+        }
+    };
+
+    private final Client client;
+
+    private final FileIndex index;
+
+    private long removalLookback = DEFAULT_REMOVAL_LOOKBACK;
+
+    private int limit = DEFAULT_LIMIT;
+
+    public FileIndexSync(Client client, FileIndex index) {
+        this.client = client;
+        this.index = index;
+    }
+
+    /**
+     * @param removalLookback Time before the last removed file synced from which removed files are listed again, in
+     *                        milliseconds
+     */
+    public FileIndexSync removalLookback(long removalLookback) {
+        this.removalLookback = removalLookback;
+        return this;
+    }
+
+    /**
+     * @param limit Number of files requested per page
+     */
+    public FileIndexSync limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Lists the files changed since the last run and appends them to the index.
+     *
+     * @return Number of records appended
+     * @throws IOException if the index cannot be written
+     */
+    public int run() throws IOException {
+        int appended = 0;
+        Date uploaded = index.getUploadedWatermark();
+        Date removed = index.getRemovedWatermark();
+        int sinceCheckpoint = 0;
+
+        for (FileData data : list(false, uploaded)) {
+            if (index.put(data)) {
+                appended++;
+            }
+            uploaded = latest(uploaded, data.datetimeUploaded);
+            if (++sinceCheckpoint == CHECKPOINT_INTERVAL) {
+                index.setWatermarks(uploaded, removed);
+                sinceCheckpoint = 0;
+            }
+        }
+        index.setWatermarks(uploaded, removed);
+
+        Date removedFrom = removed != null ? new Date(removed.getTime() - removalLookback) : null;
+        for (FileData data : list(true, removedFrom)) {
+            if (index.put(data)) {
+                appended++;
+            }
+            removed = latest(removed, data.datetimeUploaded);
+            if (++sinceCheckpoint == CHECKPOINT_INTERVAL) {
+                index.setWatermarks(uploaded, removed);
+                sinceCheckpoint = 0;
+            }
+        }
+        index.setWatermarks(uploaded, removed);
+        return appended;
+    }
+
+    private Iterable<FileData> list(boolean removed, Date from) {
+        List<UrlParameter> parameters = new ArrayList<UrlParameter>();
+        parameters.add(new FilesRemovedParameter(removed));
+        parameters.add(new FilesOrderParameter(UrlParameter.Order.UPLOAD_TIME_ASC));
+        parameters.add(new FilesLimitParameter(limit));
+        if (from != null) {
+            parameters.add(new FilesFromParameter(from));
+        }
+        return client.getRequestHelper().executePaginatedQuery(client.getEndpoints().apiFiles(), parameters, true,
+                FilePageData.class, RAW);
+    }
+
+    private static Date latest(Date watermark, Date date) {
+        return watermark == null || (date != null && date.after(watermark)) ? date : watermark;
+    }
+}
@@ -0,0 +1,94 @@
+package com.uploadcare.index;
+
+import com.uploadcare.data.FileData;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * View of a record of a {@link FileStore}, decoding each field from the mapped file when it is asked for.
+ */
+public final class FileRecord {
+
+    private final FileStore store;
+
+    // Advanced by the iterator of FileStore.records().
+    long index;
+
+    FileRecord(FileStore store, long index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getFileId() {
+        return new UUID(store.getUuidHigh(index), store.getUuidLow(index)).toString();
+    }
+
+    public long getSize() {
+        return store.getSize(index);
+    }
+
+    public Date getUploadDate() {
+        return date(store.getUploadedTime(index));
+    }
+
+    public boolean isStored() {
+        return store.getStoredTime(index) != FileStore.NO_TIME;
+    }
+
+    public Date getStoredDate() {
+        return date(store.getStoredTime(index));
+    }
+
+    public boolean isRemoved() {
+        return store.getRemovedTime(index) != FileStore.NO_TIME;
+    }
+
+    public Date getRemovedDate() {
+        return date(store.getRemovedTime(index));
+    }
+
+    public String getMimeType() {
+        return store.getMimeTypes().decode(store.getMimeTypeCode(index));
+    }
+
+    public boolean isReady() {
+        return store.isReady(index);
+    }
+
+    public boolean isImage() {
+        return store.isImage(index);
+    }
+
+    /**
+     * Copies the fields of the record into a new {@link FileData}. Fields not kept by the store are left empty.
+     */
+    public FileData toFileData() {
+        FileData data = new FileData();
+        data.uuid = getFileId();
+        data.size = getSize();
+        data.datetimeUploaded = getUploadDate();
+        data.datetimeStored = getStoredDate();
+        data.datetimeRemoved = getRemovedDate();
+        data.mimeType = getMimeType();
+        data.isReady = isReady();
+        data.isImage = isImage();
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "FileRecord{" +
+                "index=" + index +
+                ", uuid='" + getFileId() + '\'' +
+                '}';
+    }
+
+    private static Date date(long time) {
+        return time != FileStore.NO_TIME ? new Date(time) : null;
+    }
+}
@@ -0,0 +1,367 @@
+package com.uploadcare.index;
+
+import com.uploadcare.api.File;
+import com.uploadcare.api.FileCursor;
+import com.uploadcare.data.FileData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Compact store of file metadata in a memory-mapped file of fixed-width records, for scans and aggregations over
+ * millions of files with next to no heap.
+ *
+ * Each record holds the UUID, size, upload, stored and removed times, a {@link MimeTypeDictionary} code of the MIME
+ * type and the ready and image flags of one file, in {@value #RECORD_SIZE} bytes. Records are read straight from the
+ * mapped file: the column accessors such as {@link #getSize(long)} allocate nothing, while {@link #get(long)} returns
+ * a {@link FileRecord} view whose fields are decoded as they are asked for. Other metadata, such as image info, is not
+ * kept.
+ *
+ * <pre>
+ * FileStore store = new FileStore(new java.io.File("files.dat"));
+ * store.appendAll(client.getFiles().stored(true).asIterable());
+ * long total = 0;
+ * for (long i = 0; i &lt; store.size(); i++) {
+ *     total += store.getSize(i);
+ * }
+ * </pre>
+ *
+ * The MIME type dictionary is kept next to the store, in a file with the {@code .types} suffix. A store is written by
+ * one thread at a time and may be read concurrently; records appended are visible to readers once
+ * {@link #append(FileData)} returns. Mapped memory is released when the store is garbage collected.
+ */
+public class FileStore implements Closeable {
+
+    /**
+     * Time columns hold this value for missing times.
+     */
+    public static final long NO_TIME = -1L;
+
+    static final int RECORD_SIZE = 56;
+
+    static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+
+    private static final int MAGIC = 0x55434653;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int UUID_HIGH = 0;
+
+    private static final int UUID_LOW = 8;
+
+    private static final int SIZE = 16;
+
+    private static final int UPLOADED = 24;
+
+    private static final int STORED = 32;
+
+    private static final int REMOVED = 40;
+
+    private static final int MIME_TYPE = 48;
+
+    private static final int FLAGS = 52;
+
+    private static final int READY = 1;
+
+    private static final int IMAGE = 2;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer header;
+
+    private final int recordsPerSegment;
+
+    private final MimeTypeDictionary mimeTypes;
+
+    // Replaced when a segment is added, never modified.
+    private volatile MappedByteBuffer[] segments;
+
+    private volatile long count;
+
+    /**
+     * Opens the store kept in the given file, creating it if it does not exist.
+     */
+    public FileStore(java.io.File path) throws IOException {
+        this(path, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    FileStore(java.io.File path, int recordsPerSegment) throws IOException {
+        this.recordsPerSegment = recordsPerSegment;
+        this.mimeTypes = new MimeTypeDictionary(new java.io.File(path.getPath() + ".types"));
+        this.file = new RandomAccessFile(path, "rw");
+        try {
+            this.channel = file.getChannel();
+            boolean created = channel.size() == 0;
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, RECORD_SIZE);
+                header.putLong(COUNT_OFFSET, 0);
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Not a file store: " + path);
+            }
+            this.count = header.getLong(COUNT_OFFSET);
+            int segmentCount = (int) ((count + recordsPerSegment - 1) / recordsPerSegment);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                mapped[i] = mapSegment(i);
+            }
+            this.segments = mapped;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of records
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return Dictionary of the MIME type codes of this store
+     */
+    public MimeTypeDictionary getMimeTypes() {
+        return mimeTypes;
+    }
+
+    /**
+     * Appends a record of the file.
+     *
+     * @return Index of the record
+     * @throws IllegalArgumentException if the file ID is not a UUID
+     */
+    public long append(File file) throws IOException {
+        return append(file.getFileId(), file.getSize(), file.getUploadDate(), file.getStoredDate(),
+                file.getRemovedDate(), file.getMimeType(), file.isReady(), file.isImage());
+    }
+
+    /**
+     * Appends a record of the file.
+     *
+     * @return Index of the record
+     * @throws IllegalArgumentException if the file ID is not a UUID
+     */
+    public long append(FileData data) throws IOException {
+        return append(data.uuid, data.size, data.datetimeUploaded, data.datetimeStored, data.datetimeRemoved,
+                data.mimeType, data.isReady, data.isImage);
+    }
+
+    /**
+     * Appends a record of the file a cursor is on, without creating objects if the cursor codes MIME types with the
+     * dictionary of this store.
+     *
+     * @return Index of the record
+     */
+    public long append(FileCursor cursor) throws IOException {
+        int mimeTypeCode = cursor.mimeTypeCode();
+        if (cursor.getMimeTypes() != mimeTypes) {
+            mimeTypeCode = mimeTypes.encode(cursor.getMimeTypes().decode(mimeTypeCode));
+        }
+        return append(cursor.uuidHigh(), cursor.uuidLow(), cursor.size(), cursor.uploadedEpochMillis(),
+                cursor.storedEpochMillis(), cursor.removedEpochMillis(), mimeTypeCode, cursor.isReady(),
+                cursor.isImage());
+    }
+
+    /**
+     * Appends records of all files, e.g. of a listing.
+     *
+     * @return Number of records appended
+     */
+    public long appendAll(Iterable<File> files) throws IOException {
+        long appended = 0;
+        for (File file : files) {
+            append(file);
+            appended++;
+        }
+        return appended;
+    }
+
+    private long append(String uuid, long size, Date uploaded, Date stored, Date removed, String mimeType,
+                        boolean ready, boolean image) throws IOException {
+        UUID id = UUID.fromString(uuid);
+        return append(id.getMostSignificantBits(), id.getLeastSignificantBits(), size, time(uploaded), time(stored),
+                time(removed), mimeTypes.encode(mimeType), ready, image);
+    }
+
+    private synchronized long append(long uuidHigh, long uuidLow, long size, long uploaded, long stored, long removed,
+                                     int mimeTypeCode, boolean ready, boolean image) throws IOException {
+        long index = count;
+        int segment = (int) (index / recordsPerSegment);
+        if (segment == segments.length) {
+            MappedByteBuffer[] grown = new MappedByteBuffer[segment + 1];
+            System.arraycopy(segments, 0, grown, 0, segment);
+            grown[segment] = mapSegment(segment);
+            segments = grown;
+        }
+        MappedByteBuffer buffer = segments[segment];
+        int offset = (int) (index % recordsPerSegment) * RECORD_SIZE;
+        buffer.putLong(offset + UUID_HIGH, uuidHigh);
+        buffer.putLong(offset + UUID_LOW, uuidLow);
+        buffer.putLong(offset + SIZE, size);
+        buffer.putLong(offset + UPLOADED, uploaded);
+        buffer.putLong(offset + STORED, stored);
+        buffer.putLong(offset + REMOVED, removed);
+        buffer.putInt(offset + MIME_TYPE, mimeTypeCode);
+        buffer.putInt(offset + FLAGS, (ready ? READY : 0) | (image ? IMAGE : 0));
+        count = index + 1;
+        header.putLong(COUNT_OFFSET, count);
+        return index;
+    }
+
+    /**
+     * Returns a view of a record, decoding its fields as they are asked for.
+     */
+    public FileRecord get(long index) {
+        checkIndex(index);
+        return new FileRecord(this, index);
+    }
+
+    /**
+     * Returns the records in the order they were appended. The views returned by the iterator are only valid until
+     * the next call to {@code next()}, as they are reused.
+     */
+    public Iterable<FileRecord> records() {
+        return new Iterable<FileRecord>() {
+            public Iterator<FileRecord> iterator() {
+                return new Iterator<FileRecord>() {
+                    private final long end = count;
+
+                    private final FileRecord record = new FileRecord(FileStore.this, -1);
+
+                    public boolean hasNext() {
+                        return record.index + 1 < end;
+                    }
+
+                    public FileRecord next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        record.index++;
+                        return record;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    public long getUuidHigh(long index) {
+        return getLong(index, UUID_HIGH);
+    }
+
+    public long getUuidLow(long index) {
+        return getLong(index, UUID_LOW);
+    }
+
+    public long getSize(long index) {
+        return getLong(index, SIZE);
+    }
+
+    /**
+     * @return Upload time in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long getUploadedTime(long index) {
+        return getLong(index, UPLOADED);
+    }
+
+    /**
+     * @return Time the file was stored in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long getStoredTime(long index) {
+        return getLong(index, STORED);
+    }
+
+    /**
+     * @return Time the file was removed in epoch milliseconds, or {@link #NO_TIME}
+     */
+    public long getRemovedTime(long index) {
+        return getLong(index, REMOVED);
+    }
+
+    /**
+     * @return Code of the MIME type in {@link #getMimeTypes()}, or {@link MimeTypeDictionary#NONE}
+     */
+    public int getMimeTypeCode(long index) {
+        checkIndex(index);
+        return segment(index).getInt(offset(index) + MIME_TYPE);
+    }
+
+    public boolean isReady(long index) {
+        return (flags(index) & READY) != 0;
+    }
+
+    public boolean isImage(long index) {
+        return (flags(index) & IMAGE) != 0;
+    }
+
+    /**
+     * Writes appended records and the record count through to the storage device.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    public synchronized void close() throws IOException {
+        force();
+        file.close();
+    }
+
+    private int flags(long index) {
+        checkIndex(index);
+        return segment(index).getInt(offset(index) + FLAGS);
+    }
+
+    private long getLong(long index, int field) {
+        checkIndex(index);
+        return segment(index).getLong(offset(index) + field);
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / recordsPerSegment)];
+    }
+
+    private int offset(long index) {
+        return (int) (index % recordsPerSegment) * RECORD_SIZE;
+    }
+
+    private MappedByteBuffer mapSegment(int segment) throws IOException {
+        long size = (long) recordsPerSegment * RECORD_SIZE;
+        return channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + segment * size, size);
+    }
+
+    private static long time(Date date) {
+        return date != null ? date.getTime() : NO_TIME;
+    }
+}
@@ -0,0 +1,115 @@
+package com.uploadcare.index;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of MIME types, giving each distinct type a small integer code in order of appearance.
+ *
+ * A dictionary backed by a file appends every new type to it as a line, so codes stay stable across runs.
+ */
+public class MimeTypeDictionary {
+
+    /**
+     * Code of a missing MIME type.
+     */
+    public static final int NONE = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final java.io.File path;
+
+    private final List<String> types = new ArrayList<String>();
+
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+    /**
+     * Creates a dictionary held in memory only.
+     */
+    public MimeTypeDictionary() {
+        this.path = null;
+    }
+
+    /**
+     * Opens a dictionary kept in the given file, creating the file when the first type is added.
+     */
+    public MimeTypeDictionary(java.io.File path) throws IOException {
+        this.path = path;
+        if (path.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the code of a MIME type, adding the type if it is new.
+     *
+     * @param type MIME type, or {@code null}
+     * @return Code of the type, or {@link #NONE} for {@code null}
+     */
+    public synchronized int encode(String type) throws IOException {
+        if (type == null) {
+            return NONE;
+        }
+        Integer code = codes.get(type);
+        if (code != null) {
+            return code;
+        }
+        if (type.indexOf('\n') >= 0 || type.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Invalid MIME type: " + type);
+        }
+        if (path != null) {
+            OutputStream out = new FileOutputStream(path, true);
+            try {
+                out.write((type + "\n").getBytes(UTF_8));
+            } finally {
+                out.close();
+            }
+        }
+        return add(type);
+    }
+
+    /**
+     * Returns the code of a MIME type without adding it.
+     *
+     * @return Code of the type, or {@link #NONE} if it is {@code null} or unknown
+     */
+    public synchronized int code(String type) {
+        Integer code = type != null ? codes.get(type) : null;
+        return code != null ? code : NONE;
+    }
+
+    /**
+     * @return MIME type of the code, or {@code null} for {@link #NONE} and unknown codes
+     */
+    public synchronized String decode(int code) {
+        return code >= 0 && code < types.size() ? types.get(code) : null;
+    }
+
+    public synchronized int size() {
+        return types.size();
+    }
+
+    private int add(String type) {
+        int code = types.size();
+        types.add(type);
+        codes.put(type, code);
+        return code;
+    }
+}
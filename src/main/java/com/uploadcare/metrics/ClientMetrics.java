@@ -0,0 +1,49 @@
+package com.uploadcare.metrics;
+
+/**
+ * Receives measurements of the requests sent by a {@link com.uploadcare.api.Client} and of upload phases.
+ *
+ * Methods are called on the thread that sent the request, right after it completed, and must not block.
+ * Extend {@link ClientMetricsAdapter} to implement only some of the methods.
+ *
+ * @see com.uploadcare.api.Client#setMetrics(ClientMetrics)
+ * @see HistogramClientMetrics
+ */
+public interface ClientMetrics {
+
+    /**
+     * Called once per API call, after the response has been read or the call has failed.
+     *
+     * @param method        HTTP method
+     * @param endpoint      Request path with identifiers replaced by {@code {id}}, e.g. {@code /files/{id}/storage/}
+     * @param statusCode    Status code of the last response, or {@code -1} if no response was received
+     * @param bytesSent     Size of the request body, or {@code -1} if unknown
+     * @param bytesReceived Number of response body bytes read
+     * @param retries       Number of times the request was sent again, including retries of throttled requests
+     * @param durationNanos Time spent on the call including retries, in nanoseconds
+     */
+    void requestCompleted(String method, String endpoint, int statusCode, long bytesSent, long bytesReceived,
+                          int retries, long durationNanos);
+
+    /**
+     * Called for API calls whose response body was compressed, right before {@link #requestCompleted}.
+     *
+     * @param method            HTTP method
+     * @param endpoint          Request path with identifiers replaced by {@code {id}}
+     * @param encoding          Content coding of the response body, {@code gzip} or {@code deflate}
+     * @param compressedBytes   Number of compressed bytes read, also reported as {@code bytesReceived}
+     * @param decompressedBytes Number of bytes the body was decompressed to
+     */
+    void responseDecompressed(String method, String endpoint, String encoding, long compressedBytes,
+                              long decompressedBytes);
+
+    /**
+     * Called once per upload phase, after it has completed or failed.
+     *
+     * @param phase         Upload phase
+     * @param bytes         Number of file bytes sent in this phase, {@code 0} for phases that send no file data
+     * @param durationNanos Duration of the phase, in nanoseconds
+     * @param success       {@code false} if the phase failed
+     */
+    void uploadPhaseCompleted(UploadPhase phase, long bytes, long durationNanos, boolean success);
+}
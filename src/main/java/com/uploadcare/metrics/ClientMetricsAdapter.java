@@ -0,0 +1,19 @@
+package com.uploadcare.metrics;
+
+/**
+ * {@link ClientMetrics} implementation ignoring all measurements, to be extended by listeners interested in only some
+ * of them.
+ */
+public class ClientMetricsAdapter implements ClientMetrics {
+
+    public void requestCompleted(String method, String endpoint, int statusCode, long bytesSent, long bytesReceived,
+                                 int retries, long durationNanos) {
+    }
+
+    public void responseDecompressed(String method, String endpoint, String encoding, long compressedBytes,
+                                     long decompressedBytes) {
+    }
+
+    public void uploadPhaseCompleted(UploadPhase phase, long bytes, long durationNanos, boolean success) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.uploadcare.metrics;
+
+/**
+ * Java Flight Recorder events emitted by the library. Intended for internal use.
+ *
+ * This class does nothing: JFR is not available on the Java versions this library supports. On Java 11 and later it
+ * is replaced by the variant in {@code META-INF/versions/11} of the multi-release jar, which records
+ * {@code com.uploadcare.Request}, {@code com.uploadcare.PartUpload} and {@code com.uploadcare.UrlUploadPoll} events.
+ *
+ * Every {@code begin} method returns an event handle, or {@code null} when the event is not being recorded, in which
+ * case the caller may skip collecting the event's fields.
+ */
+public final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Starts timing an API call.
+     *
+     * @return Event handle, or {@code null} if the event is not recorded
+     */
+    public static Object beginRequest() {
+        return null;
+    }
+
+    /**
+     * Records an API call started with {@link #beginRequest()}.
+     *
+     * @param event Event handle, may be {@code null}
+     */
+    public static void commitRequest(Object event, String method, String endpoint, int statusCode, long bytesSent,
+                                     long bytesReceived, int retries) {
+    }
+
+    /**
+     * Starts timing the upload of a single part of a multipart upload.
+     *
+     * @return Event handle, or {@code null} if the event is not recorded
+     */
+    public static Object beginPartUpload() {
+        return null;
+    }
+
+    /**
+     * Records a part upload started with {@link #beginPartUpload()}.
+     *
+     * @param event Event handle, may be {@code null}
+     */
+    public static void commitPartUpload(Object event, int part, long bytes, boolean success) {
+    }
+
+    /**
+     * Starts timing a status check of an upload from URL.
+     *
+     * @return Event handle, or {@code null} if the event is not recorded
+     */
+    public static Object beginUrlUploadPoll() {
+        return null;
+    }
+
+    /**
+     * Records a status check started with {@link #beginUrlUploadPoll()}.
+     *
+     * @param event Event handle, may be {@code null}
+     */
+    public static void commitUrlUploadPoll(Object event, String status, long done, long total, int attempt) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.uploadcare.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a {@link LatencyHistogram} and counters per endpoint and per upload phase, to be read periodically and
+ * exported to a monitoring system.
+ *
+ * Endpoints are keyed as {@code "<method> <endpoint>"}, e.g. {@code "GET /files/{id}/"}.
+ */
+public class HistogramClientMetrics implements ClientMetrics {
+
+    private final ConcurrentMap<String, Stats> endpoints = new ConcurrentHashMap<String, Stats>();
+
+    private final ConcurrentMap<UploadPhase, Stats> uploadPhases = new ConcurrentHashMap<UploadPhase, Stats>();
+
+    public void requestCompleted(String method, String endpoint, int statusCode, long bytesSent, long bytesReceived,
+                                 int retries, long durationNanos) {
+        Stats stats = statsFor(endpoints, method + " " + endpoint);
+        stats.record(durationNanos, statusCode >= 200 && statusCode < 400);
+        stats.retries.addAndGet(retries);
+        if (bytesSent > 0) {
+            stats.bytesSent.addAndGet(bytesSent);
+        }
+        stats.bytesReceived.addAndGet(bytesReceived);
+    }
+
+    public void responseDecompressed(String method, String endpoint, String encoding, long compressedBytes,
+                                     long decompressedBytes) {
+        Stats stats = statsFor(endpoints, method + " " + endpoint);
+        stats.bytesCompressed.addAndGet(compressedBytes);
+        stats.bytesDecompressed.addAndGet(decompressedBytes);
+    }
+
+    public void uploadPhaseCompleted(UploadPhase phase, long bytes, long durationNanos, boolean success) {
+        Stats stats = statsFor(uploadPhases, phase);
+        stats.record(durationNanos, success);
+        stats.bytesSent.addAndGet(bytes);
+    }
+
+    /**
+     * @return Statistics per endpoint, updated live
+     */
+    public Map<String, Stats> getEndpoints() {
+        return Collections.<String, Stats>unmodifiableMap(endpoints);
+    }
+
+    /**
+     * @return Statistics per upload phase, updated live
+     */
+    public Map<UploadPhase, Stats> getUploadPhases() {
+        return Collections.<UploadPhase, Stats>unmodifiableMap(uploadPhases);
+    }
+
+    private static <K> Stats statsFor(ConcurrentMap<K, Stats> map, K key) {
+        Stats stats = map.get(key);
+        if (stats == null) {
+            stats = new Stats();
+            Stats existing = map.putIfAbsent(key, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics of a single endpoint or upload phase.
+     */
+    public static class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private final AtomicLong retries = new AtomicLong();
+
+        private final AtomicLong bytesSent = new AtomicLong();
+
+        private final AtomicLong bytesReceived = new AtomicLong();
+
+        private final AtomicLong bytesCompressed = new AtomicLong();
+
+        private final AtomicLong bytesDecompressed = new AtomicLong();
+
+        void record(long durationNanos, boolean success) {
+            latency.record(durationNanos);
+            if (!success) {
+                failures.incrementAndGet();
+            }
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        /**
+         * @return Number of bytes received in compressed responses, a part of {@link #getBytesReceived()}
+         */
+        public long getBytesCompressed() {
+            return bytesCompressed.get();
+        }
+
+        /**
+         * @return Number of bytes the compressed responses were decompressed to
+         */
+        public long getBytesDecompressed() {
+            return bytesDecompressed.get();
+        }
+    }
+}
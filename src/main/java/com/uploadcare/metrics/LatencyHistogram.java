@@ -0,0 +1,109 @@
+package com.uploadcare.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with logarithmic buckets.
+ *
+ * Values are recorded with microsecond resolution. Each power of two is split into 16 buckets, so reported
+ * percentiles are within about 6% of the recorded values. Memory use is fixed, about 8 KB per histogram.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param durationNanos Duration in nanoseconds
+     */
+    public void record(long durationNanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        counts.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long current;
+        while (micros > (current = max.get())) {
+            if (max.compareAndSet(current, micros)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return Number of recorded durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return Mean of recorded durations in microseconds, {@code 0} if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return Longest recorded duration in microseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the duration below which the given share of recorded durations falls.
+     *
+     * @param percentile Percentile between {@code 0} and {@code 100}, e.g. {@code 99}
+     * @return Duration in microseconds, {@code 0} if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,31 @@
+package com.uploadcare.metrics;
+
+/**
+ * Phases of file uploads reported to {@link ClientMetrics}.
+ */
+public enum UploadPhase {
+    /**
+     * Upload of a small file in a single request.
+     */
+    DIRECT,
+    /**
+     * Start of a multipart upload.
+     */
+    MULTIPART_START,
+    /**
+     * Upload of a single part of a multipart upload.
+     */
+    MULTIPART_PART,
+    /**
+     * Completion of a multipart upload.
+     */
+    MULTIPART_COMPLETE,
+    /**
+     * Start of an upload from URL.
+     */
+    FROM_URL,
+    /**
+     * Single status check of an upload from URL.
+     */
+    FROM_URL_STATUS
+}
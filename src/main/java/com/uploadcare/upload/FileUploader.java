@@ -6,7 +6,9 @@ import com.uploadcare.api.RequestHelper;
 import com.uploadcare.data.UploadBaseData;
 import com.uploadcare.data.UploadMultipartCompleteData;
 import com.uploadcare.data.UploadMultipartStartData;
-import com.uploadcare.urls.Urls;
+import com.uploadcare.metrics.ClientMetrics;
+import com.uploadcare.metrics.FlightRecorderEvents;
+import com.uploadcare.metrics.UploadPhase;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.http.client.entity.EntityBuilder;
@@ -138,7 +140,7 @@ public class FileUploader implements Uploader {
             return multipartUpload(name, size, contentType);
         } else {
             // We can use only direct upload
-            return directUpload(name, contentType);
+            return directUpload(name, size, contentType);
         }
     }
 
@@ -168,8 +170,8 @@ public class FileUploader implements Uploader {
         return this;
     }
 
-    private File directUpload(String name, String contentType) throws UploadFailureException {
-        URI uploadUrl = Urls.uploadBase();
+    private File directUpload(String name, long size, String contentType) throws UploadFailureException {
+        URI uploadUrl = client.getEndpoints().uploadBase();
         HttpPost request = new HttpPost(uploadUrl);
 
         MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
@@ -192,10 +194,15 @@ public class FileUploader implements Uploader {
         request.setEntity(entityBuilder.build());
 
         String fileId = null;
+        long startedAt = System.nanoTime();
+        boolean success = false;
         try {
             fileId = client.getRequestHelper()
                     .executeQuery(request, false, UploadBaseData.class).file;
+            success = true;
         } finally {
+            phaseCompleted(UploadPhase.DIRECT, size, startedAt, success);
+
             //Clean up. Delete temporary file if exist for InputStream upload.
             if (temporaryFile != null) {
                 temporaryFile.delete();
@@ -254,11 +261,20 @@ public class FileUploader implements Uploader {
         entityBuilder.addTextBody("size", String.valueOf(size));
         entityBuilder.addTextBody("content_type", contentType);
 
-        URI uploadUrl = Urls.uploadMultipartStart();
+        URI uploadUrl = client.getEndpoints().uploadMultipartStart();
         HttpPost request = new HttpPost(uploadUrl);
         request.setEntity(entityBuilder.build());
 
-        return client.getRequestHelper().executeQuery(request, false, UploadMultipartStartData.class);
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            UploadMultipartStartData data = client.getRequestHelper()
+                    .executeQuery(request, false, UploadMultipartStartData.class);
+            success = true;
+            return data;
+        } finally {
+            phaseCompleted(UploadPhase.MULTIPART_START, 0, startedAt, success);
+        }
     }
 
     private UploadMultipartCompleteData completeMultipartUpload(String uuid) {
@@ -266,21 +282,39 @@ public class FileUploader implements Uploader {
         entityBuilder.addTextBody("UPLOADCARE_PUB_KEY", client.getPublicKey());
         entityBuilder.addTextBody("uuid", uuid);
 
-        URI uploadUrl = Urls.uploadMultipartComplete();
+        URI uploadUrl = client.getEndpoints().uploadMultipartComplete();
         HttpPost request = new HttpPost(uploadUrl);
         request.setEntity(entityBuilder.build());
 
-        return client.getRequestHelper().executeQuery(request, false, UploadMultipartCompleteData.class);
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            UploadMultipartCompleteData data = client.getRequestHelper()
+                    .executeQuery(request, false, UploadMultipartCompleteData.class);
+            success = true;
+            return data;
+        } finally {
+            phaseCompleted(UploadPhase.MULTIPART_COMPLETE, 0, startedAt, success);
+        }
     }
 
-    private void partRequest(String partUrl, byte[] bytes, String contentType) {
-        URI uploadUrl = Urls.uploadMultipartPart(partUrl);
+    private void partRequest(String partUrl, int part, byte[] bytes, String contentType) {
+        URI uploadUrl = client.getEndpoints().uploadMultipartPart(partUrl);
         HttpPut request = new HttpPut(uploadUrl);
         EntityBuilder entityBuilder = EntityBuilder.create();
         entityBuilder.setBinary(bytes);
         entityBuilder.setContentType(ContentType.create(contentType));
         request.setEntity(entityBuilder.build());
-        client.getRequestHelper().executeCommand(request, false);
+        Object event = FlightRecorderEvents.beginPartUpload();
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            client.getRequestHelper().executeCommand(request, false);
+            success = true;
+        } finally {
+            FlightRecorderEvents.commitPartUpload(event, part, bytes.length, success);
+            phaseCompleted(UploadPhase.MULTIPART_PART, bytes.length, startedAt, success);
+        }
     }
 
     private void uploadParts(UploadMultipartStartData multipartData, String name, String contentType)
@@ -305,13 +339,20 @@ public class FileUploader implements Uploader {
             byte[] bytes = Arrays.copyOf(buffer, read);
             String partUrl = multipartData.parts.get(i);
             //Upload request
-            partRequest(partUrl, bytes, contentType);
+            partRequest(partUrl, i, bytes, contentType);
             i += 1;
         }
 
         is.close();
     }
 
+    private void phaseCompleted(UploadPhase phase, long bytes, long startedAt, boolean success) {
+        ClientMetrics metrics = client.getMetrics();
+        if (metrics != null) {
+            metrics.uploadPhaseCompleted(phase, bytes, System.nanoTime() - startedAt, success);
+        }
+    }
+
     private java.io.File generateTemporaryFile(InputStream inputStream, String name) throws IOException {
         java.io.File tempFile = java.io.File.createTempFile("temp_upload_file", null);
         FileUtils.copyInputStreamToFile(inputStream, tempFile);
@@ -5,7 +5,9 @@ import com.uploadcare.api.File;
 import com.uploadcare.api.RequestHelper;
 import com.uploadcare.data.UploadFromUrlData;
 import com.uploadcare.data.UploadFromUrlStatusData;
-import com.uploadcare.urls.Urls;
+import com.uploadcare.metrics.ClientMetrics;
+import com.uploadcare.metrics.FlightRecorderEvents;
+import com.uploadcare.metrics.UploadPhase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
@@ -154,14 +156,22 @@ public class UrlUploader implements Uploader {
             entityBuilder.addTextBody("expire", expire);
         }
 
-        URI uploadUrl = Urls.uploadFromUrl();
+        URI uploadUrl = client.getEndpoints().uploadFromUrl();
         HttpPost uploadRequest = new HttpPost(uploadUrl);
         uploadRequest.setEntity(entityBuilder.build());
 
         RequestHelper requestHelper = client.getRequestHelper();
-        String token = requestHelper.executeQuery(uploadRequest, false, UploadFromUrlData.class).token;
+        String token;
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            token = requestHelper.executeQuery(uploadRequest, false, UploadFromUrlData.class).token;
+            success = true;
+        } finally {
+            phaseCompleted(UploadPhase.FROM_URL, 0, startedAt, success);
+        }
 
-        URI statusUrl = Urls.uploadFromUrlStatus(token);
+        URI statusUrl = client.getEndpoints().uploadFromUrlStatus(token);
 
         long waitTime = pollingInterval;
         int retries = 0;
@@ -170,10 +180,24 @@ public class UrlUploader implements Uploader {
         while (true) {
             sleep(waitTime);
             HttpGet request = new HttpGet(statusUrl);
-            UploadFromUrlStatusData data = requestHelper.executeQuery(
-                    request,
-                    false,
-                    UploadFromUrlStatusData.class);
+            UploadFromUrlStatusData data = null;
+            Object event = FlightRecorderEvents.beginUrlUploadPoll();
+            startedAt = System.nanoTime();
+            success = false;
+            try {
+                data = requestHelper.executeQuery(
+                        request,
+                        false,
+                        UploadFromUrlStatusData.class);
+                success = true;
+            } finally {
+                if (data != null) {
+                    FlightRecorderEvents.commitUrlUploadPoll(event, data.status, data.done, data.total, retries);
+                } else {
+                    FlightRecorderEvents.commitUrlUploadPoll(event, null, 0, 0, retries);
+                }
+                phaseCompleted(UploadPhase.FROM_URL_STATUS, 0, startedAt, success);
+            }
             if (data.status.equals("success")) {
                 // Success
                 if (client.getSecretKey() != null) {
@@ -216,6 +240,13 @@ public class UrlUploader implements Uploader {
         throw new UploadFailureException("Timeout");
     }
 
+    private void phaseCompleted(UploadPhase phase, long bytes, long startedAt, boolean success) {
+        ClientMetrics metrics = client.getMetrics();
+        if (metrics != null) {
+            metrics.uploadPhaseCompleted(phase, bytes, System.nanoTime() - startedAt, success);
+        }
+    }
+
     private void sleep(long millis) {
         try {
             Thread.sleep(millis);
@@ -387,7 +387,7 @@ public class CdnPathBuilder {
      *
      * @return CDN path
      *
-     * @see com.uploadcare.urls.Urls#cdn(CdnPathBuilder)
+     * @see com.uploadcare.urls.Endpoints#cdn(CdnPathBuilder)
      */
     public String build() {
         return sb.append("/").toString();
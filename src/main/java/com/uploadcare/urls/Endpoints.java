@@ -0,0 +1,311 @@
+package com.uploadcare.urls;
+
+import org.apache.http.client.utils.URIBuilder;
+
+import java.net.URI;
+
+import static com.uploadcare.urls.UrlUtils.trustedBuild;
+
+/**
+ * Uploadcare API URL factory methods for a set of base URLs.
+ *
+ * {@link #DEFAULT} points at the public Uploadcare services. Other instances may point at a custom CDN domain or at a
+ * local stand-in for testing, see {@link com.uploadcare.api.ClientBuilder#endpoints(Endpoints)}. Base URLs consist of a
+ * scheme, host and optional port, without a path.
+ */
+public class Endpoints {
+
+    public static final Endpoints DEFAULT = new Endpoints(
+            "https://api.uploadcare.com",
+            "https://upload.uploadcare.com",
+            "https://ucarecdn.com");
+
+    private final String apiBase;
+
+    private final String uploadBase;
+
+    private final String cdnBase;
+
+    /**
+     * @param apiBase    REST API base URL, e.g. {@code https://api.uploadcare.com}
+     * @param uploadBase Upload API base URL, e.g. {@code https://upload.uploadcare.com}
+     * @param cdnBase    CDN base URL, e.g. {@code https://ucarecdn.com}
+     */
+    public Endpoints(String apiBase, String uploadBase, String cdnBase) {
+        this.apiBase = stripTrailingSlash(apiBase);
+        this.uploadBase = stripTrailingSlash(uploadBase);
+        this.cdnBase = stripTrailingSlash(cdnBase);
+    }
+
+    /**
+     * Returns a copy of these endpoints with a different CDN base URL, e.g. a custom CNAME.
+     *
+     * @param cdnBase CDN base URL
+     */
+    public Endpoints withCdnBase(String cdnBase) {
+        return new Endpoints(apiBase, uploadBase, cdnBase);
+    }
+
+    public String getApiBase() {
+        return apiBase;
+    }
+
+    public String getUploadBase() {
+        return uploadBase;
+    }
+
+    public String getCdnBase() {
+        return cdnBase;
+    }
+
+    /**
+     * Creates a URL to a project resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiProject() {
+        return URI.create(apiBase + "/project/");
+    }
+
+    /**
+     * Creates a URL to a group resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiGroup(String groupId) {
+        return URI.create(apiBase + "/groups/" + groupId + "/");
+    }
+
+    /**
+     * Creates a URL to a group resource with files included.
+     *
+     * @param publicKey
+     * @param groupId   File UUID
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiUploadedGroup(String publicKey, String groupId) {
+        URIBuilder builder = new URIBuilder(URI.create(uploadBase));
+        builder.setPath("/group/info/")
+                .setParameter("pub_key", publicKey)
+                .setParameter("group_id", groupId);
+        return trustedBuild(builder);
+    }
+
+    /**
+     * Creates a URL to a uploaded file resource.
+     *
+     * @param publicKey
+     * @param fileId File UUID
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiUploadedFile(String publicKey, String fileId) {
+        URIBuilder builder = new URIBuilder(URI.create(uploadBase));
+        builder.setPath("/info/")
+                .setParameter("pub_key", publicKey)
+                .setParameter("file_id", fileId);
+        return trustedBuild(builder);
+    }
+
+    /**
+     * Creates a URL to a file resource.
+     *
+     * @param fileId File UUID
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiFile(String fileId) {
+        return URI.create(apiBase + "/files/" + fileId + "/");
+    }
+
+    /**
+     * Creates a URL to a file resource with specific fields.
+     *
+     * @param fileId File UUID
+     * @param fields Add special fields to the file object, such as: rekognition_info.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI getFileWithFields(String fileId, String fields) {
+        URIBuilder builder = new URIBuilder(URI.create(apiBase));
+        builder.setPath("/files/" + fileId + "/")
+                .setParameter("add_fields", fields);
+        return trustedBuild(builder);
+    }
+
+    /**
+     * Creates a URL to the storage action for a file (saving the file).
+     *
+     * @param fileId File UUID
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiFileStorage(String fileId) {
+        return URI.create(apiBase + "/files/" + fileId + "/storage/");
+    }
+
+    /**
+     * Creates a URL to the file collection resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiFiles() {
+        return URI.create(apiBase + "/files/");
+    }
+
+    /**
+     * Creates a URL to the file local copy resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiFileLocalCopy() {
+        return URI.create(apiBase + "/files/local_copy/");
+    }
+
+    /**
+     * Creates a URL to the file remote copy resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiFileRemoteCopy() {
+        return URI.create(apiBase + "/files/remote_copy/");
+    }
+
+    /**
+     * Creates a URL to the storage action for a multiple files (saving/deleting the files).
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiFilesBatch() {
+        return URI.create(apiBase + "/files/storage/");
+    }
+
+    /**
+     * Creates a URL to the group resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiCreateGroup() {
+        return URI.create(uploadBase + "/group/");
+    }
+
+    /**
+     * Creates a URL to the group collection resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiGroups() {
+        return URI.create(apiBase + "/groups/");
+    }
+
+    /**
+     * Creates a URL to the storage action for a group (saving the group).
+     *
+     * @param groupId Group Id
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiGroupStorage(String groupId) {
+        return URI.create(apiBase + "/groups/" + groupId + "/storage/");
+    }
+
+    /**
+     * Creates a URL to the webhook collection resource.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiWebhooks() {
+        return URI.create(apiBase + "/webhooks/");
+    }
+
+    /**
+     * Creates a URL for the webhook delete.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiWebhook(int webhookId) {
+        return URI.create(apiBase + "/webhooks/" + webhookId + "/");
+    }
+
+    /**
+     * Creates a URL for the webhook delete.
+     *
+     * @see com.uploadcare.api.Client
+     */
+    public URI apiDeleteWebhook() {
+        return URI.create(apiBase + "/webhooks/unsubscribe/");
+    }
+
+    /**
+     * Creates a full CDN URL with a CDN path builder.
+     *
+     * @param builder Configured CDN path builder
+     */
+    public URI cdn(CdnPathBuilder builder) {
+        return URI.create(cdnBase + builder.build());
+    }
+
+    /**
+     * Creates a URL to the file upload endpoint.
+     *
+     * @see com.uploadcare.upload.FileUploader
+     */
+    public URI uploadBase() {
+        return URI.create(uploadBase + "/base/");
+    }
+
+    /**
+     * Creates a URL for URL upload.
+     *
+     * @see com.uploadcare.upload.UrlUploader
+     */
+    public URI uploadFromUrl() {
+        return URI.create(uploadBase + "/from_url/");
+    }
+
+    /**
+     * Creates a URL for URL upload status (e.g. progress).
+     *
+     * @param token Token, received after a URL upload request
+     *
+     * @see com.uploadcare.upload.UrlUploader
+     */
+    public URI uploadFromUrlStatus(String token) {
+        URIBuilder builder = new URIBuilder(URI.create(uploadBase));
+        builder.setPath("/from_url/status/")
+                .setParameter("token", token);
+        return trustedBuild(builder);
+    }
+
+    /**
+     * Creates a URL to the file upload using multipart.
+     *
+     * @see com.uploadcare.upload.FileUploader
+     */
+    public URI uploadMultipartStart() {
+        return URI.create(uploadBase + "/multipart/start/");
+    }
+
+    /**
+     * Creates a URL to the file chunk upload using multipart.
+     *
+     * @see com.uploadcare.upload.FileUploader
+     */
+    public URI uploadMultipartPart(String preSignedPartUrl) {
+        return URI.create(preSignedPartUrl);
+    }
+
+    /**
+     * Creates a URL for multipart upload complete.
+     *
+     * @see com.uploadcare.upload.FileUploader
+     */
+    public URI uploadMultipartComplete() {
+        return URI.create(uploadBase + "/multipart/complete/");
+    }
+
+    private static String stripTrailingSlash(String base) {
+        return base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+}
@@ -1,19 +1,15 @@
 package com.uploadcare.urls;
 
-import org.apache.http.client.utils.URIBuilder;
-
 import java.net.URI;
 
-import static com.uploadcare.urls.UrlUtils.trustedBuild;
-
 /**
- * Uploadcare API URL factory methods.
+ * Uploadcare API URL factory methods for the default base URLs.
+ *
+ * @see Endpoints
  */
 public class Urls {
 
     public static final String API_BASE = "https://api.uploadcare.com";
-    private static final String CDN_BASE = "https://ucarecdn.com";
-    private static final String UPLOAD_BASE = "https://upload.uploadcare.com";
 
     /**
      * Creates a URL to a project resource.
@@ -21,7 +17,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiProject() {
-        return URI.create(API_BASE + "/project/");
+        return Endpoints.DEFAULT.apiProject();
     }
 
     /**
@@ -30,7 +26,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiGroup(String groupId) {
-        return URI.create(API_BASE + "/groups/" + groupId + "/");
+        return Endpoints.DEFAULT.apiGroup(groupId);
     }
 
     /**
@@ -42,11 +38,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiUploadedGroup(String publicKey, String groupId) {
-        URIBuilder builder = new URIBuilder(URI.create(UPLOAD_BASE));
-        builder.setPath("/group/info/")
-                .setParameter("pub_key", publicKey)
-                .setParameter("group_id", groupId);
-        return trustedBuild(builder);
+        return Endpoints.DEFAULT.apiUploadedGroup(publicKey, groupId);
     }
 
     /**
@@ -58,11 +50,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiUploadedFile(String publicKey, String fileId) {
-        URIBuilder builder = new URIBuilder(URI.create(UPLOAD_BASE));
-        builder.setPath("/info/")
-                .setParameter("pub_key", publicKey)
-                .setParameter("file_id", fileId);
-        return trustedBuild(builder);
+        return Endpoints.DEFAULT.apiUploadedFile(publicKey, fileId);
     }
 
     /**
@@ -73,7 +61,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiFile(String fileId) {
-        return URI.create(API_BASE + "/files/" + fileId + "/");
+        return Endpoints.DEFAULT.apiFile(fileId);
     }
 
     /**
@@ -85,10 +73,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI getFileWithFields(String fileId, String fields) {
-        URIBuilder builder = new URIBuilder(URI.create(API_BASE));
-        builder.setPath("/files/" + fileId + "/")
-                .setParameter("add_fields", fields);
-        return trustedBuild(builder);
+        return Endpoints.DEFAULT.getFileWithFields(fileId, fields);
     }
 
     /**
@@ -99,7 +84,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiFileStorage(String fileId) {
-        return URI.create(API_BASE + "/files/" + fileId + "/storage/");
+        return Endpoints.DEFAULT.apiFileStorage(fileId);
     }
 
     /**
@@ -108,7 +93,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiFiles() {
-        return URI.create(API_BASE + "/files/");
+        return Endpoints.DEFAULT.apiFiles();
     }
 
     /**
@@ -117,7 +102,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiFileLocalCopy() {
-        return URI.create(API_BASE + "/files/local_copy/");
+        return Endpoints.DEFAULT.apiFileLocalCopy();
     }
 
     /**
@@ -126,7 +111,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiFileRemoteCopy() {
-        return URI.create(API_BASE + "/files/remote_copy/");
+        return Endpoints.DEFAULT.apiFileRemoteCopy();
     }
 
     /**
@@ -135,7 +120,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiFilesBatch() {
-        return URI.create(API_BASE + "/files/storage/");
+        return Endpoints.DEFAULT.apiFilesBatch();
     }
 
     /**
@@ -143,8 +128,8 @@ public class Urls {
      *
      * @see com.uploadcare.api.Client
      */
-    public static URI apiCreateGroup(){
-        return URI.create(UPLOAD_BASE + "/group/");
+    public static URI apiCreateGroup() {
+        return Endpoints.DEFAULT.apiCreateGroup();
     }
 
     /**
@@ -152,8 +137,8 @@ public class Urls {
      *
      * @see com.uploadcare.api.Client
      */
-    public static URI apiGroups(){
-        return URI.create(API_BASE + "/groups/");
+    public static URI apiGroups() {
+        return Endpoints.DEFAULT.apiGroups();
     }
 
     /**
@@ -164,7 +149,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiGroupStorage(String groupId) {
-        return URI.create(API_BASE + "/groups/" + groupId + "/storage/");
+        return Endpoints.DEFAULT.apiGroupStorage(groupId);
     }
 
     /**
@@ -172,8 +157,8 @@ public class Urls {
      *
      * @see com.uploadcare.api.Client
      */
-    public static URI apiWebhooks(){
-        return URI.create(API_BASE + "/webhooks/");
+    public static URI apiWebhooks() {
+        return Endpoints.DEFAULT.apiWebhooks();
     }
 
     /**
@@ -182,7 +167,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiWebhook(int webhookId) {
-        return URI.create(API_BASE + "/webhooks/"+webhookId+"/");
+        return Endpoints.DEFAULT.apiWebhook(webhookId);
     }
 
     /**
@@ -191,7 +176,7 @@ public class Urls {
      * @see com.uploadcare.api.Client
      */
     public static URI apiDeleteWebhook() {
-        return URI.create(API_BASE + "/webhooks/unsubscribe/");
+        return Endpoints.DEFAULT.apiDeleteWebhook();
     }
 
     /**
@@ -200,7 +185,7 @@ public class Urls {
      * @param builder Configured CDN path builder
      */
     public static URI cdn(CdnPathBuilder builder) {
-        return URI.create(CDN_BASE + builder.build());
+        return Endpoints.DEFAULT.cdn(builder);
     }
 
     /**
@@ -209,7 +194,7 @@ public class Urls {
      * @see com.uploadcare.upload.FileUploader
      */
     public static URI uploadBase() {
-        return URI.create(UPLOAD_BASE + "/base/");
+        return Endpoints.DEFAULT.uploadBase();
     }
 
     /**
@@ -218,7 +203,7 @@ public class Urls {
      * @see com.uploadcare.upload.UrlUploader
      */
     public static URI uploadFromUrl() {
-        return URI.create(UPLOAD_BASE + "/from_url/");
+        return Endpoints.DEFAULT.uploadFromUrl();
     }
 
     /**
@@ -229,10 +214,7 @@ public class Urls {
      * @see com.uploadcare.upload.UrlUploader
      */
     public static URI uploadFromUrlStatus(String token) {
-        URIBuilder builder = new URIBuilder(URI.create(UPLOAD_BASE));
-        builder.setPath("/from_url/status/")
-                .setParameter("token", token);
-        return trustedBuild(builder);
+        return Endpoints.DEFAULT.uploadFromUrlStatus(token);
     }
 
     /**
@@ -241,7 +223,7 @@ public class Urls {
      * @see com.uploadcare.upload.FileUploader
      */
     public static URI uploadMultipartStart() {
-        return URI.create(UPLOAD_BASE + "/multipart/start/");
+        return Endpoints.DEFAULT.uploadMultipartStart();
     }
 
     /**
@@ -250,7 +232,7 @@ public class Urls {
      * @see com.uploadcare.upload.FileUploader
      */
     public static URI uploadMultipartPart(String preSignedPartUrl) {
-        return URI.create(preSignedPartUrl);
+        return Endpoints.DEFAULT.uploadMultipartPart(preSignedPartUrl);
     }
 
     /**
@@ -259,6 +241,6 @@ public class Urls {
      * @see com.uploadcare.upload.FileUploader
      */
     public static URI uploadMultipartComplete() {
-        return URI.create(UPLOAD_BASE + "/multipart/complete/");
+        return Endpoints.DEFAULT.uploadMultipartComplete();
     }
 }
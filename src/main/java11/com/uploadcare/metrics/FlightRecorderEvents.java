@@ -0,0 +1,154 @@
+package com.uploadcare.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events emitted by the library. Intended for internal use.
+ *
+ * Java 11 variant of the class, shipped in {@code META-INF/versions/11} of the multi-release jar.
+ */
+public final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    public static Object beginRequest() {
+        RequestEvent event = new RequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void commitRequest(Object event, String method, String endpoint, int statusCode, long bytesSent,
+                                     long bytesReceived, int retries) {
+        if (event == null) {
+            return;
+        }
+        RequestEvent request = (RequestEvent) event;
+        request.end();
+        if (request.shouldCommit()) {
+            request.method = method;
+            request.endpoint = endpoint;
+            request.statusCode = statusCode;
+            request.bytesSent = bytesSent;
+            request.bytesReceived = bytesReceived;
+            request.retries = retries;
+            request.commit();
+        }
+    }
+
+    public static Object beginPartUpload() {
+        PartUploadEvent event = new PartUploadEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void commitPartUpload(Object event, int part, long bytes, boolean success) {
+        if (event == null) {
+            return;
+        }
+        PartUploadEvent partUpload = (PartUploadEvent) event;
+        partUpload.end();
+        if (partUpload.shouldCommit()) {
+            partUpload.part = part;
+            partUpload.bytes = bytes;
+            partUpload.success = success;
+            partUpload.commit();
+        }
+    }
+
+    public static Object beginUrlUploadPoll() {
+        UrlUploadPollEvent event = new UrlUploadPollEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void commitUrlUploadPoll(Object event, String status, long done, long total, int attempt) {
+        if (event == null) {
+            return;
+        }
+        UrlUploadPollEvent poll = (UrlUploadPollEvent) event;
+        poll.end();
+        if (poll.shouldCommit()) {
+            poll.status = status;
+            poll.done = done;
+            poll.total = total;
+            poll.attempt = attempt;
+            poll.commit();
+        }
+    }
+
+    @Name("com.uploadcare.Request")
+    @Label("Uploadcare API Request")
+    @Category("Uploadcare")
+    static final class RequestEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Status Code")
+        int statusCode;
+
+        @Label("Bytes Sent")
+        @DataAmount
+        long bytesSent;
+
+        @Label("Bytes Received")
+        @DataAmount
+        long bytesReceived;
+
+        @Label("Retries")
+        int retries;
+    }
+
+    @Name("com.uploadcare.PartUpload")
+    @Label("Uploadcare Multipart Part Upload")
+    @Category("Uploadcare")
+    static final class PartUploadEvent extends Event {
+
+        @Label("Part")
+        int part;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("com.uploadcare.UrlUploadPoll")
+    @Label("Uploadcare URL Upload Status Poll")
+    @Category("Uploadcare")
+    static final class UrlUploadPollEvent extends Event {
+
+        @Label("Status")
+        String status;
+
+        @Label("Done")
+        @DataAmount
+        long done;
+
+        @Label("Total")
+        @DataAmount
+        long total;
+
+        @Label("Attempt")
+        int attempt;
+    }
+}
@@ -0,0 +1,78 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareServerException;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void test_opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60000);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void test_halfOpenAllowsSingleProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 10);
+        breaker.recordFailure();
+        Thread.sleep(20);
+
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(20);
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void test_registryKeepsBreakerPerHost() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+
+        assertSame(registry.forHost("api.uploadcare.com"), registry.forHost("api.uploadcare.com"));
+        assertFalse(registry.forHost("api.uploadcare.com") == registry.forHost("upload.uploadcare.com"));
+    }
+
+    @Test
+    public void test_retryPolicy() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(2, 100, 150);
+        HttpGet get = new HttpGet("https://api.uploadcare.com/files/");
+        HttpPost post = new HttpPost("https://api.uploadcare.com/files/");
+
+        for (int i = 0; i < 100; i++) {
+            long first = policy.retryDelay(get, 1, new IOException());
+            long second = policy.retryDelay(get, 2, new UploadcareServerException("", 503));
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(second >= 0 && second <= 150);
+        }
+        assertEquals(-1, policy.retryDelay(get, 3, new IOException()));
+        assertEquals(-1, policy.retryDelay(get, 1, new UploadcareServerException("", 501)));
+        assertEquals(-1, policy.retryDelay(post, 1, new IOException()));
+        assertTrue(policy.retryDelay(post, 1, new ConnectException()) >= 0);
+    }
+}
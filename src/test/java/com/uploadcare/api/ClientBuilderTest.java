@@ -0,0 +1,58 @@
+package com.uploadcare.api;
+
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ClientBuilderTest {
+
+    @Test
+    public void test_poolLimits() {
+        Client client = new ClientBuilder("public", "secret")
+                .maxConnections(300)
+                .maxConnectionsPerHost(20)
+                .maxConnectionsPerHost("https://upload.uploadcare.com", 200)
+                .build();
+        try {
+            assertEquals(300, client.getPoolStats().getMax());
+            assertEquals(200, client.getPoolStats("https://upload.uploadcare.com").getMax());
+            assertEquals(20, client.getPoolStats("https://api.uploadcare.com").getMax());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void test_timeoutProfiles() {
+        Client client = new ClientBuilder("public", "secret")
+                .restTimeouts(1000, 2000, 3000)
+                .uploadTimeouts(4000, 5000, 6000)
+                .partTimeouts(7000, 8000, 9000)
+                .build();
+        try {
+            assertEquals(3000, client.getRequestConfig(
+                    URI.create("https://api.uploadcare.com/files/")).getSocketTimeout());
+            assertEquals(6000, client.getRequestConfig(
+                    URI.create("https://upload.uploadcare.com/base/")).getSocketTimeout());
+            assertEquals(9000, client.getRequestConfig(
+                    URI.create("https://s3.amazonaws.com/part")).getSocketTimeout());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void test_customHttpClient() {
+        Client client = new Client("public", "secret", HttpClients.createDefault());
+        try {
+            assertNull(client.getPoolStats());
+            assertNull(client.getRequestConfig(URI.create("https://api.uploadcare.com/files/")));
+        } finally {
+            client.close();
+        }
+    }
+}
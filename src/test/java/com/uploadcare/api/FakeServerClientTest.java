@@ -0,0 +1,944 @@
+package com.uploadcare.api;
+
+import com.uploadcare.cache.InMemoryMetadataStore;
+import com.uploadcare.cache.MetadataCache;
+import com.uploadcare.data.FilePageData;
+import com.uploadcare.exceptions.UploadcareApiException;
+import com.uploadcare.exceptions.UploadcareCircuitOpenException;
+import com.uploadcare.exceptions.UploadcareInvalidRequestException;
+import com.uploadcare.exceptions.UploadcareNotFoundException;
+import com.uploadcare.exceptions.UploadcareServerException;
+import com.uploadcare.exceptions.UploadcareThrottledException;
+import com.uploadcare.metrics.HistogramClientMetrics;
+import com.uploadcare.testing.FakeUploadcareServer;
+import com.uploadcare.upload.FileUploader;
+import com.uploadcare.upload.UploadFailureException;
+import com.uploadcare.upload.UrlUploader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FakeServerClientTest {
+
+    private static final String MISSING_UUID = "00000000-0000-0000-0000-000000000000";
+
+    private FakeUploadcareServer server;
+
+    private Client client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = FakeUploadcareServer.start();
+        client = new ClientBuilder("public", "secret")
+                .endpoints(server.getEndpoints())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Adds files of 1 KiB to the server and returns their UUIDs.
+     */
+    private List<String> addedFileIds(int count) {
+        server.addFiles(count, 1024);
+        List<String> uuids = new ArrayList<String>();
+        for (File file : client.getFiles().asIterable()) {
+            uuids.add(file.getFileId());
+        }
+        return uuids;
+    }
+
+    @Test
+    public void test_fileLifecycle() throws UploadFailureException {
+        File uploaded = new FileUploader(client, "hello".getBytes(), "hello.txt").upload();
+        assertEquals("hello.txt", uploaded.getOriginalFilename());
+        assertEquals(5, uploaded.getSize());
+        assertNull(uploaded.getStoredDate());
+
+        client.saveFiles(Arrays.asList(uploaded.getFileId()));
+        assertNotNull(client.getFile(uploaded.getFileId()).getStoredDate());
+
+        client.deleteFile(uploaded.getFileId());
+        assertEquals(0, server.getFileCount());
+    }
+
+    @Test
+    public void test_multipartAndUrlUploads() throws UploadFailureException {
+        byte[] large = new byte[12 * 1024 * 1024];
+        File multipart = new FileUploader(client, large, "large.bin").upload();
+        assertEquals(large.length, multipart.getSize());
+
+        File fromUrl = new UrlUploader(client, "https://example.com/image.png").upload(10);
+        assertEquals("image.png", fromUrl.getOriginalFilename());
+        assertEquals(2, server.getFileCount());
+    }
+
+    @Test
+    public void test_listingFollowsPages() {
+        server.addFiles(250, 1024);
+
+        assertEquals(250, client.getFiles().asList().size());
+    }
+
+    @Test
+    public void test_prefetchesPages() {
+        server.addFiles(250, 1024);
+        List<String> expected = new ArrayList<String>();
+        for (File file : client.getFiles().asIterable()) {
+            expected.add(file.getFileId());
+        }
+
+        List<String> prefetched = new ArrayList<String>();
+        for (File file : client.getFiles().prefetch(2).asIterable()) {
+            prefetched.add(file.getFileId());
+        }
+        assertEquals(expected, prefetched);
+    }
+
+    @Test
+    public void test_projectsListedFields() throws IOException {
+        server.addFiles(150, 1024);
+        List<File> full = client.getFiles().asList();
+
+        List<File> projected = client.getFiles().fields(FileField.SIZE, FileField.DATETIME_UPLOADED).asList();
+        assertEquals(full.size(), projected.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.get(i).getFileId(), projected.get(i).getFileId());
+            assertEquals(full.get(i).getSize(), projected.get(i).getSize());
+            assertEquals(full.get(i).getUploadDate(), projected.get(i).getUploadDate());
+            assertNotNull(full.get(i).getMimeType());
+            assertNull(projected.get(i).getMimeType());
+            assertNull(projected.get(i).getStoredDate());
+        }
+
+        Date from = new Date(System.currentTimeMillis() - 3600000);
+        Date to = new Date(System.currentTimeMillis() + 3600000);
+        int scanned = 0;
+        for (File file : client.getFiles().fields(FileField.SIZE).parallelScan(from, to).asIterable()) {
+            assertEquals(1024, file.getSize());
+            assertNotNull(file.getUploadDate());
+            assertNull(file.getMimeType());
+            scanned++;
+        }
+        assertEquals(full.size(), scanned);
+
+        FilePageData page = FilePageProjection.reader(client, EnumSet.of(FileField.IMAGE_INFO)).readValue(
+                "{\"next\":null,\"results\":[{\"uuid\":\"a\",\"video_info\":{\"audio\":{\"codec\":[1,{}]}},"
+                        + "\"image_info\":{\"width\":10,\"geo_location\":null},\"size\":5}]}");
+        assertEquals("a", page.results.get(0).uuid);
+        assertEquals(10, page.results.get(0).imageInfo.width);
+        assertNull(page.results.get(0).videoInfo);
+        assertEquals(0, page.results.get(0).size);
+    }
+
+    @Test
+    public void test_cursorDecodesFilesInPlace() {
+        server.addFiles(150, 1024);
+        server.addFile("photo.jpg", "image/jpeg", new byte[]{1, 2, 3});
+        List<File> files = client.getFiles().asList();
+
+        FileCursor cursor = client.getFiles().cursor();
+        int i = 0;
+        while (cursor.advance()) {
+            File file = files.get(i++);
+            assertEquals(file.getFileId(), cursor.uuid());
+            assertEquals(file.getSize(), cursor.size());
+            assertEquals(file.getUploadDate().getTime(), cursor.uploadedEpochMillis());
+            assertEquals(file.getStoredDate().getTime(), cursor.storedEpochMillis());
+            assertEquals(FileCursor.NO_TIME, cursor.removedEpochMillis());
+            assertEquals(file.getMimeType(), cursor.getMimeTypes().decode(cursor.mimeTypeCode()));
+            assertEquals(file.isImage(), cursor.isImage());
+        }
+        assertEquals(files.size(), i);
+        assertEquals(2, cursor.getMimeTypes().size());
+        assertFalse(cursor.advance());
+    }
+
+    @Test
+    public void test_looksUpFilesInBulk() {
+        List<String> uuids = addedFileIds(40);
+        uuids.add(10, MISSING_UUID);
+        uuids.add(uuids.get(0));
+        server.latency(20);
+
+        long requests = server.getRequestCount();
+        BulkFileLookup.Result result = client.getFiles(uuids).parallelism(8).execute();
+        assertEquals(41, server.getRequestCount() - requests);
+        assertEquals(40, result.getFiles().size());
+        assertEquals(uuids.subList(0, 10), new ArrayList<String>(result.getFiles().keySet()).subList(0, 10));
+        assertEquals(Collections.singleton(MISSING_UUID), result.getFailures().keySet());
+        assertTrue(result.getFailures().get(MISSING_UUID) instanceof UploadcareNotFoundException);
+
+        final AtomicInteger found = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        client.getFiles(uuids).addFields("rekognition_info").forEach(new BulkFileLookup.Callback() {
+            public void onFile(String fileId, File file) {
+                found.incrementAndGet();
+            }
+
+            public void onFailure(String fileId, RuntimeException failure) {
+                failed.incrementAndGet();
+            }
+        });
+        assertEquals(40, found.get());
+        assertEquals(1, failed.get());
+    }
+
+    @Test
+    public void test_reportsRejectedLookupsPerFile() {
+        List<String> uuids = addedFileIds(10);
+        server.latency(20);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<Runnable>());
+        Client singleWorkerClient = new ClientBuilder("public", "secret")
+                .endpoints(server.getEndpoints())
+                .executor(executor)
+                .build();
+        try {
+            // The one worker accepted looks up all files.
+            BulkFileLookup.Result result = singleWorkerClient.getFiles(uuids).parallelism(4).execute();
+            assertEquals(10, result.getFiles().size());
+            assertTrue(result.getFailures().isEmpty());
+
+            executor.shutdown();
+            result = singleWorkerClient.getFiles(uuids).execute();
+            assertTrue(result.getFiles().isEmpty());
+            assertEquals(uuids, new ArrayList<String>(result.getFailures().keySet()));
+            assertTrue(result.getFailures().get(uuids.get(0)).getCause() instanceof RejectedExecutionException);
+        } finally {
+            singleWorkerClient.close();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_savesFilesInConcurrentBatches() {
+        List<String> uuids = addedFileIds(250);
+        uuids.add(MISSING_UUID);
+        server.failNext(1, 503);
+
+        long requests = server.getRequestCount();
+        BatchResult result = client.filesBatch(uuids).parallelism(3).save();
+        // Three batches, and the UUIDs of the failed one once more.
+        assertEquals(4, server.getRequestCount() - requests);
+        assertEquals(250, result.getFiles().size());
+        assertEquals(uuids.get(0), result.getFiles().keySet().iterator().next());
+        assertEquals(Collections.singleton(MISSING_UUID), result.getProblems().keySet());
+        assertTrue(result.getFailures().isEmpty());
+        assertFalse(result.isSuccessful());
+        for (File file : result.getFiles().values()) {
+            assertNotNull(file.getStoredDate());
+        }
+
+        server.failNext(1, 503);
+        result = client.filesBatch(uuids.subList(0, 150)).maxRetries(0).delete();
+        assertEquals(100 + 50, result.getFiles().size() + result.getFailures().size());
+        assertTrue(result.getFailures().values().iterator().next() instanceof UploadcareServerException);
+    }
+
+    @Test
+    public void test_batchesSingleSavesAcrossThreads() throws Exception {
+        final List<String> uuids = addedFileIds(150);
+        uuids.add(MISSING_UUID);
+
+        final FilesBatcher batcher = new FilesBatcher(client, 1000);
+        long requests = server.getRequestCount();
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        List<Future<Future<File>>> calls = new ArrayList<Future<Future<File>>>();
+        for (final String uuid : uuids) {
+            calls.add(workers.submit(new Callable<Future<File>>() {
+                public Future<File> call() {
+                    return batcher.save(uuid);
+                }
+            }));
+        }
+        List<Future<File>> futures = new ArrayList<Future<File>>();
+        for (Future<Future<File>> call : calls) {
+            futures.add(call.get());
+        }
+        workers.shutdown();
+        batcher.close();
+
+        for (int i = 0; i < 150; i++) {
+            File file = futures.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(uuids.get(i), file.getFileId());
+            assertNotNull(file.getStoredDate());
+        }
+        try {
+            futures.get(150).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UploadcareInvalidRequestException);
+        }
+        // A full batch of 100, and the rest once the batcher is closed.
+        assertEquals(2, server.getRequestCount() - requests);
+    }
+
+    @Test
+    public void test_adaptsPageSize() {
+        server.addFiles(1000, 1024);
+        List<String> expected = new ArrayList<String>();
+        for (File file : client.getFiles().asIterable()) {
+            expected.add(file.getFileId());
+        }
+
+        long requests = server.getRequestCount();
+        assertEquals(expected.size(), client.getFiles().limit(250).asList().size());
+        assertEquals(4, server.getRequestCount() - requests);
+
+        // Fast pages grow up to twice their size each time.
+        requests = server.getRequestCount();
+        List<String> listed = new ArrayList<String>();
+        for (File file : client.getFiles()
+                .adaptivePageSize(new AdaptivePageSize(10, 1000, 60000, 64 * 1024 * 1024))
+                .asIterable()) {
+            listed.add(file.getFileId());
+        }
+        assertEquals(expected, listed);
+        assertEquals(4, server.getRequestCount() - requests);
+
+        // Pages larger than allowed shrink.
+        requests = server.getRequestCount();
+        listed.clear();
+        for (File file : client.getFiles()
+                .adaptivePageSize(new AdaptivePageSize(10, 1000, 60000, 16 * 1024))
+                .asIterable()) {
+            listed.add(file.getFileId());
+        }
+        assertEquals(expected, listed);
+        assertTrue(server.getRequestCount() - requests > 10);
+    }
+
+    @Test
+    public void test_resumesListingFromCursor() throws Exception {
+        server.addFiles(250, 1024);
+        List<String> expected = new ArrayList<String>();
+        for (File file : client.getFiles().asIterable()) {
+            expected.add(file.getFileId());
+        }
+
+        // Part way through a page, and at a page boundary.
+        for (int[] run : new int[][]{{0, 130}, {2, 130}, {0, 100}, {2, 100}}) {
+            int prefetch = run[0];
+            List<String> listed = new ArrayList<String>();
+            ListingIterator<File> files = client.getFiles().prefetch(prefetch).listingIterator();
+            while (listed.size() < run[1]) {
+                listed.add(files.next().getFileId());
+            }
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(saved);
+            out.writeObject(files.getCursor());
+            out.close();
+
+            ListingCursor cursor = (ListingCursor) new ObjectInputStream(
+                    new ByteArrayInputStream(saved.toByteArray())).readObject();
+            files = client.getFiles().prefetch(prefetch).resumeFrom(cursor).listingIterator();
+            while (files.hasNext()) {
+                listed.add(files.next().getFileId());
+            }
+            assertEquals(expected, listed);
+            assertTrue(files.getCursor().isFinished());
+            assertTrue(client.getFiles().resumeFrom(files.getCursor()).asList().isEmpty());
+        }
+
+        try {
+            client.getFiles().stored(true).resumeFrom(client.getFiles().listingIterator().getCursor()).asList();
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_parallelScanCoversRange() {
+        server.addFiles(1000, 16);
+        Set<String> expected = new HashSet<String>();
+        for (File file : client.getFiles().asIterable()) {
+            expected.add(file.getFileId());
+        }
+        Date from = new Date(System.currentTimeMillis() - 3600000);
+        Date to = new Date(System.currentTimeMillis() + 3600000);
+
+        final Set<String> scanned = Collections.synchronizedSet(new HashSet<String>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        client.getFiles().parallelScan(from, to).shards(4).parallelism(4).forEach(
+                new ParallelFilesScan.PageCallback() {
+                    public void onPage(Date shardFrom, Date shardTo, List<File> files) {
+                        for (File file : files) {
+                            if (!scanned.add(file.getFileId())) {
+                                duplicates.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+        assertEquals(expected, scanned);
+        assertEquals(0, duplicates.get());
+
+        // Cancelling stops the runs started before, not the ones started afterwards.
+        ParallelFilesScan scan = client.getFiles().parallelScan(from, to);
+        Iterator<File> cancelled = scan.asIterable().iterator();
+        scan.cancel();
+        int count = 0;
+        for (File ignored : scan.asIterable()) {
+            count++;
+        }
+        assertEquals(expected.size(), count);
+        while (cancelled.hasNext()) {
+            cancelled.next();
+        }
+
+        for (int invalid : new int[]{0, -1}) {
+            try {
+                scan.parallelism(invalid);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                scan.shards(invalid);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        List<String> merged = new ArrayList<String>();
+        for (File file : client.getFiles().parallelScan(from, to).asIterable()) {
+            merged.add(file.getFileId());
+        }
+        assertEquals(expected.size(), merged.size());
+        assertEquals(expected, new HashSet<String>(merged));
+    }
+
+    @Test(timeout = 30000)
+    public void test_parallelScanReportsShardFailures() throws InterruptedException {
+        server.addFiles(1000, 16);
+        Date from = new Date(System.currentTimeMillis() - 3600000);
+        Date to = new Date(System.currentTimeMillis() + 3600000);
+
+        server.failNext(1, 400);
+        try {
+            client.getFiles().limit(100).parallelScan(from, to).shards(4).parallelism(2).forEach(
+                    new ParallelFilesScan.PageCallback() {
+                        public void onPage(Date shardFrom, Date shardTo, List<File> files) {
+                            try {
+                                Thread.sleep(100);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+            fail();
+        } catch (UploadcareInvalidRequestException e) {
+            // expected
+        }
+
+        // The queue is full when the shard fails, as the consumer spends far longer on a page than the worker.
+        Iterator<File> files = client.getFiles().limit(100).parallelScan(from, to).parallelism(1).asIterable()
+                .iterator();
+        assertTrue(files.hasNext());
+        Thread.sleep(300);
+        server.failNext(1, 400);
+        try {
+            while (files.hasNext()) {
+                files.next();
+                Thread.sleep(10);
+            }
+            fail();
+        } catch (UploadcareInvalidRequestException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_parallelScanSplitsDenseShards() {
+        server.addFiles(1000, 16);
+        List<File> expected = new ArrayList<File>();
+        for (File file : client.getFiles().asIterable()) {
+            expected.add(file);
+        }
+        // All files fall into the second of two shards, and the first worker goes idle.
+        long last = expected.get(expected.size() - 1).getUploadDate().getTime();
+        Date from = new Date(last - 3600000);
+        Date to = new Date(last + 1);
+        server.latency(10);
+
+        final Set<Date> shards = Collections.synchronizedSet(new HashSet<Date>());
+        final AtomicInteger count = new AtomicInteger();
+        client.getFiles().limit(100).parallelScan(from, to).shards(2).parallelism(2).forEach(
+                new ParallelFilesScan.PageCallback() {
+                    public void onPage(Date shardFrom, Date shardTo, List<File> files) {
+                        shards.add(shardFrom);
+                        count.addAndGet(files.size());
+                    }
+                });
+        assertTrue(shards.size() > 1);
+        assertEquals(expected.size(), count.get());
+    }
+
+    @Test
+    public void test_publisherFetchesPagesOnDemand() throws InterruptedException {
+        server.addFiles(250, 1024);
+        final List<File> received = Collections.synchronizedList(new ArrayList<File>());
+        final CountDownLatch firstBatch = new CountDownLatch(150);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final Subscription[] subscription = new Subscription[1];
+        long requests = server.getRequestCount();
+
+        client.getFiles().asPublisher().subscribe(new Subscriber<File>() {
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+                s.request(150);
+            }
+
+            public void onNext(File file) {
+                received.add(file);
+                firstBatch.countDown();
+            }
+
+            public void onError(Throwable t) {
+                completed.countDown();
+            }
+
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(150, received.size());
+        assertEquals(2, server.getRequestCount() - requests);
+
+        subscription[0].request(Long.MAX_VALUE);
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(250, received.size());
+        assertEquals(3, server.getRequestCount() - requests);
+    }
+
+    @Test
+    public void test_decompressesListings() {
+        server.addFiles(250, 1024);
+        HistogramClientMetrics metrics = new HistogramClientMetrics();
+        client.setMetrics(metrics);
+
+        assertEquals(250, client.getFiles().asList().size());
+        HistogramClientMetrics.Stats stats = metrics.getEndpoints().get("GET /files/");
+        assertEquals(stats.getBytesReceived(), stats.getBytesCompressed());
+        assertTrue(stats.getBytesDecompressed() > 4 * stats.getBytesCompressed());
+    }
+
+    @Test
+    public void test_decompressesErrorBodies() {
+        server.minCompressedSize(0);
+        try {
+            client.getFile(MISSING_UUID);
+            fail();
+        } catch (UploadcareNotFoundException e) {
+            assertEquals("{\"detail\":\"Not found.\"}", e.getMessage());
+        }
+
+        server.failNext(1, 400);
+        try {
+            client.getProject();
+            fail();
+        } catch (UploadcareInvalidRequestException e) {
+            assertEquals("{\"detail\":\"Injected failure.\"}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_compressionCanBeDisabled() {
+        Client plain = new ClientBuilder("public", "secret")
+                .endpoints(server.getEndpoints())
+                .compression(false)
+                .build();
+        HistogramClientMetrics metrics = new HistogramClientMetrics();
+        plain.setMetrics(metrics);
+        server.addFiles(250, 1024);
+
+        assertEquals(250, plain.getFiles().asList().size());
+        HistogramClientMetrics.Stats stats = metrics.getEndpoints().get("GET /files/");
+        assertEquals(0, stats.getBytesCompressed());
+        assertTrue(stats.getBytesReceived() > 0);
+        plain.close();
+    }
+
+    @Test
+    public void test_revalidatesCachedFiles() throws UploadFailureException {
+        String fileId = new FileUploader(client, "hello".getBytes(), "hello.txt").upload().getFileId();
+        ValidatorCache cache = new ValidatorCache(10);
+        client.setValidatorCache(cache);
+
+        File first = client.getFile(fileId);
+        File second = client.getFile(fileId);
+        assertEquals(first.getOriginalFilename(), second.getOriginalFilename());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        client.saveFile(fileId);
+        assertNotNull(client.getFile(fileId).getStoredDate());
+        assertEquals(1, cache.getHits());
+
+        client.deleteFile(fileId);
+        assertNotNull(client.getFile(fileId).getRemoved());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        server.addFiles(250, 1024);
+        assertEquals(250, client.getFiles().asList().size());
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void test_invalidatesCachedMetadataOnWrites() throws UploadFailureException {
+        MetadataCache cache = new MetadataCache(100, 60000, 60000, new InMemoryMetadataStore());
+        client.setMetadataCache(cache);
+        String fileId = new FileUploader(client, "hello".getBytes(), "hello.txt").upload().getFileId();
+
+        assertNull(client.getFile(fileId).getStoredDate());
+        long requests = server.getRequestCount();
+        assertNull(client.getFile(fileId).getStoredDate());
+        assertEquals(requests, server.getRequestCount());
+
+        client.saveFile(fileId);
+        assertNotNull(client.getFile(fileId).getStoredDate());
+
+        cache.invalidateAll();
+        File shared = client.getFile(fileId);
+        assertEquals("hello.txt", shared.getOriginalFilename());
+        assertNotNull(shared.getStoredDate());
+        assertEquals(1, cache.getSecondTierHits());
+    }
+
+    @Test
+    public void test_updateBypassesCachedMetadata() throws UploadFailureException {
+        client.setMetadataCache(new MetadataCache());
+        String fileId = new FileUploader(client, "hello".getBytes(), "hello.txt").upload().getFileId();
+        File cached = client.getFile(fileId);
+        assertNull(cached.getStoredDate());
+
+        // Stored by another client, unknown to this client's cache.
+        Client other = new ClientBuilder("public", "secret")
+                .endpoints(server.getEndpoints())
+                .build();
+        other.saveFile(fileId);
+        other.close();
+        assertNull(client.getFile(fileId).getStoredDate());
+
+        assertNotNull(cached.update().getStoredDate());
+        long requests = server.getRequestCount();
+        assertNotNull(client.getFile(fileId).getStoredDate());
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    @Test
+    public void test_asyncWritesInvalidateCachedMetadata() throws Exception {
+        client.setMetadataCache(new MetadataCache());
+        String fileId = new FileUploader(client, "hello".getBytes(), "hello.txt").upload().getFileId();
+        assertNull(client.getFile(fileId).getStoredDate());
+
+        AsyncClient asyncClient = new AsyncClient(client);
+        try {
+            asyncClient.saveFile(fileId).get(10, TimeUnit.SECONDS);
+            assertNotNull(client.getFile(fileId).getStoredDate());
+            asyncClient.deleteFiles(Collections.singletonList(fileId)).get(10, TimeUnit.SECONDS);
+            assertNotNull(client.getFile(fileId).getRemovedDate());
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    @Test
+    public void test_asyncClientSharesRateLimiter() throws Exception {
+        final AtomicInteger acquired = new AtomicInteger();
+        final List<Long> throttled = Collections.synchronizedList(new ArrayList<Long>());
+        client.setRateLimiter(new RateLimiter() {
+            public void acquire() {
+                acquired.incrementAndGet();
+            }
+
+            public void throttled(long retryAfter) {
+                throttled.add(retryAfter);
+            }
+        });
+        server.failNext(1, 429);
+
+        AsyncClient asyncClient = new AsyncClient(client);
+        try {
+            try {
+                asyncClient.getProject().get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UploadcareThrottledException);
+            }
+            assertEquals("Fake project", asyncClient.getProject().get(10, TimeUnit.SECONDS).getName());
+        } finally {
+            asyncClient.close();
+        }
+        assertEquals(2, acquired.get());
+        assertEquals(1, throttled.size());
+    }
+
+    @Test
+    public void test_asyncCancellationIsRecorded() throws Exception {
+        HistogramClientMetrics metrics = new HistogramClientMetrics();
+        client.setMetrics(metrics);
+        server.latency(1000);
+
+        AsyncClient asyncClient = new AsyncClient(client);
+        try {
+            Future<Project> project = asyncClient.getProject();
+            assertTrue(project.cancel(true));
+            assertTrue(project.isCancelled());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (metrics.getEndpoints().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            HistogramClientMetrics.Stats stats = metrics.getEndpoints().values().iterator().next();
+            assertEquals(1, stats.getCount());
+            assertEquals(1, stats.getFailures());
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    @Test
+    public void test_coalescesConcurrentLookups() throws Exception {
+        final String fileId = new FileUploader(client, "hello".getBytes(), "hello.txt").upload().getFileId();
+        RequestCoalescer coalescer = new RequestCoalescer();
+        client.setRequestCoalescer(coalescer);
+        server.latency(200);
+        long requests = server.getRequestCount();
+
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<File>> results = new ArrayList<Future<File>>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<File>() {
+                public File call() throws Exception {
+                    start.await();
+                    return client.getFile(fileId);
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<File> result : results) {
+            assertEquals("hello.txt", result.get().getOriginalFilename());
+        }
+        executor.shutdown();
+
+        assertEquals(threads, coalescer.getCalls() + coalescer.getCoalescedCalls());
+        assertEquals(coalescer.getCalls(), server.getRequestCount() - requests);
+        assertTrue(coalescer.getCoalescedCalls() > 0);
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    public void test_coalescedCallersGetTheirOwnFailures() throws Exception {
+        client.setRequestCoalescer(new RequestCoalescer());
+        server.latency(200);
+
+        int threads = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<File>> results = new ArrayList<Future<File>>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<File>() {
+                public File call() throws Exception {
+                    start.await();
+                    return client.getFile(MISSING_UUID);
+                }
+            }));
+        }
+        start.countDown();
+        Set<Throwable> failures = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        for (Future<File> result : results) {
+            try {
+                result.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UploadcareNotFoundException);
+                failures.add(e.getCause());
+            }
+        }
+        executor.shutdown();
+        assertEquals(threads, failures.size());
+    }
+
+    @Test
+    public void test_coalescedListingsSizeTheirOwnPages() throws Exception {
+        server.addFiles(250, 1024);
+        final AdaptivePageSize adaptive = new AdaptivePageSize(10, 1000, 60000, 16 * 1024);
+        long requests = server.getRequestCount();
+        int expected = client.getFiles().adaptivePageSize(adaptive).asList().size();
+        long listingRequests = server.getRequestCount() - requests;
+
+        RequestCoalescer coalescer = new RequestCoalescer();
+        client.setRequestCoalescer(coalescer);
+        server.latency(200);
+        requests = server.getRequestCount();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<List<File>>> results = new ArrayList<Future<List<File>>>();
+        for (int i = 0; i < 2; i++) {
+            results.add(executor.submit(new Callable<List<File>>() {
+                public List<File> call() throws Exception {
+                    start.await();
+                    return client.getFiles().adaptivePageSize(adaptive).asList();
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<List<File>> result : results) {
+            assertEquals(expected, result.get().size());
+        }
+        executor.shutdown();
+
+        // Both listings shrink their pages alike, whether they sent the first one or waited for it.
+        assertTrue(coalescer.getCoalescedCalls() > 0);
+        assertEquals(2 * listingRequests, server.getRequestCount() - requests + coalescer.getCoalescedCalls());
+    }
+
+    @Test
+    public void test_retriesServerErrors() {
+        client.setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 1, 1));
+        server.failNext(2, 503);
+
+        assertEquals("Fake project", client.getProject().getName());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void test_interruptedThreadStopsRetrying() {
+        client.setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 1, 1));
+        server.failNext(3, 503);
+
+        Thread.currentThread().interrupt();
+        try {
+            client.getProject();
+            fail();
+        } catch (UploadcareServerException e) {
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        // Throttled requests wait for the rate limiter, which gives up too.
+        client.setRateLimiter(new TokenBucketRateLimiter(1000, 10));
+        server.failNext(3, 429);
+        long requests = server.getRequestCount();
+        Thread.currentThread().interrupt();
+        try {
+            client.getProject();
+            fail();
+        } catch (UploadcareApiException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertEquals(requests + 1, server.getRequestCount());
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void test_retriesThrottledRequests() {
+        server.failNext(2, 429).throttle(0, 0);
+
+        assertEquals("Fake project", client.getProject().getName());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void test_circuitBreakerFailsFast() {
+        client.setCircuitBreakers(new CircuitBreakerRegistry(2, 60000));
+        server.failNext(2, 500);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.getProject();
+                fail();
+            } catch (UploadcareServerException e) {
+                assertEquals(500, e.getStatusCode());
+            }
+        }
+        try {
+            client.getProject();
+            fail();
+        } catch (UploadcareCircuitOpenException e) {
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void test_abandonedProbeReleasesCircuitBreaker() throws InterruptedException {
+        client.setCircuitBreakers(new CircuitBreakerRegistry(1, 10));
+        server.failNext(1, 500);
+        try {
+            client.getProject();
+            fail();
+        } catch (UploadcareServerException e) {
+            // opens the breaker
+        }
+        Thread.sleep(20);
+
+        client.setRateLimiter(new RateLimiter() {
+            public void acquire() {
+                throw new IllegalStateException("Limiter failure");
+            }
+
+            public void throttled(long retryAfter) {
+            }
+        });
+        try {
+            client.getProject();
+            fail();
+        } catch (IllegalStateException e) {
+            // the probe is abandoned before it is sent
+        }
+        client.setRateLimiter(null);
+        assertEquals("Fake project", client.getProject().getName());
+    }
+}
@@ -2,6 +2,8 @@ package com.uploadcare.api;
 
 import com.uploadcare.urls.Urls;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHeader;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -9,9 +11,11 @@ import java.net.URI;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class RequestHelperTest {
 
@@ -41,4 +45,25 @@ public class RequestHelperTest {
         assertEquals("535e263808dd38599343f04aab3c9f34bb15573c", signature);
     }
 
+    @Test
+    public void test_parseRetryAfter() {
+        assertEquals(30000L, RequestHelper.parseRetryAfter(new BasicHeader("Retry-After", "30")));
+        assertEquals(1000L, RequestHelper.parseRetryAfter(null));
+        assertEquals(1000L, RequestHelper.parseRetryAfter(new BasicHeader("Retry-After", "soon")));
+
+        Date date = new Date(System.currentTimeMillis() + 60000L);
+        long retryAfter = RequestHelper.parseRetryAfter(new BasicHeader("Retry-After", DateUtils.formatDate(date)));
+        assertTrue(retryAfter > 55000L && retryAfter <= 60000L);
+    }
+
+    @Test
+    public void test_endpoint() {
+        assertEquals("/files/", RequestTrace.endpoint("/files/"));
+        assertEquals("/files/{id}/storage/", RequestTrace.endpoint("/files/" + FILE_ID + "/storage/"));
+        assertEquals("/groups/{id}/", RequestTrace.endpoint("/groups/" + FILE_ID + "~2/"));
+        assertEquals("/from_url/status/", RequestTrace.endpoint("/from_url/status/"));
+        assertEquals("/{id}/{id}", RequestTrace.endpoint("/uploadcare-uploads/8d5dbd4a"));
+        assertEquals("/", RequestTrace.endpoint(""));
+    }
+
 }
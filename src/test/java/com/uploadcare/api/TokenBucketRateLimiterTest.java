@@ -0,0 +1,62 @@
+package com.uploadcare.api;
+
+import com.uploadcare.exceptions.UploadcareApiException;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void test_burstIsNotDelayed() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 5);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+    }
+
+    @Test
+    public void test_sustainedRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(20, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        // The first permit is available right away, the next four take 50 ms each.
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+    }
+
+    @Test
+    public void test_throttledPausesBucket() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1000, 10);
+        limiter.throttled(300);
+
+        long start = System.nanoTime();
+        limiter.acquire();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 290);
+    }
+
+    @Test
+    public void test_interruptedWaitGrantsNoPermit() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1);
+        limiter.acquire();
+
+        Thread.currentThread().interrupt();
+        try {
+            limiter.acquire();
+            fail();
+        } catch (UploadcareApiException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
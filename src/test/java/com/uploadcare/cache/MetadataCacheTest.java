@@ -0,0 +1,123 @@
+package com.uploadcare.cache;
+
+import com.uploadcare.data.FileData;
+import com.uploadcare.exceptions.UploadcareNotFoundException;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class MetadataCacheTest {
+
+    @Test
+    public void test_expiresAndEvicts() throws InterruptedException {
+        MetadataCache cache = new MetadataCache(2, 50, 0);
+        CountingLoader a = new CountingLoader("a");
+
+        FileData first = cache.get("a", FileData.class, a);
+        assertSame(first, cache.get("a", FileData.class, a));
+        assertEquals(1, a.calls.get());
+
+        cache.get("b", FileData.class, new CountingLoader("b"));
+        cache.get("c", FileData.class, new CountingLoader("c"));
+        assertEquals(2, cache.size());
+        cache.get("a", FileData.class, a);
+        assertEquals(2, a.calls.get());
+
+        Thread.sleep(60);
+        cache.get("a", FileData.class, a);
+        assertEquals(3, a.calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+
+    @Test
+    public void test_cachesNotFound() {
+        MetadataCache cache = new MetadataCache(10, 60000, 60000);
+        final AtomicInteger calls = new AtomicInteger();
+        MetadataCache.Loader<FileData> missing = new MetadataCache.Loader<FileData>() {
+            public FileData load() {
+                calls.incrementAndGet();
+                throw new UploadcareNotFoundException("{\"detail\":\"Not found.\"}");
+            }
+        };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("missing", FileData.class, missing);
+                fail();
+            } catch (UploadcareNotFoundException e) {
+                assertEquals("{\"detail\":\"Not found.\"}", e.getMessage());
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void test_sharesThroughSecondTier() {
+        InMemoryMetadataStore store = new InMemoryMetadataStore();
+        MetadataCache node1 = new MetadataCache(10, 60000, 60000, store);
+        MetadataCache node2 = new MetadataCache(10, 60000, 60000, store);
+        CountingLoader loader = new CountingLoader("a");
+
+        FileData loaded = node1.get("a", FileData.class, loader);
+        FileData shared = node2.get("a", FileData.class, loader);
+        assertNotSame(loaded, shared);
+        assertEquals("a", shared.uuid);
+        assertEquals(loaded.size, shared.size);
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, node2.getSecondTierHits());
+
+        node1.invalidate("a");
+        node2.invalidateAll();
+        node2.get("a", FileData.class, loader);
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    public void test_skipsValueLoadedAcrossInvalidation() {
+        InMemoryMetadataStore store = new InMemoryMetadataStore();
+        final MetadataCache cache = new MetadataCache(10, 60000, 60000, store);
+        final CountingLoader loader = new CountingLoader("a");
+        MetadataCache.Loader<FileData> racing = new MetadataCache.Loader<FileData>() {
+            public FileData load() {
+                FileData data = loader.load();
+                // A write completes while the old value is on its way.
+                cache.invalidate("a");
+                return data;
+            }
+        };
+
+        cache.get("a", FileData.class, racing);
+        assertEquals(0, cache.size());
+        assertNull(store.get("a"));
+        cache.get("a", FileData.class, loader);
+        assertEquals(2, loader.calls.get());
+        assertEquals(1, cache.size());
+    }
+
+    private static class CountingLoader implements MetadataCache.Loader<FileData> {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        private final String uuid;
+
+        CountingLoader(String uuid) {
+            this.uuid = uuid;
+        }
+
+        public FileData load() {
+            calls.incrementAndGet();
+            FileData data = new FileData();
+            data.uuid = uuid;
+            data.size = 42;
+            return data;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.uploadcare.index;
+
+import com.uploadcare.api.Client;
+import com.uploadcare.api.ClientBuilder;
+import com.uploadcare.api.File;
+import com.uploadcare.data.FileData;
+import com.uploadcare.testing.FakeUploadcareServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileIndexSyncTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeUploadcareServer server;
+
+    private Client client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = FakeUploadcareServer.start();
+        client = new ClientBuilder("public", "secret")
+                .endpoints(server.getEndpoints())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void test_syncsIncrementally() throws IOException {
+        java.io.File path = folder.newFile("files.idx");
+        server.addFiles(150, 1024);
+        List<File> files = client.getFiles().asList();
+
+        FileIndex index = new FileIndex(path);
+        FileIndexSync sync = new FileIndexSync(client, index).limit(100);
+        assertEquals(150, sync.run());
+        assertEquals(150, index.size());
+
+        long requests = server.getRequestCount();
+        FileData data = index.get(files.get(42).getFileId());
+        assertEquals(files.get(42).getFileId(), data.uuid);
+        assertEquals(files.get(42).getUploadDate(), data.datetimeUploaded);
+        assertNull(index.get("00000000-0000-0000-0000-000000000000"));
+        assertEquals(requests, server.getRequestCount());
+
+        server.addFiles(20, 1024);
+        client.deleteFile(files.get(7).getFileId());
+        requests = server.getRequestCount();
+        assertEquals(21, sync.run());
+        assertEquals(170, index.size());
+        assertNotNull(index.get(files.get(7).getFileId()).datetimeRemoved);
+        // Files uploaded within the watermark's second are listed again, but not appended again.
+        assertTrue(server.getRequestCount() - requests <= 3);
+        assertEquals(0, sync.run());
+        index.close();
+
+        // A record cut off by a crash is dropped when the index is opened again.
+        FileOutputStream out = new FileOutputStream(path, true);
+        out.write("F 1234 1 {\"uu".getBytes("UTF-8"));
+        out.close();
+        index = new FileIndex(path);
+        assertEquals(170, index.size());
+        assertFalse(index.contains("1234"));
+        assertNotNull(index.getUploadedWatermark());
+        assertTrue(index.get(files.get(7).getFileId()).datetimeRemoved != null);
+        assertEquals(0, new FileIndexSync(client, index).run());
+        index.close();
+    }
+}
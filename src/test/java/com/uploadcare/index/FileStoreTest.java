@@ -0,0 +1,87 @@
+package com.uploadcare.index;
+
+import com.uploadcare.api.Client;
+import com.uploadcare.api.ClientBuilder;
+import com.uploadcare.api.File;
+import com.uploadcare.testing.FakeUploadcareServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeUploadcareServer server;
+
+    private Client client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = FakeUploadcareServer.start();
+        client = new ClientBuilder("public", "secret")
+                .endpoints(server.getEndpoints())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void test_storesListingAcrossSegments() throws IOException {
+        java.io.File path = folder.newFile("files.dat");
+        path.delete();
+        server.addFiles(250, 1024);
+        server.addFile("photo.jpg", "image/jpeg", new byte[]{1, 2, 3});
+        List<File> files = client.getFiles().asList();
+
+        FileStore store = new FileStore(path, 64);
+        assertEquals(251, store.appendAll(client.getFiles().asIterable()));
+        store.close();
+
+        store = new FileStore(path, 64);
+        assertEquals(251, store.size());
+        assertEquals(2, store.getMimeTypes().size());
+        long totalSize = 0;
+        int octetStream = store.getMimeTypes().code("application/octet-stream");
+        int binaries = 0;
+        for (long i = 0; i < store.size(); i++) {
+            totalSize += store.getSize(i);
+            if (store.getMimeTypeCode(i) == octetStream) {
+                binaries++;
+            }
+        }
+        assertEquals(250 * 1024 + 3, totalSize);
+        assertEquals(250, binaries);
+
+        int i = 0;
+        for (FileRecord record : store.records()) {
+            File file = files.get(i++);
+            assertEquals(file.getFileId(), record.getFileId());
+            assertEquals(file.getUploadDate(), record.getUploadDate());
+            assertEquals(file.getStoredDate(), record.getStoredDate());
+            assertEquals(file.getMimeType(), record.getMimeType());
+            assertFalse(record.isRemoved());
+            assertNull(record.getRemovedDate());
+        }
+        assertEquals(251, i);
+        assertTrue(store.get(250).isStored());
+        assertEquals(files.get(250).getFileId(), store.get(250).toFileData().uuid);
+        store.close();
+    }
+}
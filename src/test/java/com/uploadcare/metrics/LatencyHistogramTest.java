@@ -0,0 +1,39 @@
+package com.uploadcare.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void test_bucketBounds() {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+            assertTrue(upperBound >= value);
+            assertTrue(upperBound - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void test_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 1);
+        assertWithin(500000, histogram.getPercentile(50));
+        assertWithin(990000, histogram.getPercentile(99));
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -0,0 +1,1040 @@
+package com.uploadcare.testing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.uploadcare.urls.Endpoints;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory stand-in for the Uploadcare REST API, Upload API and CDN, for tests and offline benchmarks.
+ *
+ * Each service listens on its own loopback port; point a client at them with {@link #getEndpoints()}:
+ *
+ * <pre>
+ * FakeUploadcareServer server = FakeUploadcareServer.start();
+ * Client client = new ClientBuilder("public", "secret").endpoints(server.getEndpoints()).build();
+ * </pre>
+ *
+ * Supported are the file, group, project and webhook resources of the REST API, direct, multipart and from-URL
+ * uploads, and CDN downloads of uploaded files. Request signatures are not verified. Latency, throttling (HTTP 429)
+ * and server errors can be injected to exercise retry behaviour. JSON responses of 1 KB and more, by default, are gzip
+ * compressed when the client accepts it, and GET responses carry an {@code ETag} honoured by {@code If-None-Match}.
+ */
+public class FakeUploadcareServer implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int PART_SIZE = 5242880;
+
+    private static final Pattern QUOTED = Pattern.compile("\"([^\"]*)\"");
+
+    private static final int MIN_COMPRESSED_SIZE = 1024;
+
+    private final HttpServer api;
+
+    private final HttpServer upload;
+
+    private final HttpServer cdn;
+
+    private final ExecutorService executor;
+
+    private final Endpoints endpoints;
+
+    private final ConcurrentMap<String, StoredFile> files = new ConcurrentHashMap<String, StoredFile>();
+
+    private final ConcurrentMap<String, StoredGroup> groups = new ConcurrentHashMap<String, StoredGroup>();
+
+    private final ConcurrentMap<String, UrlUpload> urlUploads = new ConcurrentHashMap<String, UrlUpload>();
+
+    private final ConcurrentMap<Integer, String> webhooks = new ConcurrentHashMap<Integer, String>();
+
+    private final AtomicInteger webhookIds = new AtomicInteger();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong lastUploadTime = new AtomicLong();
+
+    private final AtomicInteger forcedFailures = new AtomicInteger();
+
+    private final Random random = new Random();
+
+    private volatile long latency;
+
+    private volatile int minCompressedSize = MIN_COMPRESSED_SIZE;
+
+    private volatile double throttleRate;
+
+    private volatile int retryAfter;
+
+    private volatile double errorRate;
+
+    private volatile int errorStatus = 503;
+
+    private volatile int forcedStatus;
+
+    private FakeUploadcareServer() throws IOException {
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "fake-uploadcare-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        api = createServer(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, Service.API);
+            }
+        });
+        upload = createServer(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, Service.UPLOAD);
+            }
+        });
+        cdn = createServer(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange, Service.CDN);
+            }
+        });
+        endpoints = new Endpoints(baseUrl(api), baseUrl(upload), baseUrl(cdn));
+    }
+
+    /**
+     * Starts a server on free loopback ports.
+     */
+    public static FakeUploadcareServer start() throws IOException {
+        FakeUploadcareServer server = new FakeUploadcareServer();
+        server.api.start();
+        server.upload.start();
+        server.cdn.start();
+        return server;
+    }
+
+    /**
+     * @return Base URLs of the fake services
+     */
+    public Endpoints getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Delays every response by the given time.
+     *
+     * @param latency Delay in milliseconds
+     */
+    public FakeUploadcareServer latency(long latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the size from which JSON responses are gzip compressed when the client accepts it, 1 KB by default.
+     *
+     * @param size Size in bytes, {@code 0} to compress all responses
+     */
+    public FakeUploadcareServer minCompressedSize(int size) {
+        this.minCompressedSize = size;
+        return this;
+    }
+
+    /**
+     * Answers the given share of requests with HTTP 429.
+     *
+     * @param rate       Share of throttled requests between {@code 0} and {@code 1}
+     * @param retryAfter Value of the {@code Retry-After} header, in seconds
+     */
+    public FakeUploadcareServer throttle(double rate, int retryAfter) {
+        this.throttleRate = rate;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Answers the given share of requests with a server error.
+     *
+     * @param rate       Share of failed requests between {@code 0} and {@code 1}
+     * @param statusCode Status code of the error, e.g. {@code 503}
+     */
+    public FakeUploadcareServer serverErrors(double rate, int statusCode) {
+        this.errorRate = rate;
+        this.errorStatus = statusCode;
+        return this;
+    }
+
+    /**
+     * Answers the next requests with the given status code, before any other fault is considered.
+     *
+     * @param count      Number of requests to fail
+     * @param statusCode Status code, e.g. {@code 503} or {@code 429}
+     */
+    public FakeUploadcareServer failNext(int count, int statusCode) {
+        this.forcedStatus = statusCode;
+        this.forcedFailures.set(count);
+        return this;
+    }
+
+    /**
+     * Adds a stored file, as if it had been uploaded.
+     *
+     * @return File UUID
+     */
+    public String addFile(String filename, String mimeType, byte[] content) {
+        return putFile(filename, mimeType, content.length, content, true).uuid;
+    }
+
+    /**
+     * Adds stored files with generated names and no content, e.g. to benchmark listing.
+     *
+     * @param count Number of files
+     * @param size  Reported size of each file
+     */
+    public void addFiles(int count, long size) {
+        for (int i = 0; i < count; i++) {
+            putFile("file" + i + ".bin", "application/octet-stream", size, null, true);
+        }
+    }
+
+    /**
+     * @return Number of requests received by all services, including failed ones
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return Number of files that are not removed
+     */
+    public int getFileCount() {
+        int count = 0;
+        for (StoredFile file : files.values()) {
+            if (file.removedAt == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void close() {
+        api.stop(0);
+        upload.stop(0);
+        cdn.stop(0);
+        executor.shutdownNow();
+    }
+
+    private HttpServer createServer(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", handler);
+        server.setExecutor(executor);
+        return server;
+    }
+
+    private static String baseUrl(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private enum Service {
+        API, UPLOAD, CDN
+    }
+
+    private void serve(HttpExchange exchange, Service service) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            byte[] body = readAll(exchange.getRequestBody());
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (injectFault(exchange)) {
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            URI uri = exchange.getRequestURI();
+            Map<String, String> query = parseQuery(uri.getRawQuery());
+            if (service == Service.API) {
+                serveApi(exchange, method, uri.getPath(), query, body);
+            } else if (service == Service.UPLOAD) {
+                serveUpload(exchange, method, uri.getPath(), query, body);
+            } else {
+                serveCdn(exchange, uri.getPath());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            send(exchange, 500, "{\"detail\":" + quote(String.valueOf(e)) + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        int status = 0;
+        if (forcedFailures.get() > 0 && forcedFailures.getAndDecrement() > 0) {
+            status = forcedStatus;
+        } else if (throttleRate > 0 && nextDouble() < throttleRate) {
+            status = 429;
+        } else if (errorRate > 0 && nextDouble() < errorRate) {
+            status = errorStatus;
+        }
+        if (status == 0) {
+            return false;
+        }
+        if (status == 429) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+            send(exchange, 429, "{\"detail\":\"Request was throttled.\"}");
+        } else {
+            send(exchange, status, "{\"detail\":\"Injected failure.\"}");
+        }
+        return true;
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    // REST API
+
+    private void serveApi(HttpExchange exchange, String method, String path, Map<String, String> query, byte[] body)
+            throws IOException {
+        String[] segments = segments(path);
+        String resource = segments.length > 0 ? segments[0] : "";
+
+        if (resource.equals("project") && method.equals("GET")) {
+            send(exchange, 200, "{\"name\":\"Fake project\",\"pub_key\":\"public\",\"collaborators\":[]}");
+        } else if (resource.equals("files")) {
+            serveFiles(exchange, method, segments, query, body);
+        } else if (resource.equals("groups")) {
+            serveGroups(exchange, method, segments);
+        } else if (resource.equals("webhooks")) {
+            serveWebhooks(exchange, method, segments, body);
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveFiles(HttpExchange exchange, String method, String[] segments, Map<String, String> query,
+                            byte[] body) throws IOException {
+        if (segments.length == 1 && method.equals("GET")) {
+            sendFilePage(exchange, query);
+        } else if (segments.length == 2 && segments[1].equals("storage")) {
+            batchStorage(exchange, method.equals("PUT"), body);
+        } else if (segments.length == 2 && segments[1].equals("local_copy") && method.equals("POST")) {
+            StoredFile source = files.get(firstUuid(new String(body, UTF_8)));
+            if (source == null) {
+                send(exchange, 400, "{\"detail\":\"Bad source.\"}");
+                return;
+            }
+            StoredFile copy = putFile(source.filename, source.mimeType, source.size, source.content, false);
+            send(exchange, 201, "{\"type\":\"file\",\"result\":" + fileJson(copy) + "}");
+        } else if (segments.length == 2 && segments[1].equals("remote_copy") && method.equals("POST")) {
+            String uuid = firstUuid(new String(body, UTF_8));
+            send(exchange, 201, "{\"type\":\"url\",\"result\":\"s3://fake/" + uuid + "\"}");
+        } else if (segments.length >= 2) {
+            StoredFile file = files.get(segments[1]);
+            if (file == null) {
+                notFound(exchange);
+            } else if (segments.length == 2 && method.equals("GET")) {
+                send(exchange, 200, fileJson(file));
+            } else if (method.equals("DELETE")) {
+                file.remove();
+                send(exchange, 200, fileJson(file));
+            } else if (segments.length == 3 && segments[2].equals("storage") && method.equals("PUT")) {
+                file.store();
+                send(exchange, 200, fileJson(file));
+            } else {
+                notFound(exchange);
+            }
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void sendFilePage(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String ordering = query.containsKey("ordering") ? query.get("ordering") : "datetime_uploaded";
+        final boolean bySize = ordering.endsWith("size");
+        final boolean descending = ordering.startsWith("-");
+        boolean removed = "true".equals(query.get("removed"));
+        String stored = query.get("stored");
+        int limit = query.containsKey("limit") ? Math.min(1000, Integer.parseInt(query.get("limit"))) : 100;
+
+        List<StoredFile> matching = new ArrayList<StoredFile>();
+        for (StoredFile file : files.values()) {
+            if ((file.removedAt != null) == removed
+                    && (stored == null || (file.storedAt != null) == Boolean.parseBoolean(stored))) {
+                matching.add(file);
+            }
+        }
+        Collections.sort(matching, new Comparator<StoredFile>() {
+            public int compare(StoredFile a, StoredFile b) {
+                int result = compareKeys(key(a, bySize), key(b, bySize));
+                if (result == 0) {
+                    result = a.uuid.compareTo(b.uuid);
+                }
+                return descending ? -result : result;
+            }
+        });
+        int total = matching.size();
+
+        List<StoredFile> page = new ArrayList<StoredFile>();
+        long from = 0;
+        boolean hasFrom = query.containsKey("from");
+        if (hasFrom) {
+            from = bySize ? Long.parseLong(query.get("from")) : parseDate(query.get("from"));
+        }
+        int initialSkip = query.containsKey("skip") ? Integer.parseInt(query.get("skip")) : 0;
+        int skip = initialSkip;
+        int index = 0;
+        for (; index < matching.size() && page.size() < limit; index++) {
+            StoredFile file = matching.get(index);
+            long key = key(file, bySize);
+            if (hasFrom && (descending ? key > from : key < from)) {
+                continue;
+            }
+            if (hasFrom && key == from && skip > 0) {
+                skip--;
+                continue;
+            }
+            page.add(file);
+        }
+
+        String next = null;
+        if (!page.isEmpty() && index < matching.size()) {
+            long lastKey = key(page.get(page.size() - 1), bySize);
+            int sameKey = 0;
+            for (StoredFile file : page) {
+                if (key(file, bySize) == lastKey) {
+                    sameKey++;
+                }
+            }
+            if (hasFrom && lastKey == from) {
+                sameKey += initialSkip;
+            }
+            Map<String, String> nextQuery = new LinkedHashMap<String, String>(query);
+            nextQuery.put("from", bySize ? String.valueOf(lastKey) : formatDate(lastKey));
+            nextQuery.put("skip", String.valueOf(sameKey));
+            nextQuery.put("limit", String.valueOf(limit));
+            next = endpoints.getApiBase() + "/files/?" + formatQuery(nextQuery);
+        }
+
+        StringBuilder json = new StringBuilder(256 + page.size() * 512);
+        json.append("{\"next\":").append(next != null ? quote(next) : "null")
+                .append(",\"previous\":null,\"total\":").append(total)
+                .append(",\"per_page\":").append(limit)
+                .append(",\"results\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(fileJson(page.get(i)));
+        }
+        json.append("]}");
+        send(exchange, 200, json.toString());
+    }
+
+    private void batchStorage(HttpExchange exchange, boolean store, byte[] body) throws IOException {
+        StringBuilder problems = new StringBuilder();
+        StringBuilder result = new StringBuilder();
+        Matcher matcher = QUOTED.matcher(new String(body, UTF_8));
+        while (matcher.find()) {
+            String uuid = matcher.group(1);
+            StoredFile file = files.get(uuid);
+            if (file == null) {
+                problems.append(problems.length() > 0 ? "," : "")
+                        .append(quote(uuid)).append(":\"Missing in the project\"");
+                continue;
+            }
+            if (store) {
+                file.store();
+            } else {
+                file.remove();
+            }
+            result.append(result.length() > 0 ? "," : "").append(fileJson(file));
+        }
+        send(exchange, 200, "{\"status\":\"ok\",\"problems\":{" + problems + "},\"result\":[" + result + "]}");
+    }
+
+    private void serveGroups(HttpExchange exchange, String method, String[] segments) throws IOException {
+        if (segments.length == 1 && method.equals("GET")) {
+            StringBuilder results = new StringBuilder();
+            for (StoredGroup group : groups.values()) {
+                results.append(results.length() > 0 ? "," : "").append(groupJson(group, false));
+            }
+            send(exchange, 200, "{\"next\":null,\"previous\":null,\"total\":" + groups.size()
+                    + ",\"per_page\":100,\"results\":[" + results + "]}");
+            return;
+        }
+        StoredGroup group = segments.length >= 2 ? groups.get(segments[1]) : null;
+        if (group == null) {
+            notFound(exchange);
+        } else if (segments.length == 2 && method.equals("GET")) {
+            send(exchange, 200, groupJson(group, true));
+        } else if (segments.length == 3 && segments[2].equals("storage") && method.equals("PUT")) {
+            group.storedAt = new Date();
+            for (String uuid : group.files) {
+                StoredFile file = files.get(uuid);
+                if (file != null) {
+                    file.store();
+                }
+            }
+            send(exchange, 200, groupJson(group, true));
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveWebhooks(HttpExchange exchange, String method, String[] segments, byte[] body)
+            throws IOException {
+        if (segments.length == 2 && segments[1].equals("unsubscribe") && method.equals("DELETE")) {
+            String target = new String(body, UTF_8);
+            for (Map.Entry<Integer, String> webhook : webhooks.entrySet()) {
+                if (target.contains(webhook.getValue())) {
+                    webhooks.remove(webhook.getKey());
+                }
+            }
+            send(exchange, 204, null);
+        } else if (segments.length == 1 && method.equals("GET")) {
+            StringBuilder json = new StringBuilder("[");
+            for (Map.Entry<Integer, String> webhook : webhooks.entrySet()) {
+                json.append(json.length() > 1 ? "," : "").append(webhookJson(webhook.getKey(), webhook.getValue()));
+            }
+            send(exchange, 200, json.append(']').toString());
+        } else if (method.equals("POST") || method.equals("PUT")) {
+            int id = segments.length == 2 ? Integer.parseInt(segments[1]) : webhookIds.incrementAndGet();
+            String target = formOrJsonValue(body, "target_url");
+            webhooks.put(id, target != null ? target : "");
+            send(exchange, method.equals("POST") ? 201 : 200, webhookJson(id, webhooks.get(id)));
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    // Upload API
+
+    private void serveUpload(HttpExchange exchange, String method, String path, Map<String, String> query,
+                             byte[] body) throws IOException {
+        String[] segments = segments(path);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String resource = segments.length > 0 ? segments[0] : "";
+
+        if (resource.equals("base") && method.equals("POST")) {
+            Map<String, FormPart> form = parseForm(body, contentType);
+            FormPart filePart = form.get("file");
+            if (filePart == null) {
+                send(exchange, 400, "{\"detail\":\"File is missing.\"}");
+                return;
+            }
+            StoredFile file = putFile(filePart.filename, filePart.contentType, filePart.content.length,
+                    filePart.content, "1".equals(form.get("UPLOADCARE_STORE") != null
+                            ? form.get("UPLOADCARE_STORE").text() : null));
+            send(exchange, 200, "{\"file\":" + quote(file.uuid) + "}");
+        } else if (resource.equals("info") && method.equals("GET")) {
+            StoredFile file = files.get(String.valueOf(query.get("file_id")));
+            if (file == null) {
+                notFound(exchange);
+            } else {
+                send(exchange, 200, fileJson(file));
+            }
+        } else if (resource.equals("multipart")) {
+            serveMultipart(exchange, method, segments, body, contentType);
+        } else if (resource.equals("from_url")) {
+            serveFromUrl(exchange, method, segments, query, body, contentType);
+        } else if (resource.equals("group") && segments.length == 1 && method.equals("POST")) {
+            List<String> groupFiles = new ArrayList<String>();
+            for (Map.Entry<String, FormPart> field : parseForm(body, contentType).entrySet()) {
+                if (field.getKey().startsWith("files[")) {
+                    groupFiles.add(field.getValue().text());
+                }
+            }
+            StoredGroup group = new StoredGroup(UUID.randomUUID() + "~" + groupFiles.size(), groupFiles);
+            groups.put(group.id, group);
+            send(exchange, 200, groupJson(group, true));
+        } else if (resource.equals("group") && segments.length == 2 && segments[1].equals("info")) {
+            StoredGroup group = groups.get(String.valueOf(query.get("group_id")));
+            if (group == null) {
+                notFound(exchange);
+            } else {
+                send(exchange, 200, groupJson(group, true));
+            }
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveMultipart(HttpExchange exchange, String method, String[] segments, byte[] body,
+                                String contentType) throws IOException {
+        String action = segments.length > 1 ? segments[1] : "";
+        if (action.equals("start") && method.equals("POST")) {
+            Map<String, FormPart> form = parseForm(body, contentType);
+            long size = Long.parseLong(form.get("size").text());
+            FormPart store = form.get("UPLOADCARE_STORE");
+            StoredFile file = putFile(form.get("filename").text(), form.get("content_type").text(), size, null,
+                    store != null && "1".equals(store.text()));
+            file.isReady = false;
+            StringBuilder parts = new StringBuilder();
+            for (long offset = 0, part = 0; offset < size; offset += PART_SIZE, part++) {
+                parts.append(parts.length() > 0 ? "," : "")
+                        .append(quote(endpoints.getUploadBase() + "/multipart/part/" + file.uuid + "/" + part + "/"));
+            }
+            send(exchange, 200, "{\"uuid\":" + quote(file.uuid) + ",\"parts\":[" + parts + "]}");
+        } else if (action.equals("part") && method.equals("PUT") && segments.length == 4) {
+            StoredFile file = files.get(segments[2]);
+            if (file == null) {
+                notFound(exchange);
+            } else {
+                file.receivedBytes.addAndGet(body.length);
+                send(exchange, 200, null);
+            }
+        } else if (action.equals("complete") && method.equals("POST")) {
+            StoredFile file = files.get(parseForm(body, contentType).get("uuid").text());
+            if (file == null) {
+                notFound(exchange);
+            } else if (file.receivedBytes.get() != file.size) {
+                send(exchange, 400, "{\"detail\":\"Not all parts were uploaded.\"}");
+            } else {
+                file.isReady = true;
+                send(exchange, 200, fileJson(file));
+            }
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveFromUrl(HttpExchange exchange, String method, String[] segments, Map<String, String> query,
+                              byte[] body, String contentType) throws IOException {
+        if (segments.length == 1 && method.equals("POST")) {
+            Map<String, FormPart> form = parseForm(body, contentType);
+            String sourceUrl = form.get("source_url").text();
+            String filename = form.containsKey("filename") ? form.get("filename").text()
+                    : sourceUrl.substring(sourceUrl.lastIndexOf('/') + 1);
+            FormPart store = form.get("store");
+            StoredFile file = putFile(filename, "application/octet-stream", 1024, null,
+                    store != null && "1".equals(store.text()));
+            String token = UUID.randomUUID().toString();
+            urlUploads.put(token, new UrlUpload(file.uuid));
+            send(exchange, 200, "{\"type\":\"token\",\"token\":" + quote(token) + "}");
+        } else if (segments.length == 2 && segments[1].equals("status")) {
+            UrlUpload urlUpload = urlUploads.get(String.valueOf(query.get("token")));
+            if (urlUpload == null) {
+                send(exchange, 200, "{\"status\":\"unknown\"}");
+            } else if (urlUpload.polls.incrementAndGet() < 2) {
+                send(exchange, 200, "{\"status\":\"progress\",\"done\":512,\"total\":1024}");
+            } else {
+                send(exchange, 200, "{\"status\":\"success\",\"file_id\":" + quote(urlUpload.uuid)
+                        + ",\"done\":1024,\"total\":1024}");
+            }
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    // CDN
+
+    private void serveCdn(HttpExchange exchange, String path) throws IOException {
+        String[] segments = segments(path);
+        StoredFile file = segments.length > 0 ? files.get(segments[0]) : null;
+        if (file == null || file.removedAt != null) {
+            notFound(exchange);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", file.mimeType);
+        exchange.sendResponseHeaders(200, file.size);
+        OutputStream out = exchange.getResponseBody();
+        if (file.content != null) {
+            out.write(file.content);
+        } else {
+            byte[] chunk = new byte[8192];
+            for (long remaining = file.size; remaining > 0; remaining -= chunk.length) {
+                out.write(chunk, 0, (int) Math.min(chunk.length, remaining));
+            }
+        }
+        out.close();
+    }
+
+    // Model
+
+    private StoredFile putFile(String filename, String mimeType, long size, byte[] content, boolean store) {
+        long now = System.currentTimeMillis();
+        long uploadedAt;
+        do {
+            long last = lastUploadTime.get();
+            uploadedAt = Math.max(now, last + 1);
+            if (lastUploadTime.compareAndSet(last, uploadedAt)) {
+                break;
+            }
+        } while (true);
+        StoredFile file = new StoredFile(UUID.randomUUID().toString(), filename,
+                mimeType != null ? mimeType : "application/octet-stream", size, content, new Date(uploadedAt));
+        if (content != null) {
+            file.receivedBytes.set(content.length);
+        }
+        if (store) {
+            file.store();
+        }
+        files.put(file.uuid, file);
+        return file;
+    }
+
+    private static final class StoredFile {
+
+        final String uuid;
+
+        final String filename;
+
+        final String mimeType;
+
+        final long size;
+
+        final byte[] content;
+
+        final Date uploadedAt;
+
+        final AtomicLong receivedBytes = new AtomicLong();
+
+        volatile boolean isReady = true;
+
+        volatile Date storedAt;
+
+        volatile Date removedAt;
+
+        StoredFile(String uuid, String filename, String mimeType, long size, byte[] content, Date uploadedAt) {
+            this.uuid = uuid;
+            this.filename = filename;
+            this.mimeType = mimeType;
+            this.size = size;
+            this.content = content;
+            this.uploadedAt = uploadedAt;
+        }
+
+        void store() {
+            if (storedAt == null) {
+                storedAt = new Date();
+            }
+        }
+
+        void remove() {
+            if (removedAt == null) {
+                removedAt = new Date();
+            }
+        }
+    }
+
+    private static final class StoredGroup {
+
+        final String id;
+
+        final List<String> files;
+
+        final Date createdAt = new Date();
+
+        volatile Date storedAt;
+
+        StoredGroup(String id, List<String> files) {
+            this.id = id;
+            this.files = files;
+        }
+    }
+
+    private static final class UrlUpload {
+
+        final String uuid;
+
+        final AtomicInteger polls = new AtomicInteger();
+
+        UrlUpload(String uuid) {
+            this.uuid = uuid;
+        }
+    }
+
+    private static long key(StoredFile file, boolean bySize) {
+        return bySize ? file.size : file.uploadedAt.getTime();
+    }
+
+    private static int compareKeys(long a, long b) {
+        return a < b ? -1 : a == b ? 0 : 1;
+    }
+
+    // JSON
+
+    private String fileJson(StoredFile file) {
+        return "{\"uuid\":" + quote(file.uuid)
+                + ",\"url\":" + quote(endpoints.getApiBase() + "/files/" + file.uuid + "/")
+                + ",\"size\":" + file.size
+                + ",\"source\":null"
+                + ",\"is_ready\":" + file.isReady
+                + ",\"is_image\":" + file.mimeType.startsWith("image/")
+                + ",\"mime_type\":" + quote(file.mimeType)
+                + ",\"original_filename\":" + quote(file.filename)
+                + ",\"original_file_url\":" + quote(endpoints.getCdnBase() + "/" + file.uuid + "/" + file.filename)
+                + ",\"datetime_uploaded\":" + quote(formatDate(file.uploadedAt.getTime()))
+                + ",\"datetime_stored\":" + dateJson(file.storedAt)
+                + ",\"datetime_removed\":" + dateJson(file.removedAt)
+                + ",\"image_info\":null,\"video_info\":null,\"variations\":null}";
+    }
+
+    private String groupJson(StoredGroup group, boolean withFiles) {
+        StringBuilder json = new StringBuilder()
+                .append("{\"id\":").append(quote(group.id))
+                .append(",\"url\":").append(quote(endpoints.getApiBase() + "/groups/" + group.id + "/"))
+                .append(",\"datetime_created\":").append(quote(formatDate(group.createdAt.getTime())))
+                .append(",\"datetime_stored\":").append(dateJson(group.storedAt))
+                .append(",\"files_count\":").append(group.files.size())
+                .append(",\"cdn_url\":").append(quote(endpoints.getCdnBase() + "/" + group.id + "/"));
+        if (withFiles) {
+            json.append(",\"files\":[");
+            for (int i = 0; i < group.files.size(); i++) {
+                StoredFile file = files.get(group.files.get(i));
+                json.append(i > 0 ? "," : "").append(file != null ? fileJson(file) : "null");
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String webhookJson(int id, String target) {
+        String now = quote(formatDate(System.currentTimeMillis()));
+        return "{\"id\":" + id + ",\"event\":\"file.uploaded\",\"target_url\":" + quote(target)
+                + ",\"project\":1,\"is_active\":true,\"created\":" + now + ",\"updated\":" + now + "}";
+    }
+
+    private static String dateJson(Date date) {
+        return date != null ? quote(formatDate(date.getTime())) : "null";
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String firstUuid(String json) {
+        Matcher matcher = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}")
+                .matcher(json);
+        return matcher.find() ? matcher.group() : "";
+    }
+
+    private static String formOrJsonValue(byte[] body, String name) {
+        String text = new String(body, UTF_8);
+        Matcher matcher = Pattern.compile("\"" + name + "\"\\s*:\\s*\"([^\"]*)\"").matcher(text);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String formatDate(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(time));
+    }
+
+    private static long parseDate(String value) {
+        String[] patterns = {"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", "yyyy-MM-dd'T'HH:mm:ss"};
+        for (String pattern : patterns) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                return format.parse(value).getTime();
+            } catch (ParseException e) {
+                // try the next pattern
+            }
+        }
+        throw new IllegalArgumentException("Bad date: " + value);
+    }
+
+    // HTTP
+
+    private void send(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.getBytes(UTF_8);
+        if (status == 200 && "GET".equals(exchange.getRequestMethod())) {
+            String etag = "\"" + Integer.toHexString(json.hashCode()) + "-" + bytes.length + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (bytes.length >= minCompressedSize && acceptsGzip(exchange)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4);
+            GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+            gzip.write(bytes);
+            gzip.close();
+            bytes = buffer.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accepted != null && accepted.toLowerCase(Locale.US).contains("gzip");
+    }
+
+    private void notFound(HttpExchange exchange) throws IOException {
+        send(exchange, 404, "{\"detail\":\"Not found.\"}");
+    }
+
+    private static String[] segments(String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        Map<String, String> query = new LinkedHashMap<String, String>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static String formatQuery(Map<String, String> query) throws IOException {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, String> entry : query.entrySet()) {
+            result.append(result.length() > 0 ? "&" : "")
+                    .append(URLEncoder.encode(entry.getKey(), "UTF-8")).append('=')
+                    .append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+        }
+        return result.toString();
+    }
+
+    private static final class FormPart {
+
+        final String filename;
+
+        final String contentType;
+
+        final byte[] content;
+
+        FormPart(String filename, String contentType, byte[] content) {
+            this.filename = filename;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        String text() {
+            return new String(content, UTF_8);
+        }
+    }
+
+    /**
+     * Minimal multipart/form-data parser, sufficient for the bodies built by the client.
+     */
+    private static Map<String, FormPart> parseForm(byte[] body, String contentType) {
+        Map<String, FormPart> form = new LinkedHashMap<String, FormPart>();
+        int boundaryIndex = contentType != null ? contentType.indexOf("boundary=") : -1;
+        if (boundaryIndex < 0) {
+            return form;
+        }
+        byte[] delimiter = ("--" + contentType.substring(boundaryIndex + 9).replace("\"", "")).getBytes(UTF_8);
+        int position = indexOf(body, delimiter, 0);
+        while (position >= 0) {
+            int headersStart = position + delimiter.length + 2;
+            if (headersStart > body.length || body[position + delimiter.length] == '-') {
+                break;
+            }
+            int headersEnd = indexOf(body, "\r\n\r\n".getBytes(UTF_8), headersStart);
+            int next = indexOf(body, delimiter, headersEnd);
+            if (headersEnd < 0 || next < 0) {
+                break;
+            }
+            String headers = new String(body, headersStart, headersEnd - headersStart, UTF_8);
+            byte[] content = new byte[next - 2 - (headersEnd + 4)];
+            System.arraycopy(body, headersEnd + 4, content, 0, content.length);
+            String name = headerParameter(headers, "name");
+            if (name != null) {
+                Matcher type = Pattern.compile("(?i)content-type:\\s*([^\\r\\n;]+)").matcher(headers);
+                form.put(name, new FormPart(headerParameter(headers, "filename"),
+                        type.find() ? type.group(1).trim() : null, content));
+            }
+            position = next;
+        }
+        return form;
+    }
+
+    private static String headerParameter(String headers, String name) {
+        Matcher matcher = Pattern.compile("[; ]" + name + "=\"([^\"]*)\"").matcher(headers);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = Math.max(0, from); i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}